@@ -24,7 +24,14 @@ package com.smmsp.core.net;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.log4j.Logger;
 
@@ -34,15 +41,16 @@ import com.smmsp.core.utils.OSAPI;
  * This interface represents an object that contains a cache, and can update
  * that cache.
  * 
+ * How long the cache is good for is up to its {@link CachePolicy}.
+ * {@link #fetch()} serves a stale cache straight away and refreshes it in
+ * the background, only waiting when there is no usable copy.  Concurrent
+ * updates of one cache file share a single download.
+ * 
  * @author sean
  * 
  */
 public abstract class Cachable {
 
-	/**
-	 * Maximum length before the cache expires (1 week in seconds)
-	 */
-	private static final int MAX_CACHE_TIMEOUT = 604800;
 	private static final Logger log = Logger.getLogger(Cachable.class);
 
 	/**
@@ -79,16 +87,170 @@ public abstract class Cachable {
 	}
 
 	/**
-	 * Instructs this cachable to update it's cache.
+	 * The scheduler background refreshes run on, made when first needed.
+	 */
+	private static final class Background {
+		static final ScheduledExecutorService SCHEDULER = Executors
+				.newSingleThreadScheduledExecutor(new ThreadFactory() {
+					@Override
+					public Thread newThread(final Runnable r) {
+						final Thread t = new Thread(r, "cache-refresh");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Updates in progress by cache file, so concurrent updates of the same
+	 * file (from any Cachable pointing at it) wait on one download.
 	 */
-	public abstract void updateCache() throws CacheException;
+	private static final ConcurrentMap<Path, FutureTask<Cachable>> IN_FLIGHT =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * Wait before retrying the first failed background refresh of a file,
+	 * doubled for each failure after that up to {@link #MAX_BACKOFF_MILLIS}.
+	 */
+	static final long MIN_BACKOFF_MILLIS = 60 * 1000;
+
+	static final long MAX_BACKOFF_MILLIS = 60 * 60 * 1000;
+
+	/**
+	 * Background refreshes by cache file: the earliest time another may be
+	 * queued, Long.MAX_VALUE while one is queued or running.  Files with
+	 * no entry can be refreshed straight away.
+	 */
+	private static final ConcurrentMap<Path, Long> NEXT_REFRESH =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * Background refreshes in a row that failed, by cache file.  Only
+	 * touched by the one refresh of a file that is queued at a time.
+	 */
+	private static final ConcurrentMap<Path, Integer> FAILURES =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * How long this cache stays good.
+	 */
+	private volatile CachePolicy policy;
+
+	/**
+	 * Constructor, with {@link CachePolicy#DEFAULT}.
+	 */
+	protected Cachable() {
+		this(CachePolicy.DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param policy
+	 */
+	protected Cachable(final CachePolicy policy) {
+		this.policy = policy;
+	}
+
+	/**
+	 * Instructs this cachable to update it's cache.  If an update of the
+	 * same cache file is already running this waits for it, and gets its
+	 * outcome, instead of downloading the file again.  Always downloads,
+	 * whatever the cache's freshness; {@link #fetch()} is the call that
+	 * decides.  Final so the sharing can't be bypassed, subclasses
+	 * implement {@link #downloadCache()} instead.
+	 */
+	public final void updateCache() throws CacheException {
+		final Path key = key();
+		final FutureTask<Cachable> task = new FutureTask<>(
+				new Callable<Cachable>() {
+					@Override
+					public Cachable call() {
+						downloadCache();
+						return Cachable.this;
+					}
+				});
+		FutureTask<Cachable> running = IN_FLIGHT.putIfAbsent(key, task);
+		if (running == null) {
+			try {
+				task.run();
+			} finally {
+				IN_FLIGHT.remove(key, task);
+			}
+			running = task;
+		}
+
+		final Cachable leader;
+		try {
+			leader = running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CacheException("Interrupted waiting for " + key, e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new CacheException("Unable to update " + key, cause);
+		}
+		if (leader != this) {
+			joined(leader);
+		}
+	}
+
+	/**
+	 * Actually downloads the cache, called by {@link #updateCache()} for
+	 * only one of the callers updating a file at once.
+	 */
+	protected abstract void downloadCache() throws CacheException;
+
+	/**
+	 * Called when {@link #updateCache()} waited on another cachable's
+	 * download of the same file rather than running its own.  Does
+	 * nothing by default.
+	 * 
+	 * @param leader
+	 *            The cachable that did the download
+	 */
+	protected void joined(final Cachable leader) {
+		// nothing to copy.
+	}
+
+	/**
+	 * @return the policy deciding how long the cache stays good
+	 */
+	public CachePolicy getCachePolicy() {
+		return policy;
+	}
+
+	/**
+	 * @param policy
+	 *            the policy deciding how long the cache stays good
+	 */
+	public void setCachePolicy(final CachePolicy policy) {
+		this.policy = policy;
+	}
 
 	/**
 	 * Does this cachable need to update it's cache?
 	 * 
-	 * @return True if the cache needs updating.
+	 * @return True if the cache is missing or past its max age.
 	 */
 	public boolean cacheNeedsUpdate() throws CacheException {
+		return getFreshness() != CachePolicy.Freshness.FRESH;
+	}
+
+	/**
+	 * How usable the cache is right now, a missing cache is
+	 * {@link CachePolicy.Freshness#EXPIRED}.
+	 * 
+	 * @return
+	 * @throws CacheException
+	 */
+	public CachePolicy.Freshness getFreshness() throws CacheException {
 		try {
 			OSAPI.ensureCacheDirExists();
 		} catch (IOException e) {
@@ -97,32 +259,124 @@ public abstract class Cachable {
 			throw new CacheException("Could not create cache directory.", e);
 		}
 
-		boolean needsDownload = false;
 		Path fullCachedFile = getPathToCache();
 
 		if (Files.notExists(fullCachedFile)) {
-			needsDownload = true;
-		} else {
-			try {
-				FileTime time = Files.getLastModifiedTime(fullCachedFile);
-				FileTime now = FileTime.fromMillis(System.currentTimeMillis()
-						+ MAX_CACHE_TIMEOUT * 1000);
+			return CachePolicy.Freshness.EXPIRED;
+		}
+		try {
+			return policy.freshness(System.currentTimeMillis()
+					- getLastValidatedMillis());
+		} catch (IOException e) {
+			log.error("Unable to get file modification time on "
+					+ fullCachedFile, e);
+			throw new CacheException(
+					"Unable to get file modification time on "
+							+ fullCachedFile, e);
+		}
+	}
+
+	/**
+	 * When the cache was last known to be current, which its age is
+	 * measured from.  The cache file's modification time by default;
+	 * subclasses that can confirm a cache without rewriting it keep their
+	 * own record, so the modification time stays the time the content
+	 * was written.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	protected long getLastValidatedMillis() throws IOException {
+		return Files.getLastModifiedTime(getPathToCache()).toMillis();
+	}
+
+	/**
+	 * Returns the path to a usable cache: straight away if it is fresh,
+	 * straight away with a refresh started in the background if it is
+	 * stale, and after updating it if it is missing or expired.
+	 * 
+	 * @return
+	 * @throws CacheException
+	 */
+	public Path fetch() throws CacheException {
+		switch (getFreshness()) {
+		case FRESH:
+			break;
+		case STALE:
+			refreshInBackground();
+			break;
+		default:
+			updateCache();
+			break;
+		}
+		return getPathToCache();
+	}
 
-				if (now.compareTo(time) < 0) {
-					// cache is invalidated.
-					needsDownload = true;
+	/**
+	 * Updates the cache on the background scheduler, unless it has been
+	 * made fresh by the time the refresh runs.  Only one refresh of a file
+	 * is queued at a time, calls while one is pending do nothing.  A
+	 * refresh that fails, or leaves the cache still needing an update, is
+	 * logged and further ones are skipped for a while, backing off from
+	 * {@link #MIN_BACKOFF_MILLIS} to {@link #MAX_BACKOFF_MILLIS}.
+	 */
+	public void refreshInBackground() {
+		final Path key = key();
+		final Long next = NEXT_REFRESH.get(key);
+		if (next == null) {
+			if (NEXT_REFRESH.putIfAbsent(key, Long.MAX_VALUE) != null) {
+				return;
+			}
+		} else if (next > System.currentTimeMillis()
+				|| !NEXT_REFRESH.replace(key, next, Long.MAX_VALUE)) {
+			return;
+		}
+
+		Background.SCHEDULER.execute(new Runnable() {
+			@Override
+			public void run() {
+				boolean ok = false;
+				try {
+					if (cacheNeedsUpdate()) {
+						updateCache();
+						ok = !cacheNeedsUpdate();
+					} else {
+						ok = true;
+					}
+				} catch (RuntimeException e) {
+					log.error("Background refresh of " + key + " failed", e);
+				} finally {
+					refreshed(key, ok);
 				}
-			} catch (IOException e) {
-				log.error(
-						"Unable to get file modification time on leaps cache",
-						e);
-				throw new CacheException(
-						"Unable to get file modification time on leaps cache",
-						e);
 			}
+		});
+	}
+
+	/**
+	 * Lets the next background refresh of key be queued, straight away if
+	 * this one worked and after a back off if not.
+	 */
+	private static void refreshed(final Path key, final boolean ok) {
+		if (ok) {
+			FAILURES.remove(key);
+			NEXT_REFRESH.remove(key);
+			return;
 		}
+		final Integer previous = FAILURES.get(key);
+		final int failures = previous == null ? 1 : previous + 1;
+		FAILURES.put(key, failures);
+		final long backoff = failures > 6 ? MAX_BACKOFF_MILLIS : Math.min(
+				MIN_BACKOFF_MILLIS << (failures - 1), MAX_BACKOFF_MILLIS);
+		log.warn("Not refreshing " + key + " again for " + backoff / 1000
+				+ "s");
+		NEXT_REFRESH.put(key, System.currentTimeMillis() + backoff);
+	}
 
-		return needsDownload;
+	/**
+	 * The cache file, as the key concurrent updates of it share.
+	 */
+	private Path key() {
+		return getPathToCache().toAbsolutePath().normalize();
 	}
 
 	/**
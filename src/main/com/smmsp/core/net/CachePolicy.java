@@ -0,0 +1,139 @@
+/*
+ * CachePolicy.java
+ * 
+ * Copyright (C) 2013 Sean P Madden
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.net;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how old a cache file may get.  Up to the max age it is fresh;
+ * after that, for the stale-while-revalidate window, it is still served
+ * while a refresh runs in the background (see {@link Cachable#fetch()});
+ * past that it is expired and callers wait for a new copy.
+ * 
+ * Subclasses can override {@link #freshness(long)} for other rules.
+ * 
+ * @author sean
+ * 
+ */
+public class CachePolicy {
+
+	/**
+	 * How usable a cache file is.
+	 * 
+	 * @author sean
+	 * 
+	 */
+	public static enum Freshness {
+		/**
+		 * Use it as is.
+		 */
+		FRESH,
+		/**
+		 * Use it, but refresh it in the background.
+		 */
+		STALE,
+		/**
+		 * Too old to use (or not there), refresh before using it.
+		 */
+		EXPIRED
+	}
+
+	/**
+	 * Fresh for a week, then served stale for as long as it takes a
+	 * refresh to succeed.
+	 */
+	public static final CachePolicy DEFAULT = new CachePolicy(7,
+			TimeUnit.DAYS, Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+
+	/**
+	 * How long a file is fresh, in millis.
+	 */
+	private final long maxAgeMillis;
+
+	/**
+	 * How long after that it is served stale, in millis.
+	 */
+	private final long staleMillis;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param maxAge
+	 *            How long a file is fresh
+	 * @param maxAgeUnit
+	 * @param staleWhileRevalidate
+	 *            How long after that a file is still served while it is
+	 *            refreshed, 0 to always wait for the refresh
+	 * @param staleUnit
+	 */
+	public CachePolicy(final long maxAge, final TimeUnit maxAgeUnit,
+			final long staleWhileRevalidate, final TimeUnit staleUnit) {
+		if (maxAge < 0 || staleWhileRevalidate < 0) {
+			throw new IllegalArgumentException("Ages must not be negative");
+		}
+		this.maxAgeMillis = maxAgeUnit.toMillis(maxAge);
+		this.staleMillis = staleUnit.toMillis(staleWhileRevalidate);
+	}
+
+	/**
+	 * @param ageMillis
+	 *            How long ago the cache file was written
+	 * @return how usable it is
+	 */
+	public Freshness freshness(final long ageMillis) {
+		if (ageMillis <= maxAgeMillis) {
+			return Freshness.FRESH;
+		}
+		if (ageMillis - maxAgeMillis <= staleMillis) {
+			return Freshness.STALE;
+		}
+		return Freshness.EXPIRED;
+	}
+
+	/**
+	 * @return how long a file is fresh, in millis
+	 */
+	public long getMaxAgeMillis() {
+		return maxAgeMillis;
+	}
+
+	/**
+	 * @return how long a file is served stale after its max age, in millis
+	 */
+	public long getStaleMillis() {
+		return staleMillis;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("CachePolicy [maxAgeMillis=");
+		builder.append(maxAgeMillis);
+		builder.append(", staleMillis=");
+		builder.append(staleMillis);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -26,12 +26,14 @@ import java.net.ProtocolException;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 
 import org.apache.log4j.Logger;
 
+import com.smmsp.core.utils.FileUtils;
 import com.smmsp.core.utils.OSAPI;
 
 /**
@@ -61,6 +63,20 @@ public class FTPCachedFile extends Cachable {
 	 * @param url
 	 */
 	public FTPCachedFile(final String filename, final String url) {
+		this(filename, url, CachePolicy.DEFAULT);
+	}
+
+	/**
+	 * Constructor
+	 * 
+	 * @param filename
+	 * @param url
+	 * @param policy
+	 *            How long the cache stays good
+	 */
+	public FTPCachedFile(final String filename, final String url,
+			final CachePolicy policy) {
+		super(policy);
 		this.url = url;
 		this.filename = filename;
 	}
@@ -68,31 +84,31 @@ public class FTPCachedFile extends Cachable {
 	/*
 	 * (non-Javadoc)
 	 * 
-	 * @see com.smmsp.core.net.Cachable#updateCache()
+	 * @see com.smmsp.core.net.Cachable#downloadCache()
 	 */
 	@Override
-	public void updateCache() throws CacheException {
-		// if we don't need to update the cache, bail out.
-		if (!cacheNeedsUpdate()) {
-			return;
-		}
-
+	protected void downloadCache() throws CacheException {
 		Path fullCachedFile = getPathToCache();
 
 		try {
 			FTPConnection conn = new FTPConnection(url);
 
-			ReadableByteChannel ftpChan = Channels.newChannel(conn
-					.getDataStream());
-
-			// create the file if it doesn't exist and
-			// hose it if it does
-			FileChannel cachedFile = FileChannel.open(fullCachedFile,
-					StandardOpenOption.CREATE, StandardOpenOption.WRITE,
-					StandardOpenOption.TRUNCATE_EXISTING);
-
-			// pipe it to the file.
-			cachedFile.transferFrom(ftpChan, 0, Integer.MAX_VALUE);
+			// download next to the file and swap it in whole, so readers
+			// (and a failed download) never see a partial file.
+			final Path tmp = FileUtils.createSiblingTemp(fullCachedFile);
+			try {
+				try (ReadableByteChannel ftpChan = Channels.newChannel(conn
+						.getDataStream());
+						FileChannel cachedFile = FileChannel.open(tmp,
+								StandardOpenOption.WRITE)) {
+					// pipe it to the file.
+					cachedFile.transferFrom(ftpChan, 0, Integer.MAX_VALUE);
+					cachedFile.force(true);
+				}
+				FileUtils.replace(tmp, fullCachedFile);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
 		} catch (ProtocolException e) {
 			e.printStackTrace();
 			log.error("Error with FTP download from IANA.", e);
@@ -22,19 +22,34 @@
 package com.smmsp.core.net;
 
 import java.io.IOException;
-import java.net.ProtocolException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.Properties;
 
 import org.apache.log4j.Logger;
 
+import com.smmsp.core.utils.FileUtils;
 import com.smmsp.core.utils.OSAPI;
 
 /**
+ * A file downloaded over HTTP into the cache directory.
+ * 
+ * The ETag and Last-Modified headers of each download are kept next to
+ * the cache file (see {@link #getPathToValidators()}) and sent back as
+ * If-None-Match / If-Modified-Since on the next update, so a file that
+ * hasn't changed costs a 304 rather than the whole body.  The time the
+ * file was last confirmed is kept there too and is what its age is
+ * measured from, so a 304 leaves the cache file alone and its
+ * modification time still says when the content changed.
+ * 
  * @author sean
  *
  */
@@ -42,10 +57,28 @@ public class HTTPCachedFile extends Cachable {
 
 	private static final Logger log = Logger.getLogger(HTTPCachedFile.class);
 	
+	/**
+	 * Suffix of the file holding a cache file's validators.
+	 */
+	public static final String VALIDATORS_SUFFIX = ".validators";
+	
+	private static final String ETAG = "ETag";
+	
+	private static final String LAST_MODIFIED = "Last-Modified";
+	
+	private static final String VALIDATED = "Validated";
+	
+	private static final String CONTENT_LENGTH = "Content-Length";
+	
 	private final String filename;
 	
 	private final String url;
 	
+	/**
+	 * Status code of the last update, -1 if there hasn't been one.
+	 */
+	private volatile int lastResponseCode = -1;
+	
 	/**
 	 * Constructor!
 	 * @param filename
@@ -54,42 +87,129 @@ public class HTTPCachedFile extends Cachable {
 	public HTTPCachedFile(
 			final String filename,
 			final String url){
+		this(filename, url, CachePolicy.DEFAULT);
+	}
+	
+	/**
+	 * Constructor
+	 * @param filename
+	 * @param url
+	 * @param policy how long the cache stays good
+	 */
+	public HTTPCachedFile(
+			final String filename,
+			final String url,
+			final CachePolicy policy){
+		super(policy);
 		this.filename = filename;
 		this.url = url;
-		
 	}
 	
 	/* (non-Javadoc)
-	 * @see com.smmsp.core.net.Cachable#updateCache()
+	 * @see com.smmsp.core.net.Cachable#downloadCache()
 	 */
 	@Override
-	public void updateCache() throws CacheException {
+	protected void downloadCache() throws CacheException {
 		Path fullCachedFile = getPathToCache();
+		Path validatorsFile = getPathToValidators();
+		lastResponseCode = -1;
 
 		try {
 			HTTPConnection conn = new HTTPConnection(url);
 
-			ReadableByteChannel ftpChan = Channels.newChannel(conn
-					.getDataStream());
+			Properties validators = new Properties();
+			if (Files.exists(fullCachedFile)) {
+				validators = readValidators(validatorsFile);
+				final String etag = validators.getProperty(ETAG);
+				final String modified = validators.getProperty(LAST_MODIFIED);
+				if (etag != null) {
+					conn.addHeader("If-None-Match", etag);
+				}
+				if (modified != null) {
+					conn.addHeader("If-Modified-Since", modified);
+				}
+			}
 
-			// create the file if it doesn't exist and
-			// hose it if it does
-			FileChannel cachedFile = FileChannel.open(fullCachedFile,
-					StandardOpenOption.CREATE, StandardOpenOption.WRITE,
-					StandardOpenOption.TRUNCATE_EXISTING);
+			final InputStream data = conn.getDataStream();
+			lastResponseCode = conn.getResponseCode();
+			if (data == null) {
+				log.error("No response from " + url);
+				return;
+			}
+			if (lastResponseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+				// still good, start its timeout over.
+				writeValidators(validatorsFile, validators.getProperty(ETAG),
+						validators.getProperty(LAST_MODIFIED));
+				log.debug(filename + " not modified");
+				return;
+			}
+			if (lastResponseCode != HttpURLConnection.HTTP_OK) {
+				log.error("HTTP " + lastResponseCode + " from " + url
+						+ ", keeping the cached " + filename);
+				return;
+			}
 
-			// pipe it to the file.
-			cachedFile.transferFrom(ftpChan, 0, Integer.MAX_VALUE);
-		} catch (ProtocolException e) {
-			e.printStackTrace();
-			log.error("Error with FTP download from IANA.", e);
+			// download next to the file and swap it in whole, so readers
+			// (and a failed download) never see a partial file.
+			final Path tmp = FileUtils.createSiblingTemp(fullCachedFile);
+			try {
+				final long written;
+				try (ReadableByteChannel httpChan = Channels.newChannel(data);
+						FileChannel cachedFile = FileChannel.open(tmp,
+								StandardOpenOption.WRITE)) {
+					// pipe it to the file.
+					written = cachedFile.transferFrom(httpChan, 0,
+							Integer.MAX_VALUE);
+					cachedFile.force(true);
+				}
+				final String length = conn.getResponseHeader(CONTENT_LENGTH);
+				if (length != null && written < Long.parseLong(length.trim())) {
+					log.error("Got " + written + " of " + length
+							+ " bytes from " + url + ", keeping the cached "
+							+ filename);
+					lastResponseCode = -1;
+					return;
+				}
+				if (length == null && written == 0
+						&& Files.exists(fullCachedFile)) {
+					// most likely a body that never arrived.
+					log.error("Empty response with no length from " + url
+							+ ", keeping the cached " + filename);
+					lastResponseCode = -1;
+					return;
+				}
+				FileUtils.replace(tmp, fullCachedFile);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+			writeValidators(validatorsFile, conn.getResponseHeader(ETAG),
+					conn.getResponseHeader(LAST_MODIFIED));
 		} catch (IOException e) {
-			e.printStackTrace();
-			log.error("Error file file IO.", e);
+			log.error("Error with file IO for " + filename, e);
 		}
 
 	}
 
+	/* (non-Javadoc)
+	 * @see com.smmsp.core.net.Cachable#joined(com.smmsp.core.net.Cachable)
+	 */
+	@Override
+	protected void joined(final Cachable leader) {
+		if (leader instanceof HTTPCachedFile) {
+			lastResponseCode = ((HTTPCachedFile) leader).lastResponseCode;
+		}
+	}
+
+	/**
+	 * The status code of the last {@link #updateCache()}: 200 if the file
+	 * was downloaded, 304 if the cached copy was still current.
+	 * @return the code, or -1 if there was no response or the body was cut
+	 *         short
+	 */
+	public int getLastResponseCode() {
+		return lastResponseCode;
+	}
+
 	/* (non-Javadoc)
 	 * @see com.smmsp.core.net.Cachable#getPathToCache()
 	 */
@@ -100,4 +220,71 @@ public class HTTPCachedFile extends Cachable {
 		return fullCachedFile;
 	}
 
+	/**
+	 * Returns the path to the file holding the cache's ETag and
+	 * Last-Modified validators.
+	 * @return
+	 * @throws CacheException
+	 */
+	public Path getPathToValidators() throws CacheException {
+		return Paths.get(OSAPI.getCacheDirectory().toString(),
+				filename + VALIDATORS_SUFFIX);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.smmsp.core.net.Cachable#getLastValidatedMillis()
+	 */
+	@Override
+	protected long getLastValidatedMillis() throws IOException {
+		final String validated = readValidators(getPathToValidators())
+				.getProperty(VALIDATED);
+		if (validated != null) {
+			try {
+				return Long.parseLong(validated);
+			} catch (NumberFormatException e) {
+				log.warn("Ignoring bad " + VALIDATED + " time for "
+						+ filename, e);
+			}
+		}
+		return super.getLastValidatedMillis();
+	}
+
+	private static Properties readValidators(final Path path) {
+		final Properties validators = new Properties();
+		if (Files.exists(path)) {
+			try (InputStream is = Files.newInputStream(path)) {
+				validators.load(is);
+			} catch (IOException e) {
+				log.warn("Ignoring unreadable " + path, e);
+			}
+		}
+		return validators;
+	}
+
+	/**
+	 * Writes the validators, stamped as confirmed now, replacing the old
+	 * ones in one step.
+	 */
+	private static void writeValidators(final Path path, final String etag,
+			final String modified) throws IOException {
+		final Properties validators = new Properties();
+		validators.setProperty(VALIDATED,
+				Long.toString(System.currentTimeMillis()));
+		if (etag != null) {
+			validators.setProperty(ETAG, etag);
+		}
+		if (modified != null) {
+			validators.setProperty(LAST_MODIFIED, modified);
+		}
+		final Path tmp = FileUtils.createSiblingTemp(path);
+		try {
+			try (OutputStream os = Files.newOutputStream(tmp)) {
+				validators.store(os, null);
+			}
+			FileUtils.replace(tmp, path);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
 }
@@ -22,20 +22,21 @@
 */
 package com.smmsp.core.net;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.URL;
-import java.util.HashMap;
 import java.util.LinkedHashMap; 
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
 
@@ -88,6 +89,17 @@ public class HTTPConnection extends AbstractInternetConnection {
 	 */
 	private final LinkedHashMap<String, String> formElems;
 	
+	/**
+	 * The status code of the last response, -1 before there is one.
+	 */
+	private int responseCode = -1;
+	
+	/**
+	 * The headers of the last response, names are case insensitive.
+	 */
+	private final Map<String, String> responseHeaders = 
+			new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+	
 	/**
 	 * Constructor
 	 * @param url
@@ -143,6 +155,24 @@ public class HTTPConnection extends AbstractInternetConnection {
 		this.formElems.put(key, val);
 	}
 	
+	/**
+	 * The status code of the last response to {@link #getDataStream()},
+	 * e.g. 304 for a conditional request whose file hasn't changed.
+	 * @return the code, or -1 if there was no response
+	 */
+	public int getResponseCode(){
+		return responseCode;
+	}
+	
+	/**
+	 * Returns a header of the last response.
+	 * @param name case insensitive
+	 * @return the value, or null if it wasn't sent
+	 */
+	public String getResponseHeader(final String name){
+		return responseHeaders.get(name);
+	}
+	
 	protected Socket openConnection() throws HTTPException, IOException{
 		final String protocol = url.getProtocol();
 		final Socket sock;
@@ -155,6 +185,9 @@ public class HTTPConnection extends AbstractInternetConnection {
 		}else{
 			throw new HTTPException("Protocol is not HTTP or HTTPS!");
 		}
+		if(url.getPort() != -1){
+			port = url.getPort();
+		}
 		
 		SocketAddress addr = new InetSocketAddress(url.getHost(), port);
 		sock.connect(addr, 10000); // 10s in millis.
@@ -178,6 +211,8 @@ public class HTTPConnection extends AbstractInternetConnection {
 			return null;
 		}
 		
+		responseCode = -1;
+		responseHeaders.clear();
 		try {
 			final StringBuffer request = new StringBuffer();
 			request.append(method.toString());
@@ -190,6 +225,8 @@ public class HTTPConnection extends AbstractInternetConnection {
 			addHeader("Host", url.getHost());
 			addHeader("Accept", "*/*");
 			addHeader("User-Agent", "JNFSN-Client v. 1 Beta");
+			// a body without a length ends when the server hangs up.
+			addHeader("Connection", "close");
 			
 			final String body = generateBody();
 			if(!"".equals(body)){
@@ -220,38 +257,51 @@ public class HTTPConnection extends AbstractInternetConnection {
 			}
 			
 			
-			final InputStream is = sock.getInputStream();
-			final BufferedReader read = new BufferedReader(new InputStreamReader(is));
+			// the body is raw bytes, so only the status line and headers
+			// are decoded (as ISO-8859-1, which they are).
+			final InputStream is = new BufferedInputStream(
+					sock.getInputStream());
 			
-			final String response = read.readLine();
+			final String response = readLine(is);
+			if(response == null){
+				throw new HTTPException("No response from " + url);
+			}
 			final String[] respParts = response.split(" ", 3);
 			final int code = Integer.valueOf(respParts[1]);
 			
-			final HashMap<String, String> responseFields = new HashMap<>();
+			responseCode = code;
 			String line = "";
-			while((line = read.readLine()) != null){
+			while((line = readLine(is)) != null){
 				if("".equals(line)){
 					break;
 				}
-				final String[] parts = line.split(": ");
-				responseFields.put(parts[0], parts[1]);
+				final String[] parts = line.split(":", 2);
+				if(parts.length == 2){
+					responseHeaders.put(parts[0].trim(), parts[1].trim());
+				}
 			}
-			LOG.debug(responseFields);
+			LOG.debug(responseHeaders);
 			
-			int readLen = -1;
-			if(responseFields.containsKey("Content-Length")){
-				readLen = Integer.valueOf(responseFields.get("Content-Length"));
-			}
-			final StringBuffer outBuf = new StringBuffer();
-			int chr = 0;
-			while(readLen-- > 0 && (chr = read.read()) != -1){
-				outBuf.append((char)chr);
+			final ByteArrayOutputStream outBuf = new ByteArrayOutputStream();
+			final String length = responseHeaders.get("Content-Length");
+			if(code == HttpURLConnection.HTTP_NOT_MODIFIED 
+					|| code == HttpURLConnection.HTTP_NO_CONTENT
+					|| code < 200){
+				// never has a body.
+			}else if("chunked".equalsIgnoreCase(
+					responseHeaders.get("Transfer-Encoding"))){
+				readChunked(is, outBuf);
+			}else if(length != null){
+				copy(is, outBuf, Long.parseLong(length.trim()));
+			}else{
+				// the body runs to the end of the connection.
+				copy(is, outBuf, Long.MAX_VALUE);
 			}
 			
 			sock.close();
-			LOG.debug(outBuf.toString());
+			LOG.debug(outBuf.size() + " bytes");
 			LOG.debug("Response code: " + code);
-			return new ByteArrayInputStream(outBuf.toString().getBytes());
+			return new ByteArrayInputStream(outBuf.toByteArray());
 		} catch (IOException e) {
 			LOG.error(e);
 		} catch (HTTPException e) {
@@ -260,6 +310,74 @@ public class HTTPConnection extends AbstractInternetConnection {
 		return null;
 	}
 	
+	/**
+	 * Reads a line of the status or headers, without its CRLF.
+	 * @param is
+	 * @return the line, or null at the end of the stream
+	 * @throws IOException
+	 */
+	private static String readLine(final InputStream is) throws IOException{
+		final StringBuilder line = new StringBuilder();
+		int b;
+		while((b = is.read()) != -1 && b != '\n'){
+			line.append((char) b);
+		}
+		if(b == -1 && line.length() == 0){
+			return null;
+		}
+		final int len = line.length();
+		if(len > 0 && line.charAt(len - 1) == '\r'){
+			line.setLength(len - 1);
+		}
+		return line.toString();
+	}
+	
+	/**
+	 * Copies up to max bytes, stopping early at the end of the stream.
+	 * @param is
+	 * @param out
+	 * @param max
+	 * @throws IOException
+	 */
+	private static void copy(final InputStream is, 
+			final ByteArrayOutputStream out, long max) throws IOException{
+		final byte[] buf = new byte[8192];
+		int read;
+		while(max > 0 
+				&& (read = is.read(buf, 0, (int) Math.min(buf.length, max))) 
+					!= -1){
+			out.write(buf, 0, read);
+			max -= read;
+		}
+	}
+	
+	/**
+	 * Reads a chunked body: each chunk is a hex size line then that many
+	 * bytes and a CRLF, up to a chunk of size 0.
+	 * @param is
+	 * @param out
+	 * @throws IOException
+	 */
+	private static void readChunked(final InputStream is, 
+			final ByteArrayOutputStream out) throws IOException{
+		String line;
+		while((line = readLine(is)) != null){
+			final int ext = line.indexOf(';');
+			final long size = Long.parseLong(
+					(ext < 0 ? line : line.substring(0, ext)).trim(), 16);
+			if(size == 0){
+				return;
+			}
+			final int before = out.size();
+			copy(is, out, size);
+			if(out.size() - before < size){
+				throw new IOException("Chunk cut short");
+			}
+			readLine(is);
+		}
+		throw new IOException("Chunked body cut short");
+	}
+	
 	/**
 	 * Generates a application/x-www-form-urlencoded string for the
 	 * body of the request.
@@ -78,11 +78,8 @@ public class LeapHistoryProcessor{
 	 * and populating the internal data sites
 	 */
 	private void populateHistory(){
-		if(LEAPS_FILE.cacheNeedsUpdate()){
-			LEAPS_FILE.updateCache();
-		}
-		
-		Path fullCachedFile = LEAPS_FILE.getPathToCache();
+		// only waits for the download if there's no copy yet.
+		Path fullCachedFile = LEAPS_FILE.fetch();
 		
 		try {
 			FileChannel cachedFile = FileChannel.open(
@@ -0,0 +1,268 @@
+/*
+ * ParsedFileCache.java
+ * 
+ * Copyright (C) 2013 Sean P Madden
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.net;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps what was parsed out of cache files in memory, so a file is parsed
+ * once each time it changes rather than on every read.
+ * 
+ * Entries are keyed on the file's path and stamped with its modification
+ * time and size; a lookup after the file has been rewritten (a refresh)
+ * parses it again.  The cache holds at most a set total weight, as
+ * estimated by a {@link Weigher}, and evicts the least recently used
+ * entries to stay under it.  Values are shared between callers, so they
+ * must be treated as read only.
+ * 
+ * @author sean
+ * 
+ * @param <V>
+ *            What the files are parsed into
+ */
+public final class ParsedFileCache<V> {
+
+	/**
+	 * Parses a file.
+	 * 
+	 * @param <V>
+	 */
+	public interface Loader<V> {
+		/**
+		 * @param path
+		 * @return what path holds
+		 * @throws IOException
+		 */
+		V load(Path path) throws IOException;
+	}
+
+	/**
+	 * Estimates how much heap a value takes.
+	 * 
+	 * @param <V>
+	 */
+	public interface Weigher<V> {
+		/**
+		 * @param value
+		 * @return roughly how many bytes value holds on to
+		 */
+		long weigh(V value);
+	}
+
+	/**
+	 * A parsed file and the version of it that was parsed.
+	 */
+	private static final class Entry<V> {
+		final long modifiedMillis;
+		final long size;
+		final V value;
+		final long weight;
+
+		Entry(final long modifiedMillis, final long size, final V value,
+				final long weight) {
+			this.modifiedMillis = modifiedMillis;
+			this.size = size;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	private final long maxWeight;
+	private final Weigher<V> weigher;
+
+	/**
+	 * Entries in access order, least recently used first.
+	 */
+	private final LinkedHashMap<Path, Entry<V>> entries = new LinkedHashMap<>(
+			16, 0.75f, true);
+
+	private long weight;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * Constructor
+	 * 
+	 * @param maxWeight
+	 *            Most total weight to keep
+	 * @param weigher
+	 */
+	public ParsedFileCache(final long maxWeight, final Weigher<V> weigher) {
+		if (maxWeight < 0) {
+			throw new IllegalArgumentException("maxWeight must not be negative");
+		}
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+	}
+
+	/**
+	 * Returns the parsed file, parsing it with loader if it isn't held or
+	 * has changed since.  Two threads missing at once may both parse it.
+	 * 
+	 * @param path
+	 * @param loader
+	 * @return
+	 * @throws IOException
+	 */
+	public V get(final Path path, final Loader<? extends V> loader)
+			throws IOException {
+		final Path key = path.toAbsolutePath().normalize();
+		final BasicFileAttributes attrs = Files.readAttributes(key,
+				BasicFileAttributes.class);
+		final long modified = attrs.lastModifiedTime().toMillis();
+		final long size = attrs.size();
+
+		synchronized (this) {
+			final Entry<V> entry = entries.get(key);
+			if (entry != null && entry.modifiedMillis == modified
+					&& entry.size == size) {
+				++hits;
+				return entry.value;
+			}
+			++misses;
+		}
+
+		final V value = loader.load(key);
+		final long valueWeight = weigher.weigh(value);
+		synchronized (this) {
+			final Entry<V> old = entries.get(key);
+			if (old != null) {
+				if (old.modifiedMillis > modified) {
+					// someone already parsed a newer copy.
+					return value;
+				}
+				entries.remove(key);
+				weight -= old.weight;
+			}
+			if (valueWeight <= maxWeight) {
+				entries.put(key, new Entry<>(modified, size, value,
+						valueWeight));
+				weight += valueWeight;
+				evict();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Brings cachable up to date per its policy (see
+	 * {@link Cachable#fetch()}) and returns its parsed cache file.
+	 * 
+	 * @param cachable
+	 * @param loader
+	 * @return
+	 * @throws IOException
+	 */
+	public V get(final Cachable cachable, final Loader<? extends V> loader)
+			throws IOException {
+		return get(cachable.fetch(), loader);
+	}
+
+	private void evict() {
+		final Iterator<Map.Entry<Path, Entry<V>>> rator = entries.entrySet()
+				.iterator();
+		while (weight > maxWeight && rator.hasNext()) {
+			weight -= rator.next().getValue().weight;
+			rator.remove();
+			++evictions;
+		}
+	}
+
+	/**
+	 * Drops whatever is held for path.
+	 * 
+	 * @param path
+	 */
+	public synchronized void invalidate(final Path path) {
+		final Entry<V> old = entries.remove(path.toAbsolutePath().normalize());
+		if (old != null) {
+			weight -= old.weight;
+		}
+	}
+
+	/**
+	 * Drops everything.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	/**
+	 * @return the number of files held
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the total weight held
+	 */
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("ParsedFileCache [size=");
+		builder.append(entries.size());
+		builder.append(", weight=");
+		builder.append(weight);
+		builder.append(", maxWeight=");
+		builder.append(maxWeight);
+		builder.append(", hits=");
+		builder.append(hits);
+		builder.append(", misses=");
+		builder.append(misses);
+		builder.append(", evictions=");
+		builder.append(evictions);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,221 @@
+/*
+ * ByteLineReader.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits bytes into lines without copying them out, for the text readers
+ * in this package.
+ *
+ * Streaming, lines live in a byte buffer that's refilled from an
+ * InputStream and grows if a line doesn't fit, so memory use is bounded by
+ * the longest line.  Otherwise lines are found in place in a region of a
+ * ByteBuffer (typically a mapped file).  Either way the current line is
+ * [{@link #getStart()}, getStart() + {@link #getLength()}) of
+ * {@link #array()} or {@link #buffer()}, without its terminator, and stays
+ * put until the next call to {@link #next()}.
+ *
+ * Instances are NOT thread safe.
+ *
+ * @author sean
+ */
+final class ByteLineReader implements Closeable {
+
+	private final InputStream in;
+
+	/**
+	 * Bytes read but not consumed live in [pos, limit) of either buf
+	 * (streaming) or mapped (in place).
+	 */
+	private byte[] buf;
+	private final ByteBuffer mapped;
+	private int pos;
+	private int limit;
+	private boolean eof;
+
+	private int lineStart;
+	private int lineLength;
+	private long lineNumber;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param is
+	 * @param bufferSize
+	 *            Initial size of the line buffer, it grows if a line
+	 *            doesn't fit.
+	 */
+	ByteLineReader(final InputStream is, final int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be positive");
+		}
+		this.in = is;
+		this.buf = new byte[bufferSize];
+		this.mapped = null;
+	}
+
+	/**
+	 * Constructor, reads the bytes [start, end) of buffer in place.  Only
+	 * absolute gets are used so the buffer may be shared between readers.
+	 *
+	 * @param buffer
+	 * @param start
+	 * @param end
+	 */
+	ByteLineReader(final ByteBuffer buffer, final int start, final int end) {
+		if (start < 0 || end > buffer.limit() || start > end) {
+			throw new IllegalArgumentException("Bad region " + start + "-"
+					+ end);
+		}
+		this.in = null;
+		this.mapped = buffer;
+		this.pos = start;
+		this.limit = end;
+		this.eof = true;
+	}
+
+	/**
+	 * Advances to the next line.
+	 *
+	 * @return False at the end of the input
+	 * @throws TLEException
+	 *             On a read error
+	 */
+	boolean next() throws TLEException {
+		int scan = pos;
+		while (true) {
+			while (scan < limit) {
+				if (byteAt(scan) == '\n') {
+					setLine(pos, scan);
+					pos = scan + 1;
+					return true;
+				}
+				++scan;
+			}
+			if (eof) {
+				if (pos < limit) {
+					// last line has no terminator
+					setLine(pos, limit);
+					pos = limit;
+					return true;
+				}
+				return false;
+			}
+			final int scanned = scan - pos;
+			fill();
+			scan = pos + scanned;
+		}
+	}
+
+	/**
+	 * @return the buffer lines are in when streaming, null in place
+	 */
+	byte[] array() {
+		return buf;
+	}
+
+	/**
+	 * @return the buffer lines are in when reading in place, null when
+	 *         streaming
+	 */
+	ByteBuffer buffer() {
+		return mapped;
+	}
+
+	/**
+	 * @return where the current line starts
+	 */
+	int getStart() {
+		return lineStart;
+	}
+
+	/**
+	 * @return the length of the current line, less any "\r\n" or "\n"
+	 */
+	int getLength() {
+		return lineLength;
+	}
+
+	/**
+	 * Returns the number of the current line (1 based).
+	 *
+	 * @return
+	 */
+	long getLineNumber() {
+		return lineNumber;
+	}
+
+	byte byteAt(final int idx) {
+		return mapped == null ? buf[idx] : mapped.get(idx);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (in != null) {
+			in.close();
+		}
+	}
+
+	private void setLine(final int start, final int end) {
+		lineStart = start;
+		lineLength = end - start;
+		if (lineLength > 0 && byteAt(end - 1) == '\r') {
+			--lineLength;
+		}
+		++lineNumber;
+	}
+
+	/**
+	 * Reads more data, first sliding the unconsumed bytes to the front of
+	 * the buffer (or growing it if the buffer is one unfinished line).
+	 *
+	 * @throws TLEException
+	 */
+	private void fill() throws TLEException {
+		final int unread = limit - pos;
+		if (pos > 0) {
+			System.arraycopy(buf, pos, buf, 0, unread);
+			pos = 0;
+			limit = unread;
+		} else if (limit == buf.length) {
+			buf = Arrays.copyOf(buf, buf.length * 2);
+		}
+		try {
+			final int read = in.read(buf, limit, buf.length - limit);
+			if (read < 0) {
+				eof = true;
+			} else {
+				limit += read;
+			}
+		} catch (IOException e) {
+			throw new TLEException("Unable to get line", e);
+		}
+	}
+}
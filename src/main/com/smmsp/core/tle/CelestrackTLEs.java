@@ -21,19 +21,26 @@
  */
 package com.smmsp.core.tle;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -42,6 +49,7 @@ import javax.xml.bind.Unmarshaller;
 import org.apache.log4j.Logger;
 
 import com.smmsp.core.net.HTTPCachedFile;
+import com.smmsp.core.net.ParsedFileCache;
 
 /**
  * Three/Two Line Element sets provided by Celestrak.
@@ -56,41 +64,325 @@ public final class CelestrackTLEs {
 		// does nothing.
 	}
 
-	public static final LinkedHashMap<String, List<TLESetLocation>> 
-			AVAILABLE_TLE_LOCATIONS = new LinkedHashMap<>();
-	static{
+	/**
+	 * Classpath location of the manifest the tleManifest build task
+	 * compiles from /tles/*.xml.
+	 */
+	public static final String MANIFEST = "/tles/manifest.tsv";
+
+	/**
+	 * Returns the element set groups, by name.  Read from
+	 * {@link #MANIFEST} the first time this is called (not when the class
+	 * is loaded), which is a few kilobytes of text and works from a jar;
+	 * when there is no manifest (running out of the source tree) the XML
+	 * files are unmarshalled instead.  Neither the map nor its lists can
+	 * be modified.
+	 *
+	 * @return
+	 */
+	public static Map<String, List<TLESetLocation>> getAvailableLocations() {
+		return LocationsHolder.LOCATIONS;
+	}
+
+	/**
+	 * How long each group's cache file stays good.
+	 */
+	private static volatile TLECachePolicies cachePolicies =
+			TLECachePolicies.DEFAULT;
+
+	/**
+	 * Rough heap bytes per element set in a catalog, for bounding
+	 * {@link #PARSED_GROUPS}.
+	 */
+	private static final long TLE_WEIGHT = 200;
+
+	/**
+	 * Parsed group files, so each is parsed once per download.  Holds
+	 * immutable catalogs so they can be handed out as they are.  Bounded
+	 * to about 64MB.
+	 */
+	public static final ParsedFileCache<TLECatalog> PARSED_GROUPS =
+			new ParsedFileCache<>(64L * 1024 * 1024,
+					new ParsedFileCache.Weigher<TLECatalog>() {
+						@Override
+						public long weigh(final TLECatalog catalog) {
+							return 16 + catalog.size() * TLE_WEIGHT;
+						}
+					});
+
+	private static Map<String, List<TLESetLocation>> loadLocations() {
+		final InputStream is = CelestrackTLEs.class.getResourceAsStream(MANIFEST);
+		if (is != null) {
+			try (Reader reader = new InputStreamReader(is,
+					StandardCharsets.UTF_8)) {
+				return unmodifiable(readManifest(reader));
+			} catch (IOException e) {
+				log.error("Unable to read " + MANIFEST, e);
+			}
+		}
+		log.warn("No " + MANIFEST + ", reading the XML location files");
+		final LinkedHashMap<String, List<TLESetLocation>> ret = new LinkedHashMap<>();
 		try {
 			final URL url = CelestrackTLEs.class.getResource("/tles/");
 			final URI uri = url.toURI();
 			final Path path = Paths.get(uri);
-			final DirectoryStream<Path> ds = Files.newDirectoryStream(path, "*.xml");
-			final Iterator<Path> rator = ds.iterator();
-			while(rator.hasNext()){
-				final Path p = rator.next();
+			final List<Path> files = new ArrayList<>();
+			try (DirectoryStream<Path> ds = Files.newDirectoryStream(path,
+					"*.xml")) {
+				for (Path p : ds) {
+					files.add(p);
+				}
+			}
+			Collections.sort(files);
+			for (Path p : files) {
 				final TLESetList list = getListFromXMLLocation(p);
-				AVAILABLE_TLE_LOCATIONS.put(list.getName(), list.getLocationList());
+				if (list != null) {
+					ret.put(list.getName(), list.getLocationList());
+				}
 			}
 		} catch (IOException e) {
 			log.error(e);
 		} catch (URISyntaxException e) {
 			log.error(e);
+		} catch (RuntimeException e) {
+			log.error("Unable to list /tles/", e);
+		}
+		return unmodifiable(ret);
+	}
+
+	private static Map<String, List<TLESetLocation>> unmodifiable(
+			final LinkedHashMap<String, List<TLESetLocation>> groups) {
+		final LinkedHashMap<String, List<TLESetLocation>> ret =
+				new LinkedHashMap<>();
+		for (Map.Entry<String, List<TLESetLocation>> group : groups.entrySet()) {
+			ret.put(group.getKey(), Collections.unmodifiableList(
+					new ArrayList<>(group.getValue())));
 		}
+		return Collections.unmodifiableMap(ret);
+	}
+
+	/**
+	 * Reads a manifest as written by the tleManifest build task: a
+	 * "[group]" line starts each group, and each location after it is
+	 * one "name TAB url TAB description" line.  Blank lines and lines
+	 * starting with # are skipped.
+	 *
+	 * @param reader
+	 * @return the groups, in manifest order
+	 * @throws IOException
+	 */
+	public static LinkedHashMap<String, List<TLESetLocation>> readManifest(
+			final Reader reader) throws IOException {
+		final LinkedHashMap<String, List<TLESetLocation>> ret = new LinkedHashMap<>();
+		final BufferedReader in = new BufferedReader(reader);
+		List<TLESetLocation> group = null;
+		int lineNumber = 0;
+		String line;
+		while ((line = in.readLine()) != null) {
+			++lineNumber;
+			if (line.isEmpty() || line.charAt(0) == '#') {
+				continue;
+			}
+			if (line.charAt(0) == '[' && line.endsWith("]")) {
+				group = new ArrayList<>();
+				ret.put(line.substring(1, line.length() - 1), group);
+				continue;
+			}
+			final String[] fields = line.split("\t", -1);
+			if (group == null || fields.length != 3) {
+				throw new TLEException("Bad manifest line " + lineNumber
+						+ ": " + line);
+			}
+			group.add(new TLESetLocation(fields[0], fields[1], fields[2]));
+		}
+		return ret;
 	}
 	
 	/**
-	 * Updates the local caches for these files.
+	 * Updates the local caches for these files, several at a time, see
+	 * {@link TLECacheRefresher}.
+	 *
+	 * @return what happened to each file
+	 */
+	public static TLERefreshReport updateCache() {
+		return updateCache(new TLECacheRefresher(
+				TLECacheRefresher.DEFAULT_THREADS,
+				TLECacheRefresher.DEFAULT_PER_HOST_LIMIT, cachePolicies));
+	}
+
+	/**
+	 * @return how long each group's cache file stays good
 	 */
-	public static void updateCache() {
-		for (List<TLESetLocation> locations : AVAILABLE_TLE_LOCATIONS.values()) {
-			for(TLESetLocation tle: locations){
-				final HTTPCachedFile file = new HTTPCachedFile(tle.getName(),
-						tle.getHttpUrl());
-				if (file.cacheNeedsUpdate()) {
-					file.updateCache();
-					log.info("Updated cache for " + tle.getName());
+	public static TLECachePolicies getCachePolicies() {
+		return cachePolicies;
+	}
+
+	/**
+	 * Sets how long each group's cache file stays good, for
+	 * {@link #getTLEs(TLESetLocation)}, {@link #refresh(TLESetLocation,
+	 * TLECatalog)} and {@link #updateCache()}.  A refresher passed to
+	 * {@link #updateCache(TLECacheRefresher)} has its own.
+	 *
+	 * @param policies
+	 */
+	public static void setCachePolicies(final TLECachePolicies policies) {
+		if (policies == null) {
+			throw new IllegalArgumentException("No cache policies");
+		}
+		cachePolicies = policies;
+	}
+
+	/**
+	 * The cache file for location, under its policy.
+	 */
+	private static HTTPCachedFile cachedFile(final TLESetLocation location) {
+		return new HTTPCachedFile(location.getName(), location.getHttpUrl(),
+				cachePolicies.policyFor(location));
+	}
+
+	/**
+	 * Updates the local caches for these files with refresher's limits.
+	 *
+	 * @param refresher
+	 * @return what happened to each file
+	 */
+	public static TLERefreshReport updateCache(
+			final TLECacheRefresher refresher) {
+		final List<TLESetLocation> all = new ArrayList<>();
+		for (List<TLESetLocation> locations : getAvailableLocations()
+				.values()) {
+			all.addAll(locations);
+		}
+		return refresher.refresh(all);
+	}
+
+	/**
+	 * Returns one group's element sets, downloading them first only if
+	 * there is no cached copy (a stale copy is refreshed in the
+	 * background, see {@link HTTPCachedFile#fetch()}).  The TLEs are new
+	 * on every call, so callers may modify them.
+	 *
+	 * @param location
+	 * @return
+	 */
+	public static TLE[] getTLEs(final TLESetLocation location) {
+		final TLECatalog catalog = getCatalog(location);
+		final TLE[] tles = new TLE[catalog.size()];
+		for (int i = 0; i < tles.length; ++i) {
+			tles[i] = catalog.get(i);
+		}
+		return tles;
+	}
+
+	/**
+	 * Returns one group's element sets the same way as
+	 * {@link #getTLEs(TLESetLocation)}, but as the catalog held in
+	 * {@link #PARSED_GROUPS}, without copying anything.
+	 *
+	 * @param location
+	 * @return
+	 */
+	public static TLECatalog getCatalog(final TLESetLocation location) {
+		final HTTPCachedFile file = cachedFile(location);
+		try {
+			return PARSED_GROUPS.get(file, loader(location.getName()));
+		} catch (IOException e) {
+			throw new TLEException("Unable to read " + location.getName(), e);
+		}
+	}
+
+	/**
+	 * Parses a group file, logging and dropping records that don't parse.
+	 */
+	private static ParsedFileCache.Loader<TLECatalog> loader(
+			final String name) {
+		return new ParsedFileCache.Loader<TLECatalog>() {
+			@Override
+			public TLECatalog load(final Path path) {
+				final TLEParseReport report = new TLEParseReport();
+				final TLE[] tles = TLEFileParser.parse(path,
+						ForkJoinPool.commonPool(), report);
+				if (report.getRejected() > 0) {
+					log.warn("Skipped bad records in " + name + ": " + report);
+				}
+				return TLECatalog.of(tles);
+			}
+		};
+	}
+
+	/**
+	 * Brings the cache file for one group up to date and compares it with
+	 * the last parse of that group, so only the satellites that changed
+	 * need to be reprocessed.  The file is diffed even if the cache was
+	 * still fresh, since it may have been rewritten after previous was
+	 * built; a file that hasn't changed comes out of {@link #PARSED_GROUPS}
+	 * without being reparsed, and if previous is that same catalog there
+	 * is nothing to diff.  Records that don't parse are logged and
+	 * dropped.
+	 *
+	 * @param location
+	 * @param previous
+	 *            The group's catalog from the last refresh, null the first
+	 *            time
+	 * @return the changes, {@link TLECatalogDiff#getCurrent()} is the
+	 *         catalog to pass in next time
+	 */
+	public static TLECatalogDiff refresh(final TLESetLocation location,
+			final TLECatalog previous) {
+		final HTTPCachedFile file = cachedFile(location);
+		if (file.cacheNeedsUpdate()) {
+			file.updateCache();
+			log.info("Updated cache for " + location.getName());
+		}
+
+		final TLECatalog current;
+		try {
+			current = PARSED_GROUPS.get(file.getPathToCache(),
+					loader(location.getName()));
+		} catch (IOException e) {
+			throw new TLEException("Unable to read " + location.getName(), e);
+		}
+		if (current == previous) {
+			return TLECatalogDiff.unchanged(previous);
+		}
+		final TLECatalogDiff diff = TLECatalogDiff.of(previous, current);
+		log.info("Refreshed " + location.getName() + ": " + diff);
+		return diff;
+	}
+
+	/**
+	 * Parses every cached group file (or takes it from
+	 * {@link #PARSED_GROUPS}) into one catalog holding each element set
+	 * once, with the groups it appeared in.  Groups whose
+	 * cache file is missing are skipped, records that don't parse are
+	 * logged and dropped.
+	 *
+	 * @return
+	 */
+	public static TLEMergedCatalog loadMergedCatalog() {
+		final TLEMergedCatalog.Builder builder = new TLEMergedCatalog.Builder();
+		for (List<TLESetLocation> locations : getAvailableLocations()
+				.values()) {
+			for (TLESetLocation tle : locations) {
+				final Path path = cachedFile(tle).getPathToCache();
+				if (Files.notExists(path)) {
+					log.warn("No cached file for " + tle.getName());
+					continue;
+				}
+				try {
+					final TLECatalog catalog = PARSED_GROUPS.get(path,
+							loader(tle.getName()));
+					final TLESink group = builder.group(tle.getName());
+					final TLE scratch = new TLE();
+					for (int i = 0; i < catalog.size(); ++i) {
+						group.accept(catalog.get(i, scratch));
+					}
+				} catch (IOException e) {
+					log.warn("Unable to read " + tle.getName(), e);
 				}
 			}
 		}
+		return builder.build();
 	}
 
 	/**
@@ -101,12 +393,10 @@ public final class CelestrackTLEs {
 	 */
 	protected static TLESetList getListFromXMLLocation(
 			final Path xmlLocation) {
-		try {
-			InputStream is = Files.newInputStream(xmlLocation,
+		try (InputStream is = Files.newInputStream(xmlLocation,
 					StandardOpenOption.READ
-					);
-			JAXBContext ctx = JAXBContext.newInstance(TLESetList.class);
-			Unmarshaller unmarsh = ctx.createUnmarshaller();
+					)) {
+			Unmarshaller unmarsh = JAXBHolder.CONTEXT.createUnmarshaller();
 			TLESetList list = (TLESetList) unmarsh.unmarshal(is);
 			return list;
 
@@ -118,4 +408,25 @@ public final class CelestrackTLEs {
 		return null;
 	}
 
+	/**
+	 * Only loaded when the locations are first asked for.
+	 */
+	private static final class LocationsHolder {
+		static final Map<String, List<TLESetLocation>> LOCATIONS =
+				loadLocations();
+	}
+
+	/**
+	 * Only made if the XML files are actually read.
+	 */
+	private static final class JAXBHolder {
+		static final JAXBContext CONTEXT;
+		static {
+			try {
+				CONTEXT = JAXBContext.newInstance(TLESetList.class);
+			} catch (JAXBException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+	}
 }
@@ -0,0 +1,264 @@
+/*
+ * OMMCsvReader.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads OMM CSV, one message per row, as published by Celestrak
+ * (FORMAT=csv).  The first row names the columns; columns may come in any
+ * order and ones that aren't an {@link OMMField} are skipped.
+ *
+ * Rows are split inside a single byte buffer (see {@link ByteLineReader})
+ * and each value is decoded in place, the same as {@link TLEReader}, so
+ * the only allocations are names and designators the string pool hasn't
+ * seen.  Values may be quoted, with "" for a quote inside one.
+ *
+ * Instances are NOT thread safe.
+ *
+ * @author sean
+ */
+public final class OMMCsvReader extends OMMReader {
+
+	private final ByteLineReader lines;
+
+	/**
+	 * The current line, lineStart moves past a byte order mark.
+	 */
+	private byte[] buf;
+	private int lineStart;
+	private int lineLength;
+
+	/**
+	 * Field for each column, null for the ones that are skipped.
+	 */
+	private OMMField[] columns;
+
+	/**
+	 * For the rare quoted value holding a quote.
+	 */
+	private final StringBuilder unquoted = new StringBuilder();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param is
+	 */
+	public OMMCsvReader(final InputStream is) {
+		this(is, TLEReader.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param is
+	 * @param bufferSize
+	 *            Initial size of the line buffer, it grows if a line
+	 *            doesn't fit.
+	 */
+	public OMMCsvReader(final InputStream is, final int bufferSize) {
+		this.lines = new ByteLineReader(is, bufferSize);
+	}
+
+	/**
+	 * Returns the number of the last line read (1 based).
+	 *
+	 * @return
+	 */
+	public long getLineNumber() {
+		return lines.getLineNumber();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.smmsp.core.tle.OMMReader#next(com.smmsp.core.tle.TLE)
+	 */
+	@Override
+	public boolean next(final TLE out) throws TLEException {
+		if (columns == null && !header()) {
+			return false;
+		}
+		while (nextLine()) {
+			if (isBlank()) {
+				continue;
+			}
+			decoder.clear(out);
+			row(out);
+			decoder.finish();
+			return true;
+		}
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		lines.close();
+	}
+
+	/**
+	 * Reads the column names.
+	 *
+	 * @return False if the stream is empty
+	 * @throws TLEException
+	 */
+	private boolean header() throws TLEException {
+		do {
+			if (!nextLine()) {
+				return false;
+			}
+		} while (isBlank());
+
+		// a UTF-8 byte order mark.
+		if (lineLength >= 3 && (buf[lineStart] & 0xFF) == 0xEF
+				&& (buf[lineStart + 1] & 0xFF) == 0xBB
+				&& (buf[lineStart + 2] & 0xFF) == 0xBF) {
+			lineStart += 3;
+			lineLength -= 3;
+		}
+
+		OMMField[] fields = new OMMField[OMMField.values().length];
+		int count = 0;
+		final int end = lineStart + lineLength;
+		int start = lineStart;
+		while (start <= end) {
+			int stop = start;
+			while (stop < end && buf[stop] != ',') {
+				++stop;
+			}
+			String name = new String(buf, start, stop - start,
+					StandardCharsets.ISO_8859_1).trim();
+			if (name.length() >= 2 && name.charAt(0) == '"'
+					&& name.charAt(name.length() - 1) == '"') {
+				name = name.substring(1, name.length() - 1);
+			}
+			if (count == fields.length) {
+				fields = Arrays.copyOf(fields, count * 2);
+			}
+			fields[count++] = OMMField.forKeyword(name);
+			start = stop + 1;
+		}
+		columns = Arrays.copyOf(fields, count);
+		return true;
+	}
+
+	/**
+	 * Decodes each column of the current line.
+	 *
+	 * @param out
+	 * @throws TLEException
+	 */
+	private void row(final TLE out) throws TLEException {
+		final int end = lineStart + lineLength;
+		int start = lineStart;
+		for (int col = 0; col < columns.length && start <= end; ++col) {
+			final OMMField field = columns[col];
+			if (start < end && buf[start] == '"') {
+				start = quoted(out, field, start + 1, end);
+				continue;
+			}
+			int stop = start;
+			while (stop < end && buf[stop] != ',') {
+				++stop;
+			}
+			if (field != null) {
+				decoder.set(out, field, buf, start, stop - start);
+			}
+			start = stop + 1;
+		}
+	}
+
+	/**
+	 * Decodes a quoted value starting just after its opening quote.
+	 *
+	 * @return where the next value starts
+	 */
+	private int quoted(final TLE out, final OMMField field, final int start,
+			final int end) throws TLEException {
+		int stop = start;
+		boolean escaped = false;
+		while (true) {
+			if (stop >= end) {
+				throw new TLEException("Unterminated quote on line "
+						+ lines.getLineNumber());
+			}
+			if (buf[stop] == '"') {
+				if (stop + 1 < end && buf[stop + 1] == '"') {
+					escaped = true;
+					stop += 2;
+					continue;
+				}
+				break;
+			}
+			++stop;
+		}
+		if (field != null) {
+			if (escaped) {
+				unquoted.setLength(0);
+				for (int i = start; i < stop; ++i) {
+					unquoted.append((char) (buf[i] & 0xFF));
+					if (buf[i] == '"') {
+						++i;
+					}
+				}
+				decoder.set(out, field, unquoted);
+			} else {
+				decoder.set(out, field, buf, start, stop - start);
+			}
+		}
+		int next = stop + 1;
+		while (next < end && buf[next] != ',') {
+			++next;
+		}
+		return next + 1;
+	}
+
+	private boolean isBlank() {
+		for (int i = lineStart, end = lineStart + lineLength; i < end; ++i) {
+			if ((buf[i] & 0xFF) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Advances to the next line, setting lineStart and lineLength (without
+	 * the terminator).
+	 *
+	 * @return False at the end of the stream
+	 * @throws TLEException
+	 */
+	private boolean nextLine() throws TLEException {
+		if (!lines.next()) {
+			return false;
+		}
+		buf = lines.array();
+		lineStart = lines.getStart();
+		lineLength = lines.getLength();
+		return true;
+	}
+}
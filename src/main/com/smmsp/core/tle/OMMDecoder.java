@@ -0,0 +1,411 @@
+/*
+ * OMMDecoder.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import com.smmsp.core.Classification;
+import com.smmsp.time.GregorianDate;
+import com.smmsp.time.JulianDate;
+import com.smmsp.time.TimeConstants;
+
+/**
+ * Decodes OMM keyword values into a TLE, shared by the OMM readers.
+ * Values are decoded in place from chars or bytes; only names and
+ * designators that aren't already pooled allocate.
+ *
+ * OMM carries BSTAR and the second derivative of mean motion as plain
+ * values, while the TLE model holds them as read from the fixed column
+ * format (the five digit mantissa taken as an integer, see
+ * {@link TLEProcessor}) - five orders of magnitude larger.  Those two are
+ * shifted by 10^5 here so a TLE means the same whichever format it came
+ * from.
+ *
+ * Instances are NOT thread safe.
+ *
+ * @author sean
+ */
+final class OMMDecoder {
+
+	/**
+	 * Decimal exponent between an OMM value and the TLE model's value.
+	 */
+	private static final int IMPLIED_EXPONENT_SHIFT = 5;
+
+	private static final int SRC_CHARS = 0;
+	private static final int SRC_BYTES = 1;
+
+	private int kind;
+	private CharSequence chars;
+	private byte[] bytes;
+	private int offset;
+	private int length;
+
+	private final TLEStringPool pool = TLEStringPool.getDefault();
+	private final StringBuilder designator = new StringBuilder(8);
+
+	/**
+	 * Fields every message must have.
+	 */
+	private static final int REQUIRED = 1 << OMMField.NORAD_CAT_ID.ordinal()
+			| 1 << OMMField.EPOCH.ordinal()
+			| 1 << OMMField.MEAN_MOTION.ordinal();
+
+	/**
+	 * Bit per OMMField set since the last clear().
+	 */
+	private int seen;
+
+	private int lastEpochYear = Integer.MIN_VALUE;
+	private int lastEpochDay = Integer.MIN_VALUE;
+	private GregorianDate lastEpoch;
+
+	/**
+	 * Resets out before a new message is decoded into it.
+	 *
+	 * @param out
+	 */
+	void clear(final TLE out) {
+		seen = 0;
+		out.satelliteName = null;
+		out.satelliteNumber = 0;
+		out.classification = Classification.UNCLASSIFIED;
+		out.internationalDesignator = null;
+		out.epoch = null;
+		out.epochJulianDate = 0;
+		out.dotMeanMotion = 0;
+		out.dotDotMeanMotion = 0;
+		out.bstarDragTerm = 0;
+		out.elementSetNumber = 0;
+		out.inclinationDeg = 0;
+		out.raanDeg = 0;
+		out.eccentricity = 0;
+		out.argPerigeeDeg = 0;
+		out.meanAnomalyDeg = 0;
+		out.meanMotionRPD = 0;
+		out.revNumberAtEpoch = 0;
+	}
+
+	/**
+	 * Checks a whole message has been decoded.
+	 *
+	 * @throws TLEException
+	 *             if a required field was missing
+	 */
+	void finish() throws TLEException {
+		if ((seen & REQUIRED) != REQUIRED) {
+			for (OMMField field : OMMField.values()) {
+				if ((REQUIRED & ~seen & 1 << field.ordinal()) != 0) {
+					throw new TLEException("Error processing OMM: no "
+							+ field);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Decodes value into the matching field of out.
+	 *
+	 * @param out
+	 * @param field
+	 * @param value
+	 * @throws TLEException
+	 */
+	void set(final TLE out, final OMMField field, final CharSequence value)
+			throws TLEException {
+		kind = SRC_CHARS;
+		chars = value;
+		offset = 0;
+		length = value.length();
+		set(out, field);
+	}
+
+	/**
+	 * Decodes len bytes of buf at off into the matching field of out.
+	 *
+	 * @param out
+	 * @param field
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @throws TLEException
+	 */
+	void set(final TLE out, final OMMField field, final byte[] buf,
+			final int off, final int len) throws TLEException {
+		kind = SRC_BYTES;
+		bytes = buf;
+		offset = off;
+		length = len;
+		set(out, field);
+	}
+
+	private int at(final int idx) {
+		return kind == SRC_BYTES ? bytes[offset + idx] & 0xFF
+				: chars.charAt(offset + idx);
+	}
+
+	private void set(final TLE out, final OMMField field) {
+		// trim
+		while (length > 0 && at(0) <= ' ') {
+			++offset;
+			--length;
+		}
+		while (length > 0 && at(length - 1) <= ' ') {
+			--length;
+		}
+		if (length == 0) {
+			return;
+		}
+		seen |= 1 << field.ordinal();
+
+		switch (field) {
+		case OBJECT_NAME:
+			out.satelliteName = text();
+			break;
+		case OBJECT_ID:
+			out.internationalDesignator = designator();
+			break;
+		case EPOCH:
+			epoch(out);
+			break;
+		case MEAN_MOTION:
+			out.meanMotionRPD = number(field, 0);
+			break;
+		case ECCENTRICITY:
+			out.eccentricity = number(field, 0);
+			break;
+		case INCLINATION:
+			out.inclinationDeg = number(field, 0);
+			break;
+		case RA_OF_ASC_NODE:
+			out.raanDeg = number(field, 0);
+			break;
+		case ARG_OF_PERICENTER:
+			out.argPerigeeDeg = number(field, 0);
+			break;
+		case MEAN_ANOMALY:
+			out.meanAnomalyDeg = number(field, 0);
+			break;
+		case CLASSIFICATION_TYPE:
+			out.classification = Classification.fromChar((char) at(0));
+			break;
+		case NORAD_CAT_ID:
+			out.satelliteNumber = integer(field, 0, length);
+			break;
+		case ELEMENT_SET_NO:
+			out.elementSetNumber = integer(field, 0, length);
+			break;
+		case REV_AT_EPOCH:
+			out.revNumberAtEpoch = integer(field, 0, length);
+			break;
+		case BSTAR:
+			out.bstarDragTerm = number(field, IMPLIED_EXPONENT_SHIFT);
+			break;
+		case MEAN_MOTION_DOT:
+			out.dotMeanMotion = number(field, 0);
+			break;
+		case MEAN_MOTION_DDOT:
+			out.dotDotMeanMotion = number(field, IMPLIED_EXPONENT_SHIFT);
+			break;
+		default:
+			// EPHEMERIS_TYPE - always 0 and not kept by the model.
+			break;
+		}
+	}
+
+	private TLEException error(final OMMField field) {
+		final StringBuilder text = new StringBuilder(length);
+		for (int i = 0; i < length; ++i) {
+			text.append((char) at(i));
+		}
+		return new TLEException("Error processing OMM: bad " + field
+				+ " value '" + text + "'");
+	}
+
+	private String text() {
+		if (kind == SRC_BYTES) {
+			return pool.intern(bytes, offset, length);
+		}
+		return pool.intern(chars, offset, offset + length);
+	}
+
+	/**
+	 * OMM has the full designator ("1998-067A"), the TLE model has the
+	 * two digit year form ("98067A").
+	 */
+	private String designator() {
+		if (length < 6 || at(4) != '-') {
+			return text();
+		}
+		designator.setLength(0);
+		designator.append((char) at(2)).append((char) at(3));
+		for (int i = 5; i < length; ++i) {
+			designator.append((char) at(i));
+		}
+		return pool.intern(designator, 0, designator.length());
+	}
+
+	/**
+	 * A non negative decimal integer in [from, to).
+	 */
+	private int integer(final OMMField field, final int from, final int to) {
+		if (from >= to) {
+			throw error(field);
+		}
+		long value = 0;
+		for (int i = from; i < to; ++i) {
+			final int c = at(i);
+			if (c < '0' || c > '9') {
+				throw error(field);
+			}
+			value = value * 10 + (c - '0');
+			if (value > Integer.MAX_VALUE) {
+				throw error(field);
+			}
+		}
+		return (int) value;
+	}
+
+	/**
+	 * A signed decimal number with an optional exponent, scaled by
+	 * 10^shift.  Digits past the 18th are dropped.
+	 */
+	private double number(final OMMField field, final int shift) {
+		int i = 0;
+		boolean negative = false;
+		if (at(0) == '-' || at(0) == '+') {
+			negative = at(0) == '-';
+			++i;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean point = false;
+		for (; i < length; ++i) {
+			final int c = at(i);
+			if (c >= '0' && c <= '9') {
+				if (mantissa < 100000000000000000L) {
+					mantissa = mantissa * 10 + (c - '0');
+					if (point) {
+						--exponent;
+					}
+				} else if (!point) {
+					++exponent;
+				}
+				++digits;
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				break;
+			}
+		}
+		if (digits == 0) {
+			throw error(field);
+		}
+		if (i < length) {
+			final int c = at(i);
+			if (c != 'E' && c != 'e' || ++i >= length) {
+				throw error(field);
+			}
+			boolean negativeExponent = false;
+			if (at(i) == '-' || at(i) == '+') {
+				negativeExponent = at(i) == '-';
+				++i;
+			}
+			final int e = integer(field, i, length);
+			exponent += negativeExponent ? -e : e;
+		}
+		final double value = TLELineParser.scale(mantissa, exponent + shift);
+		return negative ? -value : value;
+	}
+
+	/**
+	 * ISO 8601 epoch, either YYYY-MM-DDThh:mm:ss.ffffff or
+	 * YYYY-DDDThh:mm:ss.ffffff, the time (and a trailing Z) optional.
+	 */
+	private void epoch(final TLE out) {
+		final OMMField field = OMMField.EPOCH;
+		if (length < 8 || at(4) != '-') {
+			throw error(field);
+		}
+		final int year = integer(field, 0, 4);
+		int end = length;
+		if (at(end - 1) == 'Z') {
+			--end;
+		}
+		int t = 5;
+		while (t < end && at(t) != 'T') {
+			++t;
+		}
+
+		final int dayOfYear;
+		if (t - 5 == 3) {
+			dayOfYear = integer(field, 5, 8);
+		} else if (t - 5 == 5 && at(7) == '-') {
+			final int month = integer(field, 5, 7);
+			final int day = integer(field, 8, 10);
+			final boolean leap = GregorianDate.isLeapYear(year);
+			if (month < 1 || month > 12 || day < 1
+					|| day > TimeConstants.getDaysInMonth(month, leap)) {
+				throw error(field);
+			}
+			int days = day;
+			for (int m = 1; m < month; ++m) {
+				days += TimeConstants.getDaysInMonth(m, leap);
+			}
+			dayOfYear = days;
+		} else {
+			throw error(field);
+		}
+		if (dayOfYear < 1 || dayOfYear > (GregorianDate.isLeapYear(year)
+				? TimeConstants.DAYS_IN_LEAP_YEAR
+				: TimeConstants.DAYS_IN_YEAR)) {
+			throw error(field);
+		}
+
+		double seconds = 0;
+		if (t < end) {
+			if (end - t < 9 || at(t + 3) != ':' || at(t + 6) != ':') {
+				throw error(field);
+			}
+			seconds = integer(field, t + 1, t + 3)
+					* TimeConstants.SECONDS_IN_HOUR
+					+ integer(field, t + 4, t + 6)
+					* TimeConstants.SECONDS_IN_MINUTE;
+			final int from = offset;
+			final int len = length;
+			offset += t + 7;
+			length = end - t - 7;
+			seconds += number(field, 0);
+			offset = from;
+			length = len;
+		}
+
+		out.epochJulianDate = JulianDate.julianDateOf(year, dayOfYear
+				+ seconds / TimeConstants.SECONDS_IN_DAY);
+		if (year != lastEpochYear || dayOfYear != lastEpochDay
+				|| lastEpoch == null) {
+			lastEpoch = GregorianDate.fromYearAndDay(year, dayOfYear);
+			lastEpochYear = year;
+			lastEpochDay = dayOfYear;
+		}
+		out.epoch = lastEpoch;
+	}
+}
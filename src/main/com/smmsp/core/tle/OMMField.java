@@ -0,0 +1,68 @@
+/*
+ * OMMField.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The CCSDS Orbit Mean-Elements Message keywords that map onto a
+ * {@link TLE}.  The names are the keywords themselves, as used for CSV
+ * column headers, XML element names and KVN keys.
+ *
+ * @author sean
+ */
+public enum OMMField {
+	OBJECT_NAME,
+	OBJECT_ID,
+	EPOCH,
+	MEAN_MOTION,
+	ECCENTRICITY,
+	INCLINATION,
+	RA_OF_ASC_NODE,
+	ARG_OF_PERICENTER,
+	MEAN_ANOMALY,
+	EPHEMERIS_TYPE,
+	CLASSIFICATION_TYPE,
+	NORAD_CAT_ID,
+	ELEMENT_SET_NO,
+	REV_AT_EPOCH,
+	BSTAR,
+	MEAN_MOTION_DOT,
+	MEAN_MOTION_DDOT;
+
+	private static final Map<String, OMMField> BY_NAME = new HashMap<>();
+	static {
+		for (OMMField field : values()) {
+			BY_NAME.put(field.name(), field);
+		}
+	}
+
+	/**
+	 * @param keyword
+	 * @return the field for keyword, or null for keywords the TLE model
+	 *         has no place for
+	 */
+	public static OMMField forKeyword(final String keyword) {
+		return BY_NAME.get(keyword.trim());
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * OMMKvnReader.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads OMM KVN, "KEYWORD = value [units]" lines as published by
+ * Celestrak with FORMAT=kvn.  Each CCSDS_OMM_VERS line starts a message;
+ * COMMENT lines, units and keywords that aren't an {@link OMMField} are
+ * skipped.
+ *
+ * Instances are NOT thread safe.
+ *
+ * @author sean
+ */
+public final class OMMKvnReader extends OMMReader {
+
+	private static final String VERSION = "CCSDS_OMM_VERS";
+	private static final String COMMENT = "COMMENT";
+
+	private final BufferedReader in;
+	private long lineNumber;
+
+	/**
+	 * The previous call stopped on the version line of this message.
+	 */
+	private boolean started;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param is
+	 */
+	public OMMKvnReader(final InputStream is) {
+		this.in = new BufferedReader(new InputStreamReader(is,
+				StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Returns the number of the last line read (1 based).
+	 *
+	 * @return
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.smmsp.core.tle.OMMReader#next(com.smmsp.core.tle.TLE)
+	 */
+	@Override
+	public boolean next(final TLE out) throws TLEException {
+		boolean inMessage = started;
+		started = false;
+		if (inMessage) {
+			decoder.clear(out);
+		}
+		String line;
+		while ((line = readLine()) != null) {
+			final int eq = line.indexOf('=');
+			if (eq < 0 || line.startsWith(COMMENT)) {
+				continue;
+			}
+			final String key = line.substring(0, eq).trim();
+			if (VERSION.equals(key)) {
+				if (inMessage) {
+					started = true;
+					decoder.finish();
+					return true;
+				}
+				decoder.clear(out);
+				inMessage = true;
+				continue;
+			}
+			final OMMField field = OMMField.forKeyword(key);
+			if (field == null) {
+				continue;
+			}
+			if (!inMessage) {
+				// a lone message without a version line.
+				decoder.clear(out);
+				inMessage = true;
+			}
+			int end = line.length();
+			final int units = line.indexOf('[', eq);
+			if (units > 0 && field != OMMField.OBJECT_NAME) {
+				end = units;
+			}
+			decoder.set(out, field, line.subSequence(eq + 1, end));
+		}
+		if (inMessage) {
+			decoder.finish();
+		}
+		return inMessage;
+	}
+
+	private String readLine() throws TLEException {
+		try {
+			final String line = in.readLine();
+			if (line != null) {
+				++lineNumber;
+			}
+			return line;
+		} catch (IOException e) {
+			throw new TLEException("Unable to get line", e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+}
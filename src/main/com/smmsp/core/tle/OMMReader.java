@@ -0,0 +1,120 @@
+/*
+ * OMMReader.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Streams CCSDS Orbit Mean-Elements Messages into TLEs one message at a
+ * time, the OMM counterpart of {@link TLEReader}.  One reader per
+ * encoding: {@link OMMCsvReader}, {@link OMMXmlReader} and
+ * {@link OMMKvnReader}.
+ *
+ * Only the keywords in {@link OMMField} are kept.  A message without a
+ * NORAD_CAT_ID, EPOCH or MEAN_MOTION, or with a value that doesn't parse,
+ * throws a {@link TLEException}.
+ *
+ * Instances are NOT thread safe.
+ *
+ * @author sean
+ */
+public abstract class OMMReader implements Iterator<TLE>, Closeable {
+
+	final OMMDecoder decoder = new OMMDecoder();
+
+	/**
+	 * Read ahead for the Iterator methods.
+	 */
+	private TLE pending;
+	private boolean done;
+
+	OMMReader() {
+		// only the readers in this package.
+	}
+
+	/**
+	 * Reads the next message into out.
+	 *
+	 * @param out
+	 *            The TLE to fill
+	 * @return False if the stream is exhausted
+	 * @throws TLEException
+	 *             On a malformed message or read error
+	 */
+	public abstract boolean next(final TLE out) throws TLEException;
+
+	/**
+	 * Feeds every remaining message to sink, reusing one TLE.
+	 *
+	 * @param sink
+	 * @return The number of messages read
+	 * @throws TLEException
+	 */
+	public int drainTo(final TLESink sink) throws TLEException {
+		final TLE tle = new TLE();
+		int count = 0;
+		while (next(tle)) {
+			sink.accept(tle);
+			++count;
+		}
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() throws TLEException {
+		if (pending == null && !done) {
+			final TLE tle = new TLE();
+			if (next(tle)) {
+				pending = tle;
+			} else {
+				done = true;
+			}
+		}
+		return pending != null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public TLE next() throws TLEException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final TLE tle = pending;
+		pending = null;
+		return tle;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#remove()
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,127 @@
+/*
+ * OMMXmlReader.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads OMM XML (an ndm document holding omm elements, as published by
+ * Celestrak with FORMAT=xml).  The document is pulled through StAX one
+ * event at a time, no tree is built, so memory use doesn't grow with the
+ * number of messages.
+ *
+ * Each omm element is one message; the keyword elements may be anywhere
+ * inside it (metadata, meanElements, tleParameters ...), elements that
+ * aren't an {@link OMMField} are skipped.  DTDs and external entities are
+ * not processed.
+ *
+ * Instances are NOT thread safe.
+ *
+ * @author sean
+ */
+public final class OMMXmlReader extends OMMReader {
+
+	private static final String MESSAGE = "omm";
+
+	private static final XMLInputFactory FACTORY;
+	static {
+		FACTORY = XMLInputFactory.newInstance();
+		FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+				Boolean.FALSE);
+	}
+
+	private final InputStream in;
+	private final XMLStreamReader xml;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param is
+	 * @throws TLEException
+	 *             if the document can't be started
+	 */
+	public OMMXmlReader(final InputStream is) throws TLEException {
+		this.in = is;
+		try {
+			this.xml = FACTORY.createXMLStreamReader(is);
+		} catch (XMLStreamException e) {
+			throw new TLEException("Unable to read OMM XML", e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.smmsp.core.tle.OMMReader#next(com.smmsp.core.tle.TLE)
+	 */
+	@Override
+	public boolean next(final TLE out) throws TLEException {
+		try {
+			boolean inMessage = false;
+			while (xml.hasNext()) {
+				final int event = xml.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					final String name = xml.getLocalName();
+					if (MESSAGE.equals(name)) {
+						decoder.clear(out);
+						inMessage = true;
+						continue;
+					}
+					final OMMField field = inMessage ? OMMField
+							.forKeyword(name) : null;
+					if (field != null) {
+						decoder.set(out, field, xml.getElementText());
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT
+						&& inMessage && MESSAGE.equals(xml.getLocalName())) {
+					decoder.finish();
+					return true;
+				}
+			}
+			if (inMessage) {
+				throw new TLEException("Unterminated OMM message");
+			}
+			return false;
+		} catch (XMLStreamException e) {
+			throw new TLEException("Unable to read OMM XML", e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			xml.close();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		} finally {
+			in.close();
+		}
+	}
+}
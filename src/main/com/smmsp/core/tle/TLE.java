@@ -59,6 +59,12 @@ public class TLE {
 	 */
 	public TimeInstant epoch;
 
+	/**
+	 * Returns the epoch of this TLE as a julian date, unlike epoch this
+	 * keeps the fraction of the day.
+	 */
+	public double epochJulianDate;
+
 	/**
 	 * Returns the first time derivative of the mean motion (divided by two).
 	 * Multiply this number by two to get the true first time derivative of the
@@ -160,6 +166,8 @@ public class TLE {
 		result = prime * result + (int) (temp ^ (temp >>> 32));
 		result = prime * result + elementSetNumber;
 		result = prime * result + ((epoch == null) ? 0 : epoch.hashCode());
+		temp = Double.doubleToLongBits(epochJulianDate);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
 		temp = Double.doubleToLongBits(inclinationDeg);
 		result = prime * result + (int) (temp ^ (temp >>> 32));
 		result = prime
@@ -227,6 +235,10 @@ public class TLE {
 		} else if (!epoch.equals(other.epoch)) {
 			return false;
 		}
+		if (Double.doubleToLongBits(epochJulianDate) != Double
+				.doubleToLongBits(other.epochJulianDate)) {
+			return false;
+		}
 		if (Double.doubleToLongBits(inclinationDeg) != Double
 				.doubleToLongBits(other.inclinationDeg)) {
 			return false;
@@ -283,6 +295,8 @@ public class TLE {
 		builder.append(internationalDesignator);
 		builder.append(", epoch=");
 		builder.append(epoch);
+		builder.append(", epochJulianDate=");
+		builder.append(epochJulianDate);
 		builder.append(", dotMeanMotion=");
 		builder.append(dotMeanMotion);
 		builder.append(", dotDotMeanMotion=");
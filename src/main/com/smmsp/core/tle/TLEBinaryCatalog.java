@@ -0,0 +1,440 @@
+/*
+ * TLEBinaryCatalog.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.smmsp.core.Classification;
+import com.smmsp.core.utils.FileUtils;
+import com.smmsp.time.GregorianDate;
+
+/**
+ * A catalog in a fixed width binary file, read through a memory mapping.
+ * Opening one costs a mmap call, element set i is decoded straight out
+ * of the page cache when it's asked for, and every process reading the
+ * same file shares the same pages.
+ *
+ * Layout (little endian):
+ * <pre>
+ * header   magic "TLEB", version, record count, string table offset
+ * records  count * RECORD_SIZE bytes, doubles first so they stay aligned
+ *            epoch (julian date), dot, dotdot, bstar, inclination, raan,
+ *            eccentricity, argument of perigee, mean anomaly, mean motion
+ *            satellite number, element set number, rev number,
+ *            name, designator (string table offsets, -1 for null),
+ *            classification (ordinal)
+ * strings  length prefixed (unsigned short) UTF-8, each string once
+ * </pre>
+ *
+ * @author sean
+ */
+public final class TLEBinaryCatalog {
+
+	/**
+	 * "TLEB"
+	 */
+	private static final int MAGIC = 0x424C4554;
+
+	private static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 16;
+
+	static final int RECORD_SIZE = 10 * 8 + 6 * 4;
+
+	private static final int EPOCH = 0;
+	private static final int DOT = 8;
+	private static final int DOT_DOT = 16;
+	private static final int BSTAR = 24;
+	private static final int INCLINATION = 32;
+	private static final int RAAN = 40;
+	private static final int ECCENTRICITY = 48;
+	private static final int ARG_PERIGEE = 56;
+	private static final int MEAN_ANOMALY = 64;
+	private static final int MEAN_MOTION = 72;
+	private static final int SATELLITE_NUMBER = 80;
+	private static final int ELEMENT_SET_NUMBER = 84;
+	private static final int REV_NUMBER = 88;
+	private static final int NAME = 92;
+	private static final int DESIGNATOR = 96;
+	private static final int CLASSIFICATION = 100;
+
+	private static final Classification[] CLASSIFICATIONS =
+			Classification.values();
+
+	private final ByteBuffer buffer;
+	private final int size;
+	private final int strings;
+
+	private TLEBinaryCatalog(final ByteBuffer buffer, final int size,
+			final int strings) {
+		this.buffer = buffer;
+		this.size = size;
+		this.strings = strings;
+	}
+
+	/**
+	 * Maps a catalog written by {@link #write(Path, TLECatalog)}.
+	 *
+	 * @param file
+	 * @return
+	 * @throws TLEException
+	 *             if the file can't be mapped or isn't a binary catalog
+	 */
+	public static TLEBinaryCatalog open(final Path file) throws TLEException {
+		final ByteBuffer buffer = TLEFileParser.map(file)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		return wrap(buffer, file.toString());
+	}
+
+	/**
+	 * Reads a catalog out of a buffer holding the binary format.
+	 *
+	 * @param buffer
+	 * @return
+	 * @throws TLEException
+	 */
+	public static TLEBinaryCatalog wrap(final ByteBuffer buffer)
+			throws TLEException {
+		return wrap(buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN),
+				"buffer");
+	}
+
+	private static TLEBinaryCatalog wrap(final ByteBuffer buffer,
+			final String source) throws TLEException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new TLEException("Not a binary TLE catalog: " + source);
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new TLEException("Unsupported binary TLE catalog version "
+					+ buffer.getInt(4) + ": " + source);
+		}
+		final int size = buffer.getInt(8);
+		final int strings = buffer.getInt(12);
+		if (size < 0 || strings < HEADER_SIZE
+				|| (long) HEADER_SIZE + (long) size * RECORD_SIZE > strings
+				|| strings > buffer.limit()) {
+			throw new TLEException("Truncated binary TLE catalog: " + source);
+		}
+		return new TLEBinaryCatalog(buffer, size, strings);
+	}
+
+	/**
+	 * Writes the catalog to file, replacing anything already there.  The
+	 * new catalog is written to a temporary file beside it and moved over
+	 * it, so anyone with the old one mapped keeps reading the old one.
+	 *
+	 * @param file
+	 * @param catalog
+	 * @throws TLEException
+	 */
+	public static void write(final Path file, final TLECatalog catalog)
+			throws TLEException {
+		final ByteBuffer out = encode(catalog);
+		Path tmp = null;
+		try {
+			tmp = FileUtils.createSiblingTemp(file);
+			try (FileChannel chan = FileChannel.open(tmp,
+					StandardOpenOption.WRITE)) {
+				while (out.hasRemaining()) {
+					chan.write(out);
+				}
+				chan.force(true);
+			}
+			FileUtils.replace(tmp, file);
+		} catch (IOException e) {
+			throw new TLEException("Unable to write " + file, e);
+		} finally {
+			if (tmp != null) {
+				try {
+					Files.deleteIfExists(tmp);
+				} catch (IOException e) {
+					// leave it, it's only a temporary file.
+				}
+			}
+		}
+	}
+
+	/**
+	 * Encodes the catalog in the binary format.
+	 *
+	 * @param catalog
+	 * @return a buffer positioned at 0 with the limit at the end of the data
+	 */
+	public static ByteBuffer encode(final TLECatalog catalog) {
+		final int n = catalog.size();
+		final Map<String, Integer> offsets = new HashMap<>();
+		final int[] names = new int[n];
+		final int[] designators = new int[n];
+		int strings = 0;
+		for (int i = 0; i < n; ++i) {
+			names[i] = intern(offsets, catalog.satelliteName[i], strings);
+			if (names[i] == strings) {
+				strings += stringSize(catalog.satelliteName[i]);
+			}
+			designators[i] = intern(offsets,
+					catalog.internationalDesignator[i], strings);
+			if (designators[i] == strings) {
+				strings += stringSize(catalog.internationalDesignator[i]);
+			}
+		}
+
+		final int table = HEADER_SIZE + n * RECORD_SIZE;
+		final ByteBuffer out = ByteBuffer.allocate(table + strings)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		out.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(table);
+		for (int i = 0; i < n; ++i) {
+			out.putDouble(catalog.epochJulianDate[i]);
+			out.putDouble(catalog.dotMeanMotion[i]);
+			out.putDouble(catalog.dotDotMeanMotion[i]);
+			out.putDouble(catalog.bstarDragTerm[i]);
+			out.putDouble(catalog.inclinationDeg[i]);
+			out.putDouble(catalog.raanDeg[i]);
+			out.putDouble(catalog.eccentricity[i]);
+			out.putDouble(catalog.argPerigeeDeg[i]);
+			out.putDouble(catalog.meanAnomalyDeg[i]);
+			out.putDouble(catalog.meanMotionRPD[i]);
+			out.putInt(catalog.satelliteNumber[i]);
+			out.putInt(catalog.elementSetNumber[i]);
+			out.putInt(catalog.revNumberAtEpoch[i]);
+			out.putInt(names[i]);
+			out.putInt(designators[i]);
+			out.putInt(catalog.classification[i]);
+		}
+		// offsets were handed out in first use order, so is the table.
+		int next = 0;
+		for (int i = 0; i < n; ++i) {
+			if (names[i] == next) {
+				next += putString(out, catalog.satelliteName[i]);
+			}
+			if (designators[i] == next) {
+				next += putString(out, catalog.internationalDesignator[i]);
+			}
+		}
+		out.flip();
+		return out;
+	}
+
+	/**
+	 * Returns the table offset of s, giving it next if it hasn't got one.
+	 */
+	private static int intern(final Map<String, Integer> offsets,
+			final String s, final int next) {
+		if (s == null) {
+			return -1;
+		}
+		final Integer offset = offsets.get(s);
+		if (offset != null) {
+			return offset;
+		}
+		offsets.put(s, next);
+		return next;
+	}
+
+	private static int stringSize(final String s) {
+		final int len = s.getBytes(StandardCharsets.UTF_8).length;
+		if (len > 0xFFFF) {
+			throw new TLEException("String too long for a binary catalog: "
+					+ s.substring(0, 24) + "...");
+		}
+		return 2 + len;
+	}
+
+	private static int putString(final ByteBuffer out, final String s) {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.putShort((short) bytes.length);
+		out.put(bytes);
+		return 2 + bytes.length;
+	}
+
+	/**
+	 * @return the number of element sets in this catalog
+	 */
+	public int size() {
+		return size;
+	}
+
+	private int record(final int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+					+ size);
+		}
+		return HEADER_SIZE + i * RECORD_SIZE;
+	}
+
+	private String string(final int offset) {
+		if (offset < 0) {
+			return null;
+		}
+		final int at = strings + offset;
+		final int len = buffer.getShort(at) & 0xFFFF;
+		boolean ascii = true;
+		for (int i = 0; i < len && ascii; ++i) {
+			ascii = buffer.get(at + 2 + i) >= 0;
+		}
+		if (ascii) {
+			return TLEStringPool.getDefault().intern(buffer, at + 2, len);
+		}
+		final byte[] bytes = new byte[len];
+		for (int i = 0; i < len; ++i) {
+			bytes[i] = buffer.get(at + 2 + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public String getSatelliteName(final int i) {
+		return string(buffer.getInt(record(i) + NAME));
+	}
+
+	public int getSatelliteNumber(final int i) {
+		return buffer.getInt(record(i) + SATELLITE_NUMBER);
+	}
+
+	public Classification getClassification(final int i) {
+		return CLASSIFICATIONS[buffer.getInt(record(i) + CLASSIFICATION)];
+	}
+
+	public String getInternationalDesignator(final int i) {
+		return string(buffer.getInt(record(i) + DESIGNATOR));
+	}
+
+	public double getEpochJulianDate(final int i) {
+		return buffer.getDouble(record(i) + EPOCH);
+	}
+
+	public double getDotMeanMotion(final int i) {
+		return buffer.getDouble(record(i) + DOT);
+	}
+
+	public double getDotDotMeanMotion(final int i) {
+		return buffer.getDouble(record(i) + DOT_DOT);
+	}
+
+	public double getBstarDragTerm(final int i) {
+		return buffer.getDouble(record(i) + BSTAR);
+	}
+
+	public int getElementSetNumber(final int i) {
+		return buffer.getInt(record(i) + ELEMENT_SET_NUMBER);
+	}
+
+	public double getInclinationDeg(final int i) {
+		return buffer.getDouble(record(i) + INCLINATION);
+	}
+
+	public double getRaanDeg(final int i) {
+		return buffer.getDouble(record(i) + RAAN);
+	}
+
+	public double getEccentricity(final int i) {
+		return buffer.getDouble(record(i) + ECCENTRICITY);
+	}
+
+	public double getArgPerigeeDeg(final int i) {
+		return buffer.getDouble(record(i) + ARG_PERIGEE);
+	}
+
+	public double getMeanAnomalyDeg(final int i) {
+		return buffer.getDouble(record(i) + MEAN_ANOMALY);
+	}
+
+	public double getMeanMotionRPD(final int i) {
+		return buffer.getDouble(record(i) + MEAN_MOTION);
+	}
+
+	public int getRevNumberAtEpoch(final int i) {
+		return buffer.getInt(record(i) + REV_NUMBER);
+	}
+
+	/**
+	 * Decodes element set i into out.
+	 *
+	 * @param i
+	 * @param out
+	 * @return out
+	 */
+	public TLE get(final int i, final TLE out) {
+		final int at = record(i);
+		out.satelliteName = string(buffer.getInt(at + NAME));
+		out.satelliteNumber = buffer.getInt(at + SATELLITE_NUMBER);
+		out.classification = CLASSIFICATIONS[buffer.getInt(at + CLASSIFICATION)];
+		out.internationalDesignator = string(buffer.getInt(at + DESIGNATOR));
+		out.epochJulianDate = buffer.getDouble(at + EPOCH);
+		out.epoch = GregorianDate.fromJulianDate(out.epochJulianDate);
+		out.dotMeanMotion = buffer.getDouble(at + DOT);
+		out.dotDotMeanMotion = buffer.getDouble(at + DOT_DOT);
+		out.bstarDragTerm = buffer.getDouble(at + BSTAR);
+		out.elementSetNumber = buffer.getInt(at + ELEMENT_SET_NUMBER);
+		out.inclinationDeg = buffer.getDouble(at + INCLINATION);
+		out.raanDeg = buffer.getDouble(at + RAAN);
+		out.eccentricity = buffer.getDouble(at + ECCENTRICITY);
+		out.argPerigeeDeg = buffer.getDouble(at + ARG_PERIGEE);
+		out.meanAnomalyDeg = buffer.getDouble(at + MEAN_ANOMALY);
+		out.meanMotionRPD = buffer.getDouble(at + MEAN_MOTION);
+		out.revNumberAtEpoch = buffer.getInt(at + REV_NUMBER);
+		return out;
+	}
+
+	/**
+	 * Returns element set i as a new TLE.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public TLE get(final int i) {
+		return get(i, new TLE());
+	}
+
+	/**
+	 * Copies the whole file onto the heap as a columnar catalog.
+	 *
+	 * @return
+	 */
+	public TLECatalog toCatalog() {
+		final TLECatalog.Builder builder = new TLECatalog.Builder(size);
+		final TLE tle = new TLE();
+		for (int i = 0; i < size; ++i) {
+			builder.accept(get(i, tle));
+		}
+		return builder.build();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLEBinaryCatalog [size=");
+		builder.append(size);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,345 @@
+/*
+ * TLECacheRefresher.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+import com.smmsp.core.net.Cachable;
+import com.smmsp.core.net.HTTPCachedFile;
+
+/**
+ * Refreshes the cache files for a set of element set locations
+ * concurrently, so a refresh takes about as long as the slowest file
+ * rather than the sum of all of them.
+ *
+ * Files are fetched on virtual threads where the JVM has them and a
+ * bounded pool of threads otherwise, no more than a set number at a time
+ * overall and from any one host.
+ * Every file gets a {@link TLERefreshReport.FileResult}; one failing
+ * doesn't stop the others.
+ *
+ * @author sean
+ */
+public class TLECacheRefresher {
+
+	private static final Logger log = Logger.getLogger(TLECacheRefresher.class);
+
+	/**
+	 * Default number of downloads in flight, enough for every bundled
+	 * group at once.  The files are small so a download is mostly waiting
+	 * on the server, not using the thread.
+	 */
+	public static final int DEFAULT_THREADS = 128;
+
+	/**
+	 * Default number of downloads in flight per host.  Every bundled group
+	 * is on celestrak.com, which shouldn't see dozens of connections from
+	 * one client at once; with this cap a full refresh takes about
+	 * (files / cap) times the slowest file, still far short of the sum.
+	 * Use {@link #TLECacheRefresher(int, int)} for a provider that allows
+	 * more.
+	 */
+	public static final int DEFAULT_PER_HOST_LIMIT = 6;
+
+	/**
+	 * Executors.newVirtualThreadPerTaskExecutor(), null before Java 21.
+	 */
+	private static final Method VIRTUAL_THREADS = virtualThreads();
+
+	private final int threads;
+	private final int perHostLimit;
+	private final TLECachePolicies policies;
+
+	/**
+	 * Bounds the downloads in flight whatever executor runs them.
+	 */
+	private final Semaphore slots;
+
+	private final ConcurrentMap<String, Semaphore> hosts =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * Constructor, with the default limits.
+	 */
+	public TLECacheRefresher() {
+		this(DEFAULT_THREADS, DEFAULT_PER_HOST_LIMIT);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threads
+	 *            Most downloads in flight
+	 * @param perHostLimit
+	 *            Most downloads in flight from one host
+	 */
+	public TLECacheRefresher(final int threads, final int perHostLimit) {
+		this(threads, perHostLimit, TLECachePolicies.DEFAULT);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threads
+	 *            Most downloads in flight
+	 * @param perHostLimit
+	 *            Most downloads in flight from one host
+	 * @param policies
+	 *            How long each location's cache file stays good
+	 */
+	public TLECacheRefresher(final int threads, final int perHostLimit,
+			final TLECachePolicies policies) {
+		if (threads < 1 || perHostLimit < 1) {
+			throw new IllegalArgumentException("Limits must be positive");
+		}
+		if (policies == null) {
+			throw new IllegalArgumentException("No cache policies");
+		}
+		this.policies = policies;
+		this.threads = threads;
+		this.perHostLimit = perHostLimit;
+		this.slots = new Semaphore(threads);
+	}
+
+	private static Method virtualThreads() {
+		try {
+			return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Refreshes every location on an executor of this refresher's own
+	 * (virtual threads if there are any), which is shut down before this
+	 * returns.
+	 *
+	 * @param locations
+	 * @return
+	 */
+	public TLERefreshReport refresh(final Collection<TLESetLocation> locations) {
+		final ExecutorService executor = newExecutor(locations.size());
+		try {
+			return refresh(locations, executor);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * A virtual thread per task where the JVM supports them, otherwise
+	 * enough daemon threads for count downloads within the limit.
+	 */
+	private ExecutorService newExecutor(final int count) {
+		if (VIRTUAL_THREADS != null) {
+			try {
+				return (ExecutorService) VIRTUAL_THREADS.invoke(null);
+			} catch (IllegalAccessException | InvocationTargetException e) {
+				log.warn("Unable to start virtual threads", e);
+			}
+		}
+		return Executors.newFixedThreadPool(Math.max(1,
+				Math.min(threads, count)),
+				new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(final Runnable r) {
+						final Thread t = new Thread(r, "tle-refresh-"
+								+ count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Refreshes every location on executor, waiting for all of them.  The
+	 * overall and per host limits still apply.
+	 *
+	 * @param locations
+	 * @param executor
+	 * @return
+	 */
+	public TLERefreshReport refresh(final Collection<TLESetLocation> locations,
+			final ExecutorService executor) {
+		final long start = System.nanoTime();
+		final List<Future<TLERefreshReport.FileResult>> futures =
+				new ArrayList<>(locations.size());
+		for (final TLESetLocation location : locations) {
+			futures.add(executor.submit(
+					new Callable<TLERefreshReport.FileResult>() {
+						@Override
+						public TLERefreshReport.FileResult call() {
+							return refreshOne(location);
+						}
+					}));
+		}
+
+		final List<TLERefreshReport.FileResult> results =
+				new ArrayList<>(futures.size());
+		boolean interrupted = false;
+		int i = 0;
+		for (TLESetLocation location : locations) {
+			final Future<TLERefreshReport.FileResult> future = futures.get(i++);
+			TLERefreshReport.FileResult result;
+			while (true) {
+				try {
+					result = future.get();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				} catch (ExecutionException e) {
+					result = new TLERefreshReport.FileResult(location,
+							TLERefreshReport.Status.FAILED, 0, e.getCause());
+					break;
+				}
+			}
+			results.add(result);
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		final TLERefreshReport report = new TLERefreshReport(results,
+				(System.nanoTime() - start) / 1000000);
+		log.info("Refreshed TLE caches: " + report);
+		return report;
+	}
+
+	private TLERefreshReport.FileResult refreshOne(
+			final TLESetLocation location) {
+		final long start = System.nanoTime();
+		final Semaphore permits = host(location.getHttpUrl());
+		TLERefreshReport.Status status;
+		Throwable error = null;
+		try {
+			slots.acquire();
+			try {
+				permits.acquire();
+				try {
+					status = refresh(location) ? TLERefreshReport.Status.UPDATED
+							: TLERefreshReport.Status.FRESH;
+				} finally {
+					permits.release();
+				}
+			} finally {
+				slots.release();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			status = TLERefreshReport.Status.FAILED;
+			error = e;
+		} catch (RuntimeException e) {
+			log.error("Unable to refresh " + location.getName(), e);
+			status = TLERefreshReport.Status.FAILED;
+			error = e;
+		}
+		return new TLERefreshReport.FileResult(location, status,
+				(System.nanoTime() - start) / 1000000, error);
+	}
+
+	/**
+	 * Brings one location's cache file up to date.
+	 *
+	 * @param location
+	 * @return true if it was downloaded, false if the cache was fresh or
+	 *         the server said it hadn't changed
+	 */
+	protected boolean refresh(final TLESetLocation location) {
+		final HTTPCachedFile file = new HTTPCachedFile(location.getName(),
+				location.getHttpUrl(), policies.policyFor(location));
+		if (!file.cacheNeedsUpdate()) {
+			return false;
+		}
+		file.updateCache();
+		final int code = file.getLastResponseCode();
+		if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			return false;
+		}
+		if (code != HttpURLConnection.HTTP_OK) {
+			throw new Cachable.CacheException("HTTP " + code + " for "
+					+ location.getHttpUrl());
+		}
+		log.info("Updated cache for " + location.getName());
+		return true;
+	}
+
+	/**
+	 * The permits for url's host.
+	 */
+	private Semaphore host(final String url) {
+		String host;
+		try {
+			host = new URI(url).getHost();
+		} catch (URISyntaxException e) {
+			host = null;
+		}
+		if (host == null) {
+			host = url;
+		}
+		Semaphore permits = hosts.get(host);
+		if (permits == null) {
+			final Semaphore created = new Semaphore(perHostLimit);
+			permits = hosts.putIfAbsent(host, created);
+			if (permits == null) {
+				permits = created;
+			}
+		}
+		return permits;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLECacheRefresher [threads=");
+		builder.append(threads);
+		builder.append(", perHostLimit=");
+		builder.append(perHostLimit);
+		builder.append(", policies=");
+		builder.append(policies);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,500 @@
+/*
+ * TLECatalog.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.Arrays;
+
+import com.smmsp.core.Classification;
+import com.smmsp.time.GregorianDate;
+
+/**
+ * A catalog of element sets stored column by column: one primitive
+ * array per TLE field instead of one object per element set.  Loops
+ * over a single field (screening, propagation set up) walk contiguous
+ * memory instead of chasing a pointer per TLE.
+ *
+ * The epoch is kept as a julian date (see {@link TLE#epochJulianDate}).
+ * Catalogs are built with a {@link Builder}, which is a {@link TLESink}
+ * so it can be filled straight from the streaming parser, and are not
+ * modified after that.
+ *
+ * Derived quantities (semi-major axis, period, apogee and perigee) are
+ * columns too, computed for the whole catalog the first time one is
+ * read, so screening loops cost an array read per element set.
+ *
+ * @author sean
+ */
+public final class TLECatalog {
+
+	private static final Classification[] CLASSIFICATIONS =
+			Classification.values();
+
+	private final int size;
+
+	final String[] satelliteName;
+	final int[] satelliteNumber;
+	final byte[] classification;
+	final String[] internationalDesignator;
+	final double[] epochJulianDate;
+	final double[] dotMeanMotion;
+	final double[] dotDotMeanMotion;
+	final double[] bstarDragTerm;
+	final int[] elementSetNumber;
+	final double[] inclinationDeg;
+	final double[] raanDeg;
+	final double[] eccentricity;
+	final double[] argPerigeeDeg;
+	final double[] meanAnomalyDeg;
+	final double[] meanMotionRPD;
+	final int[] revNumberAtEpoch;
+
+	/**
+	 * Derived columns, worked out on first use.
+	 */
+	private volatile Derived derived;
+
+	/**
+	 * Takes ownership of (trimmed copies of) the builder's columns.
+	 *
+	 * @param b
+	 */
+	private TLECatalog(final Builder b) {
+		size = b.size;
+		satelliteName = Arrays.copyOf(b.satelliteName, size);
+		satelliteNumber = Arrays.copyOf(b.satelliteNumber, size);
+		classification = Arrays.copyOf(b.classification, size);
+		internationalDesignator = Arrays.copyOf(b.internationalDesignator,
+				size);
+		epochJulianDate = Arrays.copyOf(b.epochJulianDate, size);
+		dotMeanMotion = Arrays.copyOf(b.dotMeanMotion, size);
+		dotDotMeanMotion = Arrays.copyOf(b.dotDotMeanMotion, size);
+		bstarDragTerm = Arrays.copyOf(b.bstarDragTerm, size);
+		elementSetNumber = Arrays.copyOf(b.elementSetNumber, size);
+		inclinationDeg = Arrays.copyOf(b.inclinationDeg, size);
+		raanDeg = Arrays.copyOf(b.raanDeg, size);
+		eccentricity = Arrays.copyOf(b.eccentricity, size);
+		argPerigeeDeg = Arrays.copyOf(b.argPerigeeDeg, size);
+		meanAnomalyDeg = Arrays.copyOf(b.meanAnomalyDeg, size);
+		meanMotionRPD = Arrays.copyOf(b.meanMotionRPD, size);
+		revNumberAtEpoch = Arrays.copyOf(b.revNumberAtEpoch, size);
+	}
+
+	/**
+	 * Builds a catalog from already parsed TLEs.
+	 *
+	 * @param tles
+	 * @return
+	 */
+	public static TLECatalog of(final TLE... tles) {
+		final Builder b = new Builder(tles.length);
+		for (TLE tle : tles) {
+			b.accept(tle);
+		}
+		return b.build();
+	}
+
+	/**
+	 * @return the number of element sets in this catalog
+	 */
+	public int size() {
+		return size;
+	}
+
+	public String getSatelliteName(final int i) {
+		return satelliteName[i];
+	}
+
+	public int getSatelliteNumber(final int i) {
+		return satelliteNumber[i];
+	}
+
+	public Classification getClassification(final int i) {
+		return CLASSIFICATIONS[classification[i]];
+	}
+
+	public String getInternationalDesignator(final int i) {
+		return internationalDesignator[i];
+	}
+
+	public double getEpochJulianDate(final int i) {
+		return epochJulianDate[i];
+	}
+
+	public double getDotMeanMotion(final int i) {
+		return dotMeanMotion[i];
+	}
+
+	public double getDotDotMeanMotion(final int i) {
+		return dotDotMeanMotion[i];
+	}
+
+	public double getBstarDragTerm(final int i) {
+		return bstarDragTerm[i];
+	}
+
+	public int getElementSetNumber(final int i) {
+		return elementSetNumber[i];
+	}
+
+	public double getInclinationDeg(final int i) {
+		return inclinationDeg[i];
+	}
+
+	public double getRaanDeg(final int i) {
+		return raanDeg[i];
+	}
+
+	public double getEccentricity(final int i) {
+		return eccentricity[i];
+	}
+
+	public double getArgPerigeeDeg(final int i) {
+		return argPerigeeDeg[i];
+	}
+
+	public double getMeanAnomalyDeg(final int i) {
+		return meanAnomalyDeg[i];
+	}
+
+	public double getMeanMotionRPD(final int i) {
+		return meanMotionRPD[i];
+	}
+
+	public int getRevNumberAtEpoch(final int i) {
+		return revNumberAtEpoch[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the semi-major axis (km), see {@link TLEDerivedElements}
+	 */
+	public double getSemiMajorAxisKm(final int i) {
+		return derived().semiMajorAxisKm[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the orbital period (minutes)
+	 */
+	public double getPeriodMinutes(final int i) {
+		return derived().periodMinutes[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the apogee height above the equatorial radius (km)
+	 */
+	public double getApogeeAltitudeKm(final int i) {
+		return derived().apogeeAltitudeKm[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the perigee height above the equatorial radius (km)
+	 */
+	public double getPerigeeAltitudeKm(final int i) {
+		return derived().perigeeAltitudeKm[i];
+	}
+
+	/**
+	 * Works the derived columns out the first time one is asked for.  Two
+	 * threads may both do it, they get the same values so it doesn't
+	 * matter which one is kept.
+	 */
+	private Derived derived() {
+		Derived d = derived;
+		if (d == null) {
+			d = new Derived(this);
+			derived = d;
+		}
+		return d;
+	}
+
+	/**
+	 * Copies element set i into out.
+	 *
+	 * @param i
+	 * @param out
+	 * @return out
+	 */
+	public TLE get(final int i, final TLE out) {
+		return copy(i, out, satelliteName, satelliteNumber,
+				classification, internationalDesignator, epochJulianDate,
+				dotMeanMotion, dotDotMeanMotion, bstarDragTerm,
+				elementSetNumber, inclinationDeg, raanDeg, eccentricity,
+				argPerigeeDeg, meanAnomalyDeg, meanMotionRPD, revNumberAtEpoch);
+	}
+
+	/**
+	 * Copies row i of the columns into out.  Shared by the catalog and
+	 * its builder, so a new column only has to be added here.
+	 */
+	private static TLE copy(final int i, final TLE out, final String[] satelliteName,
+			final int[] satelliteNumber, final byte[] classification,
+			final String[] internationalDesignator,
+			final double[] epochJulianDate, final double[] dotMeanMotion,
+			final double[] dotDotMeanMotion, final double[] bstarDragTerm,
+			final int[] elementSetNumber, final double[] inclinationDeg,
+			final double[] raanDeg, final double[] eccentricity,
+			final double[] argPerigeeDeg, final double[] meanAnomalyDeg,
+			final double[] meanMotionRPD, final int[] revNumberAtEpoch) {
+		out.satelliteName = satelliteName[i];
+		out.satelliteNumber = satelliteNumber[i];
+		out.classification = CLASSIFICATIONS[classification[i]];
+		out.internationalDesignator = internationalDesignator[i];
+		out.epochJulianDate = epochJulianDate[i];
+		out.epoch = GregorianDate.fromJulianDate(epochJulianDate[i]);
+		out.dotMeanMotion = dotMeanMotion[i];
+		out.dotDotMeanMotion = dotDotMeanMotion[i];
+		out.bstarDragTerm = bstarDragTerm[i];
+		out.elementSetNumber = elementSetNumber[i];
+		out.inclinationDeg = inclinationDeg[i];
+		out.raanDeg = raanDeg[i];
+		out.eccentricity = eccentricity[i];
+		out.argPerigeeDeg = argPerigeeDeg[i];
+		out.meanAnomalyDeg = meanAnomalyDeg[i];
+		out.meanMotionRPD = meanMotionRPD[i];
+		out.revNumberAtEpoch = revNumberAtEpoch[i];
+		return out;
+	}
+
+	/**
+	 * Returns element set i as a new TLE.
+	 *
+	 * @param i
+	 * @return
+	 */
+	public TLE get(final int i) {
+		return get(i, new TLE());
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLECatalog [size=");
+		builder.append(size);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Columns derived from the mean motion and eccentricity.
+	 */
+	private static final class Derived {
+
+		final double[] semiMajorAxisKm;
+		final double[] periodMinutes;
+		final double[] apogeeAltitudeKm;
+		final double[] perigeeAltitudeKm;
+
+		Derived(final TLECatalog c) {
+			final int n = c.size;
+			semiMajorAxisKm = new double[n];
+			periodMinutes = new double[n];
+			apogeeAltitudeKm = new double[n];
+			perigeeAltitudeKm = new double[n];
+			for (int i = 0; i < n; ++i) {
+				final double a = TLEDerivedElements.semiMajorAxisKm(
+						c.meanMotionRPD[i]);
+				semiMajorAxisKm[i] = a;
+				periodMinutes[i] = TLEDerivedElements.periodMinutes(
+						c.meanMotionRPD[i]);
+				apogeeAltitudeKm[i] = a * (1 + c.eccentricity[i])
+						- TLEDerivedElements.EARTH_RADIUS_KM;
+				perigeeAltitudeKm[i] = a * (1 - c.eccentricity[i])
+						- TLEDerivedElements.EARTH_RADIUS_KM;
+			}
+		}
+	}
+
+	/**
+	 * Accumulates element sets into growable columns, sharing names and
+	 * designators through a {@link TLEStringPool}.  Pass one to
+	 * {@link TLEProcessor#fromInputStream(java.io.InputStream, TLESink)}
+	 * to go from a stream to a catalog without a TLE per record.
+	 *
+	 * @author sean
+	 */
+	public static final class Builder implements TLESink {
+
+		private final TLEStringPool pool;
+
+		private int size;
+
+		private String[] satelliteName;
+		private int[] satelliteNumber;
+		private byte[] classification;
+		private String[] internationalDesignator;
+		private double[] epochJulianDate;
+		private double[] dotMeanMotion;
+		private double[] dotDotMeanMotion;
+		private double[] bstarDragTerm;
+		private int[] elementSetNumber;
+		private double[] inclinationDeg;
+		private double[] raanDeg;
+		private double[] eccentricity;
+		private double[] argPerigeeDeg;
+		private double[] meanAnomalyDeg;
+		private double[] meanMotionRPD;
+		private int[] revNumberAtEpoch;
+
+		/**
+		 * Constructor.
+		 */
+		public Builder() {
+			this(1024);
+		}
+
+		/**
+		 * Constructor.
+		 *
+		 * @param capacity
+		 *            Expected number of element sets
+		 */
+		public Builder(final int capacity) {
+			this(capacity, TLEStringPool.getDefault());
+		}
+
+		/**
+		 * Constructor.
+		 *
+		 * @param capacity
+		 *            Expected number of element sets
+		 * @param pool
+		 *            Pool the names and designators are shared through
+		 */
+		public Builder(final int capacity, final TLEStringPool pool) {
+			this.pool = pool;
+			allocate(Math.max(capacity, 16));
+		}
+
+		private void allocate(final int capacity) {
+			satelliteName = new String[capacity];
+			satelliteNumber = new int[capacity];
+			classification = new byte[capacity];
+			internationalDesignator = new String[capacity];
+			epochJulianDate = new double[capacity];
+			dotMeanMotion = new double[capacity];
+			dotDotMeanMotion = new double[capacity];
+			bstarDragTerm = new double[capacity];
+			elementSetNumber = new int[capacity];
+			inclinationDeg = new double[capacity];
+			raanDeg = new double[capacity];
+			eccentricity = new double[capacity];
+			argPerigeeDeg = new double[capacity];
+			meanAnomalyDeg = new double[capacity];
+			meanMotionRPD = new double[capacity];
+			revNumberAtEpoch = new int[capacity];
+		}
+
+		private void grow() {
+			final int capacity = satelliteNumber.length * 2;
+			satelliteName = Arrays.copyOf(satelliteName, capacity);
+			satelliteNumber = Arrays.copyOf(satelliteNumber, capacity);
+			classification = Arrays.copyOf(classification, capacity);
+			internationalDesignator = Arrays.copyOf(internationalDesignator,
+					capacity);
+			epochJulianDate = Arrays.copyOf(epochJulianDate, capacity);
+			dotMeanMotion = Arrays.copyOf(dotMeanMotion, capacity);
+			dotDotMeanMotion = Arrays.copyOf(dotDotMeanMotion, capacity);
+			bstarDragTerm = Arrays.copyOf(bstarDragTerm, capacity);
+			elementSetNumber = Arrays.copyOf(elementSetNumber, capacity);
+			inclinationDeg = Arrays.copyOf(inclinationDeg, capacity);
+			raanDeg = Arrays.copyOf(raanDeg, capacity);
+			eccentricity = Arrays.copyOf(eccentricity, capacity);
+			argPerigeeDeg = Arrays.copyOf(argPerigeeDeg, capacity);
+			meanAnomalyDeg = Arrays.copyOf(meanAnomalyDeg, capacity);
+			meanMotionRPD = Arrays.copyOf(meanMotionRPD, capacity);
+			revNumberAtEpoch = Arrays.copyOf(revNumberAtEpoch, capacity);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.smmsp.core.tle.TLESink#accept(com.smmsp.core.tle.TLE)
+		 */
+		@Override
+		public void accept(final TLE tle) {
+			if (size == satelliteNumber.length) {
+				grow();
+			}
+			final int i = size++;
+			satelliteName[i] = pool.intern(tle.satelliteName);
+			satelliteNumber[i] = tle.satelliteNumber;
+			classification[i] = (byte) (tle.classification == null
+					? Classification.UNCLASSIFIED.ordinal()
+					: tle.classification.ordinal());
+			internationalDesignator[i] = pool.intern(
+					tle.internationalDesignator);
+			epochJulianDate[i] = tle.epochJulianDate;
+			dotMeanMotion[i] = tle.dotMeanMotion;
+			dotDotMeanMotion[i] = tle.dotDotMeanMotion;
+			bstarDragTerm[i] = tle.bstarDragTerm;
+			elementSetNumber[i] = tle.elementSetNumber;
+			inclinationDeg[i] = tle.inclinationDeg;
+			raanDeg[i] = tle.raanDeg;
+			eccentricity[i] = tle.eccentricity;
+			argPerigeeDeg[i] = tle.argPerigeeDeg;
+			meanAnomalyDeg[i] = tle.meanAnomalyDeg;
+			meanMotionRPD[i] = tle.meanMotionRPD;
+			revNumberAtEpoch[i] = tle.revNumberAtEpoch;
+		}
+
+		/**
+		 * @return the number of element sets added so far
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * Copies element set i back out, for structures that grow a
+		 * builder instead of building a catalog.
+		 */
+		TLE get(final int i, final TLE out) {
+			return copy(i, out, satelliteName, satelliteNumber,
+					classification, internationalDesignator, epochJulianDate,
+					dotMeanMotion, dotDotMeanMotion, bstarDragTerm,
+					elementSetNumber, inclinationDeg, raanDeg, eccentricity,
+					argPerigeeDeg, meanAnomalyDeg, meanMotionRPD, revNumberAtEpoch);
+		}
+
+		double getEpochJulianDate(final int i) {
+			return epochJulianDate[i];
+		}
+
+		int getElementSetNumber(final int i) {
+			return elementSetNumber[i];
+		}
+
+		/**
+		 * Returns a catalog of everything added so far.  The builder can
+		 * keep going afterwards, the catalog won't see it.
+		 *
+		 * @return
+		 */
+		public TLECatalog build() {
+			return new TLECatalog(this);
+		}
+	}
+}
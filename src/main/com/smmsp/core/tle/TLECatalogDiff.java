@@ -0,0 +1,236 @@
+/*
+ * TLECatalogDiff.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.Arrays;
+
+/**
+ * What changed between two parses of a catalog, so consumers can redo
+ * the work for the few satellites that got a new element set instead of
+ * the whole catalog.
+ *
+ * Satellites are matched by catalog number.  One whose element set
+ * number or epoch differs is changed, one only in the current catalog is
+ * added and one only in the previous catalog is removed; everything else
+ * is left out.  A satellite listed more than once in a catalog is
+ * compared on the element set {@link TLEIndex} picks (the latest).
+ *
+ * Positions are indexes into the catalog they came from.
+ *
+ * @author sean
+ */
+public final class TLECatalogDiff {
+
+	/**
+	 * Gets the changes one at a time, see {@link TLECatalogDiff#apply}.
+	 */
+	public interface Listener {
+
+		/**
+		 * @param current
+		 * @param i
+		 *            Position of the new satellite in current
+		 */
+		void added(TLECatalog current, int i);
+
+		/**
+		 * @param previous
+		 * @param was
+		 *            Position of the old element set in previous
+		 * @param current
+		 * @param i
+		 *            Position of the new element set in current
+		 */
+		void changed(TLECatalog previous, int was, TLECatalog current, int i);
+
+		/**
+		 * @param previous
+		 * @param was
+		 *            Position of the satellite that's gone in previous
+		 */
+		void removed(TLECatalog previous, int was);
+	}
+
+	private final TLECatalog previous;
+	private final TLECatalog current;
+
+	private final int[] added;
+	private final int[] changed;
+	private final int[] changedFrom;
+	private final int[] removed;
+
+	private TLECatalogDiff(final TLECatalog previous,
+			final TLECatalog current, final int[] added, final int[] changed,
+			final int[] changedFrom, final int[] removed) {
+		this.previous = previous;
+		this.current = current;
+		this.added = added;
+		this.changed = changed;
+		this.changedFrom = changedFrom;
+		this.removed = removed;
+	}
+
+	/**
+	 * Compares two parses of a catalog.
+	 *
+	 * @param previous
+	 *            The older catalog, may be null for a first load (then
+	 *            everything is added)
+	 * @param current
+	 * @return
+	 */
+	public static TLECatalogDiff of(final TLECatalog previous,
+			final TLECatalog current) {
+		final TLECatalog old = previous != null ? previous : TLECatalog.of();
+		final TLEIndex oldIndex = TLEIndex.of(old);
+		final TLEIndex newIndex = TLEIndex.of(current);
+
+		int addedCount = 0;
+		int changedCount = 0;
+		int removedCount = 0;
+		final int[] added = new int[current.size()];
+		final int[] changed = new int[current.size()];
+		final int[] changedFrom = new int[current.size()];
+		final int[] removed = new int[old.size()];
+
+		for (int i = 0, n = current.size(); i < n; ++i) {
+			final int number = current.satelliteNumber[i];
+			if (newIndex.indexOf(number) != i) {
+				// an older duplicate.
+				continue;
+			}
+			final int was = oldIndex.indexOf(number);
+			if (was < 0) {
+				added[addedCount++] = i;
+			} else if (old.elementSetNumber[was] != current.elementSetNumber[i]
+					|| old.epochJulianDate[was] != current.epochJulianDate[i]) {
+				changed[changedCount] = i;
+				changedFrom[changedCount++] = was;
+			}
+		}
+		for (int was = 0, n = old.size(); was < n; ++was) {
+			final int number = old.satelliteNumber[was];
+			if (oldIndex.indexOf(number) == was && !newIndex.contains(number)) {
+				removed[removedCount++] = was;
+			}
+		}
+		return new TLECatalogDiff(old, current, Arrays.copyOf(added,
+				addedCount), Arrays.copyOf(changed, changedCount),
+				Arrays.copyOf(changedFrom, changedCount), Arrays.copyOf(
+						removed, removedCount));
+	}
+
+	/**
+	 * A diff with no changes, for a catalog that wasn't reparsed.
+	 */
+	static TLECatalogDiff unchanged(final TLECatalog catalog) {
+		final int[] none = new int[0];
+		return new TLECatalogDiff(catalog, catalog, none, none, none, none);
+	}
+
+	/**
+	 * Hands every change to listener: removals, then changes, then
+	 * additions, each in catalog order.
+	 *
+	 * @param listener
+	 */
+	public void apply(final Listener listener) {
+		for (int was : removed) {
+			listener.removed(previous, was);
+		}
+		for (int k = 0; k < changed.length; ++k) {
+			listener.changed(previous, changedFrom[k], current, changed[k]);
+		}
+		for (int i : added) {
+			listener.added(current, i);
+		}
+	}
+
+	public TLECatalog getPrevious() {
+		return previous;
+	}
+
+	public TLECatalog getCurrent() {
+		return current;
+	}
+
+	/**
+	 * @return positions in the current catalog of satellites that are new
+	 */
+	public int[] getAdded() {
+		return added.clone();
+	}
+
+	/**
+	 * @return positions in the current catalog of new element sets for
+	 *         known satellites
+	 */
+	public int[] getChanged() {
+		return changed.clone();
+	}
+
+	/**
+	 * @return positions in the previous catalog of the element sets
+	 *         {@link #getChanged()} replace, in the same order
+	 */
+	public int[] getChangedFrom() {
+		return changedFrom.clone();
+	}
+
+	/**
+	 * @return positions in the previous catalog of satellites that are
+	 *         gone
+	 */
+	public int[] getRemoved() {
+		return removed.clone();
+	}
+
+	/**
+	 * @return the total number of changes
+	 */
+	public int size() {
+		return added.length + changed.length + removed.length;
+	}
+
+	/**
+	 * @return true if the catalogs hold the same element sets
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLECatalogDiff [added=");
+		builder.append(added.length);
+		builder.append(", changed=");
+		builder.append(changed.length);
+		builder.append(", removed=");
+		builder.append(removed.length);
+		builder.append("]");
+		return builder.toString();
+	}
+}
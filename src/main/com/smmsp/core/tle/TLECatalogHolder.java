@@ -0,0 +1,114 @@
+/*
+ * TLECatalogHolder.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Where readers get the current {@link TLECatalogSnapshot} and a refresh
+ * puts the next one.
+ *
+ * A refresh builds and indexes its catalog off to the side and then
+ * swaps the whole snapshot in with one atomic write, so a reader either
+ * gets the old snapshot or the new one, never a mix, and never waits.
+ * Readers should call {@link #get()} once per request and use that
+ * snapshot throughout; old snapshots are garbage collected once the
+ * last reader lets go of them.
+ *
+ * Publishing is safe from several threads: each publish gets the next
+ * version number.  {@link #publish(TLECatalogSnapshot, TLECatalog)} only
+ * replaces the snapshot the caller started from, so a refresh that
+ * raced with another one can tell and redo its work.
+ *
+ * @author sean
+ */
+public final class TLECatalogHolder {
+
+	private final AtomicReference<TLECatalogSnapshot> current;
+
+	/**
+	 * Constructor, starts with an empty catalog at version 0.
+	 */
+	public TLECatalogHolder() {
+		current = new AtomicReference<>(new TLECatalogSnapshot(0,
+				TLECatalog.of()));
+	}
+
+	/**
+	 * @return the latest snapshot
+	 */
+	public TLECatalogSnapshot get() {
+		return current.get();
+	}
+
+	/**
+	 * Makes catalog the current one.
+	 *
+	 * @param catalog
+	 * @return the snapshot that was published
+	 */
+	public TLECatalogSnapshot publish(final TLECatalog catalog) {
+		TLECatalogSnapshot next = null;
+		while (true) {
+			final TLECatalogSnapshot prev = current.get();
+			final long version = prev.getVersion() + 1;
+			// if another publish got in first only the version changes,
+			// the index is kept.
+			next = next == null ? new TLECatalogSnapshot(version, catalog)
+					: next.withVersion(version);
+			if (current.compareAndSet(prev, next)) {
+				return next;
+			}
+		}
+	}
+
+	/**
+	 * Makes catalog the current one, but only if expected still is.
+	 *
+	 * @param expected
+	 *            The snapshot the new catalog was worked out from
+	 * @param catalog
+	 * @return the snapshot that was published, or null if another one was
+	 *         published after expected
+	 */
+	public TLECatalogSnapshot publish(final TLECatalogSnapshot expected,
+			final TLECatalog catalog) {
+		if (current.get() != expected) {
+			return null;
+		}
+		final TLECatalogSnapshot next = new TLECatalogSnapshot(
+				expected.getVersion() + 1, catalog);
+		return current.compareAndSet(expected, next) ? next : null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLECatalogHolder [current=");
+		builder.append(current.get());
+		builder.append("]");
+		return builder.toString();
+	}
+}
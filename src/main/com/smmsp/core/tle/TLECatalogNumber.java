@@ -0,0 +1,159 @@
+/*
+ * TLECatalogNumber.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Five column catalog numbers, including the Alpha-5 form used for
+ * catalog numbers past 99999.
+ *
+ * Alpha-5 swaps the leading digit for a letter worth 10 (A) to 33 (Z),
+ * skipping I and O so they aren't mistaken for 1 and 0: "A0000" is
+ * 100000, "E8493" is 148493 and "Z9999" is {@link #MAX_ALPHA5}.  Catalog
+ * numbers are always plain ints in the model, only the text differs.
+ *
+ * @author sean
+ */
+public final class TLECatalogNumber {
+
+	/**
+	 * The largest plain five digit catalog number.
+	 */
+	public static final int MAX_NUMERIC = 99999;
+
+	/**
+	 * The largest catalog number five columns can hold.
+	 */
+	public static final int MAX_ALPHA5 = 339999;
+
+	/**
+	 * Letter for each leading value 10 to 33.
+	 */
+	private static final char[] LETTERS = "ABCDEFGHJKLMNPQRSTUVWXYZ"
+			.toCharArray();
+
+	private TLECatalogNumber() {
+		// do nothing.
+	}
+
+	/**
+	 * @param c
+	 * @return what c is worth as the leading column of a catalog number
+	 *         (0 to 33), or -1 if it can't lead one
+	 */
+	public static int leadingValue(final int c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		if (c < 'A' || c > 'Z' || c == 'I' || c == 'O') {
+			return -1;
+		}
+		int value = c - 'A' + 10;
+		if (c > 'I') {
+			--value;
+		}
+		if (c > 'O') {
+			--value;
+		}
+		return value;
+	}
+
+	/**
+	 * @param number
+	 * @return the leading column for number
+	 * @throws TLEException
+	 *             if number doesn't fit in five columns
+	 */
+	public static char leadingChar(final int number) throws TLEException {
+		if (number < 0 || number > MAX_ALPHA5) {
+			throw new TLEException("Catalog number out of range: " + number);
+		}
+		final int lead = number / 10000;
+		return lead < 10 ? (char) ('0' + lead) : LETTERS[lead - 10];
+	}
+
+	/**
+	 * Decodes a catalog number, plain or Alpha-5, ignoring blanks around
+	 * it.
+	 *
+	 * @param s
+	 * @return
+	 * @throws TLEException
+	 *             if s isn't a catalog number
+	 */
+	public static int parse(final CharSequence s) throws TLEException {
+		int from = 0;
+		int to = s.length();
+		while (from < to && s.charAt(from) <= ' ') {
+			++from;
+		}
+		while (to > from && s.charAt(to - 1) <= ' ') {
+			--to;
+		}
+		final int lead = from < to ? leadingValue(s.charAt(from)) : -1;
+		if (lead < 0 || (lead >= 10 && to - from != 5) || to - from > 5) {
+			throw new TLEException("Bad catalog number '" + s + "'");
+		}
+		int value = lead;
+		for (int i = from + 1; i < to; ++i) {
+			final char c = s.charAt(i);
+			if (c < '0' || c > '9') {
+				throw new TLEException("Bad catalog number '" + s + "'");
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Writes number in five columns of dst at off, zero padded, in
+	 * Alpha-5 form if it's over {@link #MAX_NUMERIC}.
+	 *
+	 * @param number
+	 * @param dst
+	 * @param off
+	 * @throws TLEException
+	 *             if number doesn't fit in five columns
+	 */
+	public static void encode(final int number, final byte[] dst,
+			final int off) throws TLEException {
+		dst[off] = (byte) leadingChar(number);
+		int rest = number % 10000;
+		for (int i = off + 4; i > off; --i) {
+			dst[i] = (byte) ('0' + rest % 10);
+			rest /= 10;
+		}
+	}
+
+	/**
+	 * @param number
+	 * @return number as five columns of text
+	 * @throws TLEException
+	 *             if number doesn't fit in five columns
+	 */
+	public static String toString(final int number) throws TLEException {
+		final byte[] text = new byte[5];
+		encode(number, text, 0);
+		return new String(text, StandardCharsets.US_ASCII);
+	}
+}
@@ -0,0 +1,478 @@
+/*
+ * TLECatalogQuery.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Secondary indexes over a {@link TLECatalog} so the usual filters don't
+ * scan the whole catalog.
+ *
+ * <ul>
+ * <li>Names go in a prefix trie (case insensitive), each node knowing
+ * the range of names under it, so a prefix query costs the length of
+ * the prefix plus the matches.</li>
+ * <li>Launch year and launch number are taken out of the international
+ * designator ("98067A" is the 67th launch of 1998).</li>
+ * <li>Mean motion, eccentricity and inclination are kept sorted, so a
+ * range query is a binary search plus the matches.</li>
+ * </ul>
+ *
+ * Every query returns a BitSet of catalog positions, so predicates are
+ * combined with {@link BitSet#and(BitSet)} and friends, e.g. objects
+ * near geosynchronous altitude launched in 2023:
+ *
+ * <pre>
+ * final BitSet geo = query.meanMotion(0.99, 1.01);
+ * geo.and(query.eccentricity(0, 0.01));
+ * geo.and(query.launchYear(2023));
+ * </pre>
+ *
+ * Ranges are inclusive.  A query object isn't changed after it's built,
+ * so it can be shared between threads like the catalog itself.
+ *
+ * @author sean
+ */
+public final class TLECatalogQuery {
+
+	private final TLECatalog catalog;
+
+	/*
+	 * Name trie.  Node 0 is the root; children are a linked list
+	 * (firstChild/nextSibling), each node covers names[from, to) of the
+	 * name sorted positions.
+	 */
+	private final int[] byName;
+	private final char[] label;
+	private final int[] firstChild;
+	private final int[] nextSibling;
+	private final int[] from;
+	private final int[] to;
+
+	/**
+	 * Launch keys (year * 1000 + launch number), sorted, and the
+	 * positions they belong to.
+	 */
+	private final int[] launchKeys;
+	private final int[] byLaunch;
+
+	private final double[] meanMotionKeys;
+	private final int[] byMeanMotion;
+	private final double[] eccentricityKeys;
+	private final int[] byEccentricity;
+	private final double[] inclinationKeys;
+	private final int[] byInclination;
+
+	private TLECatalogQuery(final TLECatalog catalog) {
+		this.catalog = catalog;
+		final int n = catalog.size();
+
+		// names, sorted so every trie node covers a contiguous range.
+		final String[] keys = new String[n];
+		for (int i = 0; i < n; ++i) {
+			keys[i] = nameKey(catalog.satelliteName[i]);
+		}
+		byName = sortByName(keys);
+
+		int capacity = 16;
+		char[] lbl = new char[capacity];
+		int[] child = new int[capacity];
+		int[] sibling = new int[capacity];
+		int[] lo = new int[capacity];
+		int[] hi = new int[capacity];
+		Arrays.fill(child, -1);
+		Arrays.fill(sibling, -1);
+		int nodes = 1;
+		hi[0] = byName.length;
+		for (int k = 0; k < byName.length; ++k) {
+			final String name = keys[byName[k]];
+			int node = 0;
+			for (int c = 0; c < name.length(); ++c) {
+				final char ch = name.charAt(c);
+				int next = child[node];
+				int prev = -1;
+				while (next >= 0 && lbl[next] != ch) {
+					prev = next;
+					next = sibling[next];
+				}
+				if (next < 0) {
+					if (nodes == capacity) {
+						capacity *= 2;
+						lbl = Arrays.copyOf(lbl, capacity);
+						child = grow(child, capacity);
+						sibling = grow(sibling, capacity);
+						lo = Arrays.copyOf(lo, capacity);
+						hi = Arrays.copyOf(hi, capacity);
+					}
+					next = nodes++;
+					lbl[next] = ch;
+					lo[next] = k;
+					if (prev < 0) {
+						child[node] = next;
+					} else {
+						sibling[prev] = next;
+					}
+				}
+				hi[next] = k + 1;
+				node = next;
+			}
+		}
+		label = Arrays.copyOf(lbl, nodes);
+		firstChild = Arrays.copyOf(child, nodes);
+		nextSibling = Arrays.copyOf(sibling, nodes);
+		from = Arrays.copyOf(lo, nodes);
+		to = Arrays.copyOf(hi, nodes);
+
+		// launches, packed key << 32 | position so one sort does both.
+		final long[] launches = new long[n];
+		int launched = 0;
+		for (int i = 0; i < n; ++i) {
+			final int key = launchKey(catalog.internationalDesignator[i]);
+			if (key >= 0) {
+				launches[launched++] = (long) key << 32 | i;
+			}
+		}
+		Arrays.sort(launches, 0, launched);
+		launchKeys = new int[launched];
+		byLaunch = new int[launched];
+		for (int k = 0; k < launched; ++k) {
+			launchKeys[k] = (int) (launches[k] >>> 32);
+			byLaunch[k] = (int) launches[k];
+		}
+
+		byMeanMotion = sortBy(catalog.meanMotionRPD);
+		meanMotionKeys = keys(catalog.meanMotionRPD, byMeanMotion);
+		byEccentricity = sortBy(catalog.eccentricity);
+		eccentricityKeys = keys(catalog.eccentricity, byEccentricity);
+		byInclination = sortBy(catalog.inclinationDeg);
+		inclinationKeys = keys(catalog.inclinationDeg, byInclination);
+	}
+
+	/**
+	 * Indexes a catalog.
+	 *
+	 * @param catalog
+	 * @return
+	 */
+	public static TLECatalogQuery of(final TLECatalog catalog) {
+		return new TLECatalogQuery(catalog);
+	}
+
+	public TLECatalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * @param prefix
+	 * @return positions of element sets whose name starts with prefix,
+	 *         ignoring case
+	 */
+	public BitSet namePrefix(final CharSequence prefix) {
+		final BitSet ret = new BitSet(catalog.size());
+		int node = 0;
+		for (int c = 0; c < prefix.length(); ++c) {
+			final char ch = Character.toUpperCase(prefix.charAt(c));
+			node = firstChild[node];
+			while (node >= 0 && label[node] != ch) {
+				node = nextSibling[node];
+			}
+			if (node < 0) {
+				return ret;
+			}
+		}
+		for (int k = from[node]; k < to[node]; ++k) {
+			ret.set(byName[k]);
+		}
+		return ret;
+	}
+
+	/**
+	 * @param year
+	 *            Four digit launch year
+	 * @return positions of element sets launched in year
+	 */
+	public BitSet launchYear(final int year) {
+		return launchRange(year * 1000, year * 1000 + 999);
+	}
+
+	/**
+	 * Same as a designator prefix query, launch(1998, 67) finds "98067*".
+	 *
+	 * @param year
+	 *            Four digit launch year
+	 * @param number
+	 *            Launch of the year
+	 * @return positions of the objects from one launch
+	 */
+	public BitSet launch(final int year, final int number) {
+		return launchRange(year * 1000 + number, year * 1000 + number);
+	}
+
+	/**
+	 * @param first
+	 * @param last
+	 * @return positions of element sets launched between the two years
+	 */
+	public BitSet launchYears(final int first, final int last) {
+		return launchRange(first * 1000, last * 1000 + 999);
+	}
+
+	public BitSet meanMotion(final double min, final double max) {
+		return range(meanMotionKeys, byMeanMotion, min, max);
+	}
+
+	public BitSet eccentricity(final double min, final double max) {
+		return range(eccentricityKeys, byEccentricity, min, max);
+	}
+
+	public BitSet inclination(final double minDeg, final double maxDeg) {
+		return range(inclinationKeys, byInclination, minDeg, maxDeg);
+	}
+
+	/**
+	 * @return positions of every element set, to start a query from
+	 */
+	public BitSet all() {
+		final BitSet ret = new BitSet(catalog.size());
+		ret.set(0, catalog.size());
+		return ret;
+	}
+
+	/**
+	 * "98067A" is 1998 * 1000 + 67, -1 if the designator doesn't start
+	 * with five digits.
+	 */
+	static int launchKey(final String designator) {
+		if (designator == null || designator.length() < 5) {
+			return -1;
+		}
+		int value = 0;
+		for (int i = 0; i < 5; ++i) {
+			final char c = designator.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return TLELineParser.fullYear(value / 1000) * 1000 + value % 1000;
+	}
+
+	private BitSet launchRange(final int min, final int max) {
+		final BitSet ret = new BitSet(catalog.size());
+		for (int k = lowerBound(launchKeys, min); k < launchKeys.length
+				&& launchKeys[k] <= max; ++k) {
+			ret.set(byLaunch[k]);
+		}
+		return ret;
+	}
+
+	private BitSet range(final double[] keys, final int[] positions,
+			final double min, final double max) {
+		final BitSet ret = new BitSet(catalog.size());
+		for (int k = lowerBound(keys, min); k < keys.length && keys[k] <= max;
+				++k) {
+			ret.set(positions[k]);
+		}
+		return ret;
+	}
+
+	/**
+	 * First index holding a key >= min.
+	 */
+	private static int lowerBound(final int[] keys, final int min) {
+		int lo = 0;
+		int hi = keys.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (keys[mid] < min) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private static int lowerBound(final double[] keys, final double min) {
+		int lo = 0;
+		int hi = keys.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (keys[mid] < min) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * The name as the trie holds it, null for no name.
+	 */
+	private static String nameKey(final String name) {
+		if (name == null) {
+			return null;
+		}
+		final char[] chars = new char[name.length()];
+		for (int i = 0; i < chars.length; ++i) {
+			chars[i] = Character.toUpperCase(name.charAt(i));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Positions of the named element sets, by name.
+	 */
+	private static int[] sortByName(final String[] keys) {
+		int named = 0;
+		for (String key : keys) {
+			if (key != null) {
+				++named;
+			}
+		}
+		final Integer[] order = new Integer[named];
+		named = 0;
+		for (int i = 0; i < keys.length; ++i) {
+			if (keys[i] != null) {
+				order[named++] = i;
+			}
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer a, final Integer b) {
+				return keys[a].compareTo(keys[b]);
+			}
+		});
+		final int[] ret = new int[named];
+		for (int k = 0; k < named; ++k) {
+			ret[k] = order[k];
+		}
+		return ret;
+	}
+
+	private static int[] grow(final int[] a, final int capacity) {
+		final int old = a.length;
+		final int[] ret = Arrays.copyOf(a, capacity);
+		Arrays.fill(ret, old, capacity, -1);
+		return ret;
+	}
+
+	/**
+	 * Positions ordered by value.  Boxing free: sorts the bits of each
+	 * value (flipped so they order like the doubles) with the position in
+	 * a parallel pass.
+	 */
+	private static int[] sortBy(final double[] values) {
+		final int n = values.length;
+		final long[] keys = new long[n];
+		for (int i = 0; i < n; ++i) {
+			keys[i] = sortable(values[i]);
+		}
+		final int[] positions = new int[n];
+		for (int i = 0; i < n; ++i) {
+			positions[i] = i;
+		}
+		sort(keys, positions, 0, n);
+		return positions;
+	}
+
+	private static double[] keys(final double[] values, final int[] order) {
+		final double[] ret = new double[order.length];
+		for (int k = 0; k < order.length; ++k) {
+			ret[k] = values[order[k]];
+		}
+		return ret;
+	}
+
+	/**
+	 * Bits of a double that compare as signed longs in the same order as
+	 * the doubles.
+	 */
+	private static long sortable(final double d) {
+		final long bits = Double.doubleToLongBits(d);
+		return bits < 0 ? bits ^ Long.MAX_VALUE : bits;
+	}
+
+	/**
+	 * Sorts keys[lo, hi) carrying positions along (quicksort, insertion
+	 * sort for short runs).
+	 */
+	private static void sort(final long[] keys, final int[] positions,
+			int lo, int hi) {
+		while (hi - lo > 16) {
+			final long pivot = keys[(lo + hi) >>> 1];
+			int i = lo;
+			int j = hi - 1;
+			while (i <= j) {
+				while (keys[i] < pivot) {
+					++i;
+				}
+				while (keys[j] > pivot) {
+					--j;
+				}
+				if (i <= j) {
+					swap(keys, positions, i++, j--);
+				}
+			}
+			// recurse into the smaller half.
+			if (j - lo < hi - i) {
+				sort(keys, positions, lo, j + 1);
+				lo = i;
+			} else {
+				sort(keys, positions, i, hi);
+				hi = j + 1;
+			}
+		}
+		for (int i = lo + 1; i < hi; ++i) {
+			for (int j = i; j > lo && keys[j - 1] > keys[j]; --j) {
+				swap(keys, positions, j, j - 1);
+			}
+		}
+	}
+
+	private static void swap(final long[] keys, final int[] positions,
+			final int a, final int b) {
+		final long k = keys[a];
+		keys[a] = keys[b];
+		keys[b] = k;
+		final int p = positions[a];
+		positions[a] = positions[b];
+		positions[b] = p;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLECatalogQuery [size=");
+		builder.append(catalog.size());
+		builder.append(", nameNodes=");
+		builder.append(label.length);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * TLECatalogSnapshot.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+/**
+ * One published version of a catalog: the catalog, its index and the
+ * version number it was published under.  Nothing in a snapshot changes
+ * after it is made, so any number of threads can read one without
+ * locking, and a reader that holds on to a snapshot keeps seeing the
+ * same data however many refreshes come after it.
+ *
+ * Snapshots are published through a {@link TLECatalogHolder}.
+ *
+ * @author sean
+ */
+public final class TLECatalogSnapshot {
+
+	private final long version;
+	private final long publishedMillis;
+	private final TLECatalog catalog;
+	private final TLEIndex index;
+
+	/**
+	 * Constructor, indexes the catalog.
+	 *
+	 * @param version
+	 * @param catalog
+	 */
+	TLECatalogSnapshot(final long version, final TLECatalog catalog) {
+		this.version = version;
+		this.publishedMillis = System.currentTimeMillis();
+		this.catalog = catalog;
+		this.index = TLEIndex.of(catalog);
+	}
+
+	private TLECatalogSnapshot(final TLECatalogSnapshot other,
+			final long version) {
+		this.version = version;
+		this.publishedMillis = other.publishedMillis;
+		this.catalog = other.catalog;
+		this.index = other.index;
+	}
+
+	/**
+	 * @param newVersion
+	 * @return the same catalog and index under another version number
+	 */
+	TLECatalogSnapshot withVersion(final long newVersion) {
+		return new TLECatalogSnapshot(this, newVersion);
+	}
+
+	/**
+	 * @return the version, starting at 0 for the empty snapshot a holder
+	 *         starts with and going up by one per publish
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return when this snapshot was made (milliseconds since the epoch)
+	 */
+	public long getPublishedMillis() {
+		return publishedMillis;
+	}
+
+	public TLECatalog getCatalog() {
+		return catalog;
+	}
+
+	public TLEIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the number of element sets
+	 */
+	public int size() {
+		return catalog.size();
+	}
+
+	/**
+	 * Copies the (latest) element set for a satellite into out.
+	 *
+	 * @param satelliteNumber
+	 * @param out
+	 * @return out, or null if the satellite isn't in this snapshot
+	 */
+	public TLE find(final int satelliteNumber, final TLE out) {
+		final int i = index.indexOf(satelliteNumber);
+		return i < 0 ? null : catalog.get(i, out);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLECatalogSnapshot [version=");
+		builder.append(version);
+		builder.append(", size=");
+		builder.append(catalog.size());
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * TLEDerivedElements.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+/**
+ * Quantities worked out from an element set's mean motion and
+ * eccentricity, computed once when the record is made.
+ *
+ * The semi-major axis is the Keplerian one for the mean motion (no J2
+ * correction), with the WGS-72 constants the element sets are generated
+ * with, which is what screening (apogee/perigee overlap and the like)
+ * needs.  For whole catalogs {@link TLECatalog} keeps the same values as
+ * columns.
+ *
+ * @author sean
+ */
+public final class TLEDerivedElements {
+
+	/**
+	 * WGS-72 gravitational parameter (km^3/s^2).
+	 */
+	public static final double MU_KM3_PER_S2 = 398600.8;
+
+	/**
+	 * WGS-72 equatorial radius (km).
+	 */
+	public static final double EARTH_RADIUS_KM = 6378.135;
+
+	private static final double MINUTES_PER_DAY = 1440.0;
+
+	private final double epochJulianDate;
+	private final double semiMajorAxisKm;
+	private final double periodMinutes;
+	private final double apogeeAltitudeKm;
+	private final double perigeeAltitudeKm;
+
+	private TLEDerivedElements(final double epochJulianDate,
+			final double meanMotionRPD, final double eccentricity) {
+		this.epochJulianDate = epochJulianDate;
+		this.semiMajorAxisKm = semiMajorAxisKm(meanMotionRPD);
+		this.periodMinutes = periodMinutes(meanMotionRPD);
+		this.apogeeAltitudeKm = semiMajorAxisKm * (1 + eccentricity)
+				- EARTH_RADIUS_KM;
+		this.perigeeAltitudeKm = semiMajorAxisKm * (1 - eccentricity)
+				- EARTH_RADIUS_KM;
+	}
+
+	/**
+	 * @param tle
+	 * @return the derived quantities for tle as it is now
+	 */
+	public static TLEDerivedElements of(final TLE tle) {
+		return new TLEDerivedElements(tle.epochJulianDate, tle.meanMotionRPD,
+				tle.eccentricity);
+	}
+
+	/**
+	 * @param meanMotionRPD
+	 *            Mean motion in revolutions per day
+	 * @return the semi-major axis (km)
+	 */
+	public static double semiMajorAxisKm(final double meanMotionRPD) {
+		final double radPerSec = meanMotionRPD * 2 * Math.PI / 86400.0;
+		return Math.cbrt(MU_KM3_PER_S2 / (radPerSec * radPerSec));
+	}
+
+	/**
+	 * @param meanMotionRPD
+	 *            Mean motion in revolutions per day
+	 * @return the orbital period (minutes)
+	 */
+	public static double periodMinutes(final double meanMotionRPD) {
+		return MINUTES_PER_DAY / meanMotionRPD;
+	}
+
+	/**
+	 * @return the epoch as a julian date, see {@link TLE#epochJulianDate}
+	 */
+	public double getEpochJulianDate() {
+		return epochJulianDate;
+	}
+
+	public double getSemiMajorAxisKm() {
+		return semiMajorAxisKm;
+	}
+
+	public double getPeriodMinutes() {
+		return periodMinutes;
+	}
+
+	/**
+	 * @return the apogee height above the equatorial radius (km)
+	 */
+	public double getApogeeAltitudeKm() {
+		return apogeeAltitudeKm;
+	}
+
+	/**
+	 * @return the perigee height above the equatorial radius (km)
+	 */
+	public double getPerigeeAltitudeKm() {
+		return perigeeAltitudeKm;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLEDerivedElements [semiMajorAxisKm=");
+		builder.append(semiMajorAxisKm);
+		builder.append(", periodMinutes=");
+		builder.append(periodMinutes);
+		builder.append(", apogeeAltitudeKm=");
+		builder.append(apogeeAltitudeKm);
+		builder.append(", perigeeAltitudeKm=");
+		builder.append(perigeeAltitudeKm);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * TLEField.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+/**
+ * The fixed column layout of a TLE.  Columns are 0 based, [from, to).
+ * The LINE entries stand for a whole line (checksum, length, missing
+ * lines).
+ *
+ * @author sean
+ */
+public enum TLEField {
+
+	NAME(0, 0, 24),
+	LINE1(1, 0, 69),
+	SATELLITE_NUMBER(1, 2, 7),
+	CLASSIFICATION(1, 7, 8),
+	INTERNATIONAL_DESIGNATOR(1, 9, 17),
+	EPOCH_YEAR(1, 18, 20),
+	EPOCH_DAY(1, 20, 32),
+	DOT_MEAN_MOTION(1, 33, 43),
+	DOT_DOT_MEAN_MOTION(1, 44, 52),
+	BSTAR_DRAG_TERM(1, 53, 61),
+	ELEMENT_SET_NUMBER(1, 63, 68),
+	LINE2(2, 0, 69),
+	INCLINATION(2, 8, 16),
+	RAAN(2, 17, 25),
+	ECCENTRICITY(2, 26, 33),
+	ARG_PERIGEE(2, 34, 42),
+	MEAN_ANOMALY(2, 43, 51),
+	MEAN_MOTION(2, 52, 63),
+	REV_NUMBER(2, 63, 68);
+
+	private final int line;
+	private final int from;
+	private final int to;
+
+	private TLEField(final int line, final int from, final int to) {
+		this.line = line;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * The line this field is on (0 for the name line).
+	 *
+	 * @return
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * First column of the field.
+	 *
+	 * @return
+	 */
+	public int getFrom() {
+		return from;
+	}
+
+	/**
+	 * Column after the last one of the field.
+	 *
+	 * @return
+	 */
+	public int getTo() {
+		return to;
+	}
+}
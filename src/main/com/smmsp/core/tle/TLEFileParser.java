@@ -0,0 +1,327 @@
+/*
+ * TLEFileParser.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses large catalog files (e.g. the Celestrak group files kept in
+ * the cache directory) in parallel.
+ *
+ * The file is memory mapped, cut into chunks whose boundaries are moved
+ * forward to the start of an element set (found from the line 1/line 2
+ * column markers) and each chunk is parsed in place by its own
+ * {@link TLEReader} on a ForkJoinPool.  The result is in file order.
+ *
+ * @author sean
+ */
+public final class TLEFileParser {
+
+	/**
+	 * Chunks smaller than this aren't worth a task (~400 element sets).
+	 */
+	private static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * Number of chunks per worker thread, a few extra keep the pool busy
+	 * when the chunks parse at different speeds.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private TLEFileParser() {
+		// do nothing.
+	}
+
+	/**
+	 * Parses the file on the common ForkJoinPool.
+	 *
+	 * @param file
+	 * @return The element sets, in file order
+	 * @throws TLEException
+	 */
+	public static TLE[] parse(final Path file) throws TLEException {
+		return parse(file, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Parses the file on the given pool.
+	 *
+	 * @param file
+	 * @param pool
+	 * @return The element sets, in file order
+	 * @throws TLEException
+	 */
+	public static TLE[] parse(final Path file, final ForkJoinPool pool)
+			throws TLEException {
+		return parse(file, pool, null);
+	}
+
+	/**
+	 * Parses the file on the given pool.  If report isn't null the parse
+	 * is lenient, bad records are skipped and described in report (with
+	 * line numbers for the whole file).
+	 *
+	 * @param file
+	 * @param pool
+	 * @param report
+	 * @return The good element sets, in file order
+	 * @throws TLEException
+	 */
+	public static TLE[] parse(final Path file, final ForkJoinPool pool,
+			final TLEParseReport report) throws TLEException {
+		final MappedByteBuffer buffer = map(file);
+		final int[] bounds = split(buffer, pool.getParallelism());
+		return pool.invoke(new CatalogTask(buffer, bounds, report));
+	}
+
+	/**
+	 * Maps the whole file read only.
+	 *
+	 * @param file
+	 * @return
+	 * @throws TLEException
+	 */
+	static MappedByteBuffer map(final Path file) throws TLEException {
+		try (FileChannel chan = FileChannel.open(file,
+				StandardOpenOption.READ)) {
+			final long size = chan.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new TLEException("File too large to map: " + file);
+			}
+			// the mapping stays valid after the channel is closed.
+			return chan.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		} catch (IOException e) {
+			throw new TLEException("Unable to map " + file, e);
+		}
+	}
+
+	/**
+	 * Cuts the buffer into chunks that each start on an element set.
+	 *
+	 * @param buffer
+	 * @param threads
+	 * @return n+1 offsets, chunk i is [bounds[i], bounds[i+1])
+	 */
+	static int[] split(final ByteBuffer buffer, final int threads) {
+		final int size = buffer.limit();
+		final int chunks = Math.max(1,
+				Math.min(threads * CHUNKS_PER_THREAD, size / MIN_CHUNK_SIZE));
+		final int[] bounds = new int[chunks + 1];
+		bounds[chunks] = size;
+		for (int i = 1; i < chunks; ++i) {
+			final long nominal = (long) size * i / chunks;
+			bounds[i] = Math.max(bounds[i - 1],
+					recordStart(buffer, (int) nominal, size));
+		}
+		return bounds;
+	}
+
+	/**
+	 * Returns the offset of the first element set starting at or after
+	 * from, or end if there isn't one.  An element set is recognised by
+	 * a line 1 immediately followed by the line 2 for the same satellite,
+	 * and includes the name line in front of it if there is one.
+	 *
+	 * @param buf
+	 * @param from
+	 * @param end
+	 * @return
+	 */
+	static int recordStart(final ByteBuffer buf, final int from,
+			final int end) {
+		int prev = -1;
+		int line = from;
+		if (line > 0 && buf.get(line - 1) != '\n') {
+			// we landed mid line - that line belongs to the chunk before.
+			prev = lineStart(buf, line);
+			line = nextLine(buf, line, end);
+		}
+		while (line < end) {
+			final int next = nextLine(buf, line, end);
+			if (isDataLine(buf, line, next, '1')
+					&& next < end
+					&& isDataLine(buf, next, nextLine(buf, next, end), '2')
+					&& sameSatellite(buf, line, next)) {
+				if (prev < 0 && line > 0) {
+					prev = lineStart(buf, line - 1);
+				}
+				if (prev >= 0 && !isDataLine(buf, prev, line, '2')) {
+					return prev; // name line
+				}
+				return line;
+			}
+			prev = line;
+			line = next;
+		}
+		return end;
+	}
+
+	/**
+	 * Returns the start of the line that contains idx.
+	 */
+	private static int lineStart(final ByteBuffer buf, int idx) {
+		while (idx > 0 && buf.get(idx - 1) != '\n') {
+			--idx;
+		}
+		return idx;
+	}
+
+	/**
+	 * Returns the start of the line after the one starting at idx.
+	 */
+	static int nextLine(final ByteBuffer buf, int idx, final int end) {
+		while (idx < end && buf.get(idx) != '\n') {
+			++idx;
+		}
+		return Math.min(idx + 1, end);
+	}
+
+	/**
+	 * Returns the end of [start, end) with trailing whitespace and line
+	 * breaks dropped.
+	 */
+	static int trimEnd(final ByteBuffer buf, final int start, int end) {
+		while (end > start && (buf.get(end - 1) & 0xFF) <= ' ') {
+			--end;
+		}
+		return end;
+	}
+
+	/**
+	 * Is [start, next) a TLE data line with the given line number?
+	 */
+	static boolean isDataLine(final ByteBuffer buf, final int start,
+			final int next, final char number) {
+		int len = next - start;
+		while (len > 0 && (buf.get(start + len - 1) == '\n'
+				|| buf.get(start + len - 1) == '\r')) {
+			--len;
+		}
+		return len >= TLELineParser.LINE_LENGTH
+				&& buf.get(start) == number
+				&& buf.get(start + 1) == ' ';
+	}
+
+	/**
+	 * Do lines one and two carry the same catalog number (columns 2-7)?
+	 */
+	static boolean sameSatellite(final ByteBuffer buf,
+			final int line1, final int line2) {
+		for (int i = 2; i < 7; ++i) {
+			if (buf.get(line1 + i) != buf.get(line2 + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Forks one reader per chunk and stitches the results back together
+	 * in order.
+	 */
+	private static final class CatalogTask extends RecursiveTask<TLE[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer buffer;
+		private final int[] bounds;
+		private final TLEParseReport report;
+
+		CatalogTask(final ByteBuffer buffer, final int[] bounds,
+				final TLEParseReport report) {
+			this.buffer = buffer;
+			this.bounds = bounds;
+			this.report = report;
+		}
+
+		@Override
+		protected TLE[] compute() {
+			final List<ChunkTask> tasks = new ArrayList<>(bounds.length - 1);
+			for (int i = 0; i + 1 < bounds.length; ++i) {
+				tasks.add(new ChunkTask(buffer, bounds[i], bounds[i + 1],
+						report != null));
+			}
+			invokeAll(tasks);
+
+			int total = 0;
+			long lines = 0;
+			for (ChunkTask task : tasks) {
+				total += task.join().size();
+				if (report != null) {
+					report.merge(task.report, lines);
+				}
+				lines += task.lines;
+			}
+			final TLE[] ret = new TLE[total];
+			int pos = 0;
+			for (ChunkTask task : tasks) {
+				for (TLE tle : task.join()) {
+					ret[pos++] = tle;
+				}
+			}
+			return ret;
+		}
+	}
+
+	/**
+	 * Parses a single chunk.
+	 */
+	private static final class ChunkTask extends RecursiveTask<List<TLE>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer buffer;
+		private final int start;
+		private final int end;
+		private final TLEParseReport report;
+		private long lines;
+
+		ChunkTask(final ByteBuffer buffer, final int start, final int end,
+				final boolean lenient) {
+			this.buffer = buffer;
+			this.start = start;
+			this.end = end;
+			this.report = lenient ? new TLEParseReport() : null;
+		}
+
+		@Override
+		protected List<TLE> compute() {
+			final TLEReader reader = new TLEReader(buffer, start, end);
+			reader.setReport(report);
+			final List<TLE> ret = new ArrayList<>();
+			while (reader.hasNext()) {
+				ret.add(reader.next());
+			}
+			lines = reader.getLineNumber();
+			return ret;
+		}
+	}
+}
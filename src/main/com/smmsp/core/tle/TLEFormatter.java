@@ -0,0 +1,523 @@
+/*
+ * TLEFormatter.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+import com.smmsp.core.Classification;
+import com.smmsp.time.GregorianDate;
+import com.smmsp.time.JulianDate;
+
+/**
+ * Writes TLEs back out in the fixed column format, the reverse of
+ * {@link TLELineParser}.
+ *
+ * Each data line is assembled in a reusable 69 byte buffer, digit by
+ * digit, with the checksum added up as the columns are filled.  Nothing
+ * is allocated per element set and no String formatting is involved.
+ *
+ * Numbers are written so that they parse back to exactly the same
+ * double: the digits chosen are the ones whose (correctly rounded)
+ * decimal value is the field's value, which is always possible for
+ * element sets that were read from text.  Values that don't fit the
+ * columns are rejected with a {@link TLEException}.
+ *
+ * The name line is written (padded to 24 columns) when the TLE has a
+ * name, so element sets come out in the three line format if they went
+ * in that way.  Lines end with a single '\n'.
+ *
+ * Instances are NOT thread safe - use one formatter per thread.
+ *
+ * @author sean
+ */
+public final class TLEFormatter {
+
+	private static final int NAME_LENGTH = 24;
+
+	/**
+	 * Same table as the parser, see {@link TLELineParser}.
+	 */
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+			1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17 };
+
+	private static final long[] LONG_POW10 = { 1L, 10L, 100L, 1000L,
+			10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+			10000000000L, 100000000000L, 1000000000000L };
+
+	private final byte[] line = new byte[TLELineParser.LINE_LENGTH];
+	private final byte[] first = new byte[TLELineParser.LINE_LENGTH];
+
+	/**
+	 * Running checksum of the line being built.
+	 */
+	private int checksum;
+
+	/**
+	 * Constructor.
+	 */
+	public TLEFormatter() {
+		// does nothing.
+	}
+
+	/**
+	 * @param tle
+	 * @return the number of bytes {@link #format(TLE, ByteBuffer)} will
+	 *         write for tle
+	 */
+	public int formattedLength(final TLE tle) {
+		final int lines = 2 * (TLELineParser.LINE_LENGTH + 1);
+		if (tle.satelliteName == null) {
+			return lines;
+		}
+		return lines + Math.max(NAME_LENGTH, tle.satelliteName.length()) + 1;
+	}
+
+	/**
+	 * Writes tle into out.  Nothing is written if there isn't room for
+	 * the whole element set or a field doesn't fit.
+	 *
+	 * @param tle
+	 * @param out
+	 * @throws TLEException
+	 *             if a field doesn't fit the format
+	 * @throws BufferOverflowException
+	 *             if out is too small
+	 */
+	public void format(final TLE tle, final ByteBuffer out)
+			throws TLEException {
+		if (out.remaining() < formattedLength(tle)) {
+			throw new BufferOverflowException();
+		}
+		lines(tle);
+		if (tle.satelliteName != null) {
+			final String name = tle.satelliteName;
+			final int len = name.length();
+			for (int i = 0; i < len; ++i) {
+				final char c = name.charAt(i);
+				out.put((byte) (c < 0x100 ? c : '?'));
+			}
+			for (int i = len; i < NAME_LENGTH; ++i) {
+				out.put((byte) ' ');
+			}
+			out.put((byte) '\n');
+		}
+		out.put(first).put((byte) '\n');
+		out.put(line).put((byte) '\n');
+	}
+
+	/**
+	 * Writes tle to out.
+	 *
+	 * @param tle
+	 * @param out
+	 * @throws TLEException
+	 *             if a field doesn't fit the format
+	 * @throws IOException
+	 *             if out does
+	 */
+	public void format(final TLE tle, final Appendable out)
+			throws TLEException, IOException {
+		lines(tle);
+		if (tle.satelliteName != null) {
+			final String name = tle.satelliteName;
+			out.append(name);
+			for (int i = name.length(); i < NAME_LENGTH; ++i) {
+				out.append(' ');
+			}
+			out.append('\n');
+		}
+		append(out, first);
+		append(out, line);
+	}
+
+	/**
+	 * Builds line 1 into first and line 2 into line, so a field that
+	 * doesn't fit is found before anything is written.
+	 */
+	private void lines(final TLE tle) {
+		firstLine(tle);
+		System.arraycopy(line, 0, first, 0, line.length);
+		secondLine(tle);
+	}
+
+	private static void append(final Appendable out, final byte[] bytes)
+			throws IOException {
+		for (byte b : bytes) {
+			out.append((char) b);
+		}
+		out.append('\n');
+	}
+
+	/**
+	 * Formats line 1 of tle into dst, which must have room for
+	 * {@link TLELineParser#LINE_LENGTH} bytes at off.
+	 *
+	 * @param tle
+	 * @param dst
+	 * @param off
+	 * @throws TLEException
+	 */
+	public void formatFirstLine(final TLE tle, final byte[] dst,
+			final int off) throws TLEException {
+		firstLine(tle);
+		System.arraycopy(line, 0, dst, off, line.length);
+	}
+
+	/**
+	 * Formats line 2 of tle into dst, which must have room for
+	 * {@link TLELineParser#LINE_LENGTH} bytes at off.
+	 *
+	 * @param tle
+	 * @param dst
+	 * @param off
+	 * @throws TLEException
+	 */
+	public void formatSecondLine(final TLE tle, final byte[] dst,
+			final int off) throws TLEException {
+		secondLine(tle);
+		System.arraycopy(line, 0, dst, off, line.length);
+	}
+
+	private void firstLine(final TLE tle) {
+		start('1', tle.satelliteNumber);
+		put(7, classification(tle.classification));
+		designator(tle.internationalDesignator);
+
+		final double jd = epochJulianDate(tle);
+		final int year = epochYear(jd);
+		integer(TLEField.EPOCH_YEAR, year % 100, (byte) '0');
+		fixed(TLEField.EPOCH_DAY, jd - JulianDate.julianDateOf(year, 0.0),
+				8, (byte) '0', true);
+
+		fixed(TLEField.DOT_MEAN_MOTION, tle.dotMeanMotion, 8, (byte) ' ',
+				false);
+		exponent(TLEField.DOT_DOT_MEAN_MOTION, tle.dotDotMeanMotion, false);
+		exponent(TLEField.BSTAR_DRAG_TERM, tle.bstarDragTerm, true);
+		put(62, (byte) '0'); // ephemeris type
+		integer(TLEField.ELEMENT_SET_NUMBER, tle.elementSetNumber, (byte) ' ');
+		finish();
+	}
+
+	private void secondLine(final TLE tle) {
+		start('2', tle.satelliteNumber);
+		fixed(TLEField.INCLINATION, tle.inclinationDeg, 4, (byte) ' ', true);
+		fixed(TLEField.RAAN, tle.raanDeg, 4, (byte) ' ', true);
+		eccentricity(tle.eccentricity);
+		fixed(TLEField.ARG_PERIGEE, tle.argPerigeeDeg, 4, (byte) ' ', true);
+		fixed(TLEField.MEAN_ANOMALY, tle.meanAnomalyDeg, 4, (byte) ' ', true);
+		fixed(TLEField.MEAN_MOTION, tle.meanMotionRPD, 8, (byte) ' ', true);
+		integer(TLEField.REV_NUMBER, tle.revNumberAtEpoch, (byte) ' ');
+		finish();
+	}
+
+	/**
+	 * Blanks the line and writes the line number and catalog number (in
+	 * Alpha-5 form past 99999).
+	 */
+	private void start(final char number, final int satelliteNumber) {
+		for (int i = 0; i < line.length; ++i) {
+			line[i] = ' ';
+		}
+		checksum = 0;
+		put(0, (byte) number);
+		final TLEField field = TLEField.SATELLITE_NUMBER;
+		if (satelliteNumber <= TLECatalogNumber.MAX_NUMERIC) {
+			integer(field, satelliteNumber, (byte) '0');
+		} else if (satelliteNumber <= TLECatalogNumber.MAX_ALPHA5) {
+			put(field.getFrom(), (byte) TLECatalogNumber
+					.leadingChar(satelliteNumber));
+			digits(field.getTo(), 4, satelliteNumber % 10000, (byte) '0');
+		} else {
+			throw outOfRange(field, satelliteNumber);
+		}
+	}
+
+	private void finish() {
+		line[TLELineParser.LINE_LENGTH - 1] = (byte) ('0' + checksum % 10);
+	}
+
+	/**
+	 * Writes one column, adding it to the checksum the same way as
+	 * {@link TLEProcessor#checksumMatches(String)}.
+	 */
+	private void put(final int col, final byte b) {
+		line[col] = b;
+		if (b >= '0' && b <= '9') {
+			checksum += b - '0';
+		} else if (b == '-') {
+			++checksum;
+		}
+	}
+
+	private static byte classification(final Classification c) {
+		if (c == null || c == Classification.UNCLASSIFIED) {
+			return 'U';
+		} else if (c == Classification.SECRET) {
+			return 'S';
+		}
+		return 'C';
+	}
+
+	private void designator(final String designator) {
+		if (designator == null) {
+			return;
+		}
+		final TLEField field = TLEField.INTERNATIONAL_DESIGNATOR;
+		final int len = designator.length();
+		if (len > field.getTo() - field.getFrom()) {
+			throw outOfRange(field, designator);
+		}
+		for (int i = 0; i < len; ++i) {
+			put(field.getFrom() + i, (byte) designator.charAt(i));
+		}
+	}
+
+	/**
+	 * Writes a non negative integer right aligned in the field.
+	 */
+	private void integer(final TLEField field, final int value,
+			final byte pad) {
+		final int width = field.getTo() - field.getFrom();
+		if (value < 0 || value >= LONG_POW10[width]) {
+			throw outOfRange(field, value);
+		}
+		digits(field.getTo(), width, value, pad);
+	}
+
+	/**
+	 * Writes value right aligned, ending just before col, padding the
+	 * rest of width with pad.
+	 */
+	private void digits(final int end, final int width, long value,
+			final byte pad) {
+		int col = end;
+		do {
+			put(--col, (byte) ('0' + value % 10));
+			value /= 10;
+		} while (value > 0);
+		while (col > end - width) {
+			put(--col, pad);
+		}
+	}
+
+	/**
+	 * Writes value with a fixed number of decimals, right aligned.  The
+	 * integer part is padded with pad (a '-' goes in front of it); if
+	 * leadingZero is false a zero integer part is left out, as the
+	 * format does for the first derivative of mean motion.
+	 */
+	private void fixed(final TLEField field, final double value,
+			final int decimals, final byte pad, final boolean leadingZero) {
+		final boolean negative = isNegative(value);
+		final long scaled = scaled(field, Math.abs(value), decimals);
+		final long whole = scaled / LONG_POW10[decimals];
+		long fraction = scaled % LONG_POW10[decimals];
+
+		int col = field.getTo();
+		for (int i = 0; i < decimals; ++i) {
+			put(--col, (byte) ('0' + fraction % 10));
+			fraction /= 10;
+		}
+		put(--col, (byte) '.');
+		final int start = field.getFrom();
+		if (whole > 0 || leadingZero) {
+			final int len = length(whole);
+			if (col - len - (negative ? 1 : 0) < start) {
+				throw outOfRange(field, value);
+			}
+			digits(col, len, whole, pad);
+			col -= len;
+		}
+		if (negative) {
+			if (col == start) {
+				throw outOfRange(field, value);
+			}
+			put(--col, (byte) '-');
+		}
+		while (col > start) {
+			put(--col, pad);
+		}
+	}
+
+	/**
+	 * Eccentricity has an implied leading decimal point, 7 digits.
+	 */
+	private void eccentricity(final double value) {
+		final TLEField field = TLEField.ECCENTRICITY;
+		if (isNegative(value)) {
+			throw outOfRange(field, value);
+		}
+		final int width = field.getTo() - field.getFrom();
+		final long scaled = scaled(field, value, width);
+		if (scaled >= LONG_POW10[width]) {
+			throw outOfRange(field, value);
+		}
+		digits(field.getTo(), width, scaled, (byte) '0');
+	}
+
+	/**
+	 * Writes the implied exponent form " MMMMM-E": a five digit integer
+	 * mantissa and a power of ten.  The parser reads this as
+	 * MMMMM * 10^-E (without an implied decimal point in front of the
+	 * mantissa) so that is what is written.  The smallest exponent that
+	 * fits keeps the most digits.
+	 */
+	private void exponent(final TLEField field, final double value,
+			final boolean allowPlus) {
+		final boolean negative = isNegative(value);
+		final double a = Math.abs(value);
+		final int maxExponent = allowPlus ? 9 : 0;
+		long mantissa = -1;
+		int exponent = 0;
+		if (a == 0) {
+			mantissa = 0;
+		} else {
+			for (exponent = -9; exponent <= maxExponent; ++exponent) {
+				mantissa = mantissa(a, exponent);
+				if (mantissa >= 0) {
+					break;
+				}
+			}
+		}
+		if (mantissa < 0) {
+			throw outOfRange(field, value);
+		}
+
+		final int start = field.getFrom();
+		put(start, negative ? (byte) '-' : (byte) ' ');
+		digits(start + 6, 5, mantissa, (byte) '0');
+		put(start + 6, exponent > 0 ? (byte) '+' : (byte) '-');
+		put(start + 7, (byte) ('0' + Math.abs(exponent)));
+	}
+
+	/**
+	 * Returns the five digit mantissa m with m * 10^exponent == a,
+	 * m * 10^exponent nearest a if there is no exact one, or -1 if the
+	 * mantissa would need more than five digits.
+	 */
+	private static long mantissa(final double a, final int exponent) {
+		final double m = exponent < 0 ? a * POW10[-exponent]
+				: a / POW10[exponent];
+		if (m >= 99999.5) {
+			return -1;
+		}
+		final long guess = Math.round(m);
+		for (long c = Math.max(0, guess - 1); c <= guess + 1 && c <= 99999; ++c) {
+			final double back = exponent < 0 ? c / POW10[-exponent]
+					: c * POW10[exponent];
+			if (back == a) {
+				return c;
+			}
+		}
+		return guess;
+	}
+
+	/**
+	 * Returns the integer n with n / 10^decimals == value, or the
+	 * nearest if there isn't one.
+	 */
+	private static long scaled(final TLEField field, final double value,
+			final int decimals) {
+		final double m = value * POW10[decimals];
+		if (!(m < 1e15)) {
+			throw outOfRange(field, value);
+		}
+		final long guess = Math.round(m);
+		for (long c = Math.max(0, guess - 1); c <= guess + 1; ++c) {
+			if (c / POW10[decimals] == value) {
+				return c;
+			}
+		}
+		return guess;
+	}
+
+	private static boolean isNegative(final double value) {
+		return Double.doubleToRawLongBits(value) < 0;
+	}
+
+	private static int length(long value) {
+		int len = 1;
+		while (value >= 10) {
+			value /= 10;
+			++len;
+		}
+		return len;
+	}
+
+	/**
+	 * The epoch as a julian date, from the gregorian date if that's all
+	 * the TLE has.
+	 */
+	private static double epochJulianDate(final TLE tle) {
+		if (tle.epochJulianDate != 0 || !(tle.epoch instanceof GregorianDate)) {
+			return tle.epochJulianDate;
+		}
+		final GregorianDate date = (GregorianDate) tle.epoch;
+		final int year = date.getYears();
+		int day = date.getDays();
+		for (int month = 1; month < date.getMonths(); ++month) {
+			day += daysInMonth(year, month);
+		}
+		return JulianDate.julianDateOf(year, day);
+	}
+
+	private static int daysInMonth(final int year, final int month) {
+		switch (month) {
+		case 2:
+			return GregorianDate.isLeapYear(year) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/**
+	 * Finds the year the julian date falls in, so the day of year
+	 * (jd - jan 0) is in [1, 367).
+	 */
+	private static int epochYear(final double jd) {
+		int year = (int) ((jd - 1721424.5) / 365.2425) + 1;
+		while (jd < JulianDate.julianDateOf(year, 1.0)) {
+			--year;
+		}
+		while (jd >= JulianDate.julianDateOf(year + 1, 1.0)) {
+			++year;
+		}
+		if (year < 1957 || year > 2056) {
+			throw outOfRange(TLEField.EPOCH_YEAR, year);
+		}
+		return year;
+	}
+
+	private static TLEException outOfRange(final TLEField field,
+			final Object value) {
+		return new TLEException("Value out of range for " + field + ": "
+				+ value);
+	}
+}
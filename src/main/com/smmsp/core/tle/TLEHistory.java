@@ -0,0 +1,283 @@
+/*
+ * TLEHistory.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.Arrays;
+
+/**
+ * Every element set seen for each satellite, for answering "which TLE
+ * was current at time t".
+ *
+ * Element sets are stored once, in arrival order, in columnar form.
+ * Each satellite has a pair of primitive arrays (epochs and positions)
+ * kept sorted by epoch, found through an open addressing table on the
+ * catalog number.  {@link #bestAt(int, double)} is a hash probe and a
+ * binary search and doesn't allocate.
+ *
+ * Appends are cheap when files arrive in time order (the usual case),
+ * an older element set is inserted in place.  An element set already
+ * held (same satellite, epoch and element set number) is skipped, so the
+ * same group file can be appended after every refresh.  Not thread safe.
+ *
+ * @author sean
+ */
+public final class TLEHistory implements TLESink {
+
+	private static final int EMPTY = -1;
+
+	private final TLECatalog.Builder sets = new TLECatalog.Builder();
+
+	/**
+	 * Catalog number, satellite slot pairs.
+	 */
+	private int[] table = new int[64];
+	private int mask = table.length / 2 - 1;
+
+	private int[] numbers = new int[16];
+	private double[][] epochs = new double[16][];
+	private int[][] positions = new int[16][];
+	private int[] counts = new int[16];
+	private int satellites;
+	private long duplicates;
+
+	/**
+	 * Constructor.
+	 */
+	public TLEHistory() {
+		Arrays.fill(table, EMPTY);
+	}
+
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * @return the satellite slot for number, or -1
+	 */
+	private int slotOf(final int number) {
+		int slot = mix(number) & mask;
+		int key;
+		while ((key = table[slot * 2]) != EMPTY) {
+			if (key == number) {
+				return table[slot * 2 + 1];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private int addSatellite(final int number) {
+		if (satellites == numbers.length) {
+			final int capacity = satellites * 2;
+			numbers = Arrays.copyOf(numbers, capacity);
+			epochs = Arrays.copyOf(epochs, capacity);
+			positions = Arrays.copyOf(positions, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+		}
+		final int sat = satellites++;
+		numbers[sat] = number;
+		epochs[sat] = new double[4];
+		positions[sat] = new int[4];
+		if (satellites * 2 > mask + 1) {
+			rehash();
+		} else {
+			insert(number, sat);
+		}
+		return sat;
+	}
+
+	private void insert(final int number, final int sat) {
+		int slot = mix(number) & mask;
+		while (table[slot * 2] != EMPTY) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot * 2] = number;
+		table[slot * 2 + 1] = sat;
+	}
+
+	private void rehash() {
+		table = new int[table.length * 2];
+		mask = table.length / 2 - 1;
+		Arrays.fill(table, EMPTY);
+		for (int sat = 0; sat < satellites; ++sat) {
+			insert(numbers[sat], sat);
+		}
+	}
+
+	/**
+	 * Adds an element set, unless it is already held.  The TLE is copied,
+	 * so the streaming parsers can feed this directly, e.g.
+	 * {@code TLEProcessor.fromInputStream(is, history)}.
+	 *
+	 * @param tle
+	 */
+	@Override
+	public void accept(final TLE tle) {
+		int sat = slotOf(tle.satelliteNumber);
+		if (sat < 0) {
+			sat = addSatellite(tle.satelliteNumber);
+		}
+
+		final double epoch = tle.epochJulianDate;
+		int count = counts[sat];
+		double[] e = epochs[sat];
+		int[] p = positions[sat];
+		int at = count;
+		while (at > 0 && e[at - 1] > epoch) {
+			--at;
+		}
+		for (int i = at - 1; i >= 0 && e[i] == epoch; --i) {
+			if (sets.getElementSetNumber(p[i]) == tle.elementSetNumber) {
+				++duplicates;
+				return;
+			}
+		}
+
+		final int position = sets.size();
+		sets.accept(tle);
+		if (count == e.length) {
+			e = epochs[sat] = Arrays.copyOf(e, count * 2);
+			p = positions[sat] = Arrays.copyOf(p, count * 2);
+		}
+		// equal epochs go after the ones already there, so the newest
+		// copy wins.
+		System.arraycopy(e, at, e, at + 1, count - at);
+		System.arraycopy(p, at, p, at + 1, count - at);
+		e[at] = epoch;
+		p[at] = position;
+		counts[sat] = count + 1;
+	}
+
+	/**
+	 * Adds a batch of element sets.
+	 *
+	 * @param tles
+	 */
+	public void addAll(final TLE[] tles) {
+		for (TLE tle : tles) {
+			accept(tle);
+		}
+	}
+
+	/**
+	 * Finds the element set that was current at julianDate: the one with
+	 * the latest epoch at or before it, or the earliest one if julianDate
+	 * is before all of them.
+	 *
+	 * @param satelliteNumber
+	 * @param julianDate
+	 * @return a position to pass to {@link #get(int, TLE)}, or -1 if the
+	 *         satellite has no history
+	 */
+	public int bestAt(final int satelliteNumber, final double julianDate) {
+		final int sat = slotOf(satelliteNumber);
+		if (sat < 0) {
+			return -1;
+		}
+		final double[] e = epochs[sat];
+		// first epoch after julianDate
+		int lo = 0;
+		int hi = counts[sat];
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (e[mid] <= julianDate) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return positions[sat][lo == 0 ? 0 : lo - 1];
+	}
+
+	/**
+	 * Copies the element set at position into out.
+	 *
+	 * @param position
+	 * @param out
+	 * @return out
+	 */
+	public TLE get(final int position, final TLE out) {
+		if (position < 0 || position >= sets.size()) {
+			throw new IndexOutOfBoundsException("Position: " + position
+					+ ", Size: " + sets.size());
+		}
+		return sets.get(position, out);
+	}
+
+	/**
+	 * @param position
+	 * @return the epoch of the element set at position
+	 */
+	public double getEpochJulianDate(final int position) {
+		return sets.getEpochJulianDate(position);
+	}
+
+	/**
+	 * @param satelliteNumber
+	 * @return the number of element sets held for the satellite
+	 */
+	public int historySize(final int satelliteNumber) {
+		final int sat = slotOf(satelliteNumber);
+		return sat < 0 ? 0 : counts[sat];
+	}
+
+	/**
+	 * @return the number of element sets skipped because they were
+	 *         already held
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * @return the number of satellites with a history
+	 */
+	public int satelliteCount() {
+		return satellites;
+	}
+
+	/**
+	 * @return the total number of element sets held
+	 */
+	public int size() {
+		return sets.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLEHistory [satellites=");
+		builder.append(satellites);
+		builder.append(", size=");
+		builder.append(sets.size());
+		builder.append("]");
+		return builder.toString();
+	}
+}
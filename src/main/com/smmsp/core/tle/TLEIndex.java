@@ -0,0 +1,257 @@
+/*
+ * TLEIndex.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.Arrays;
+
+/**
+ * Looks element sets up by catalog number or international designator.
+ * Returns positions in the catalog (or array) the index was built from.
+ *
+ * Both tables use open addressing with linear probing over plain arrays,
+ * the catalog number table keeps key and position side by side in one
+ * int[] so a lookup usually touches a single cache line.  Nothing is
+ * boxed and lookups don't allocate.
+ *
+ * When a satellite appears more than once the element set with the
+ * latest epoch wins (the later one in catalog order on a tie).
+ *
+ * @author sean
+ */
+public final class TLEIndex {
+
+	private static final int EMPTY = -1;
+
+	/**
+	 * Key, position pairs.  Catalog numbers are never negative so EMPTY
+	 * marks a free slot.
+	 */
+	private final int[] numbers;
+	private final int numberMask;
+
+	private final String[] designators;
+	private final int[] designatorPositions;
+	private final int designatorMask;
+
+	private int size;
+
+	private TLEIndex(final int capacity) {
+		final int slots = tableSize(capacity);
+		numbers = new int[slots * 2];
+		Arrays.fill(numbers, EMPTY);
+		numberMask = slots - 1;
+		designators = new String[slots];
+		designatorPositions = new int[slots];
+		designatorMask = slots - 1;
+	}
+
+	/**
+	 * Indexes every element set in the catalog.
+	 *
+	 * @param catalog
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if a catalog number is negative
+	 */
+	public static TLEIndex of(final TLECatalog catalog) {
+		final int n = catalog.size();
+		final TLEIndex index = new TLEIndex(n);
+		for (int i = 0; i < n; ++i) {
+			index.put(catalog.satelliteNumber[i], i,
+					catalog.internationalDesignator[i],
+					catalog.epochJulianDate);
+		}
+		return index;
+	}
+
+	/**
+	 * Indexes an array of element sets, e.g. the result of
+	 * {@link TLEProcessor#fromInputStream(java.io.InputStream)}.
+	 *
+	 * @param tles
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if a catalog number is negative
+	 */
+	public static TLEIndex of(final TLE[] tles) {
+		final double[] epochs = new double[tles.length];
+		for (int i = 0; i < tles.length; ++i) {
+			epochs[i] = tles[i].epochJulianDate;
+		}
+		final TLEIndex index = new TLEIndex(tles.length);
+		for (int i = 0; i < tles.length; ++i) {
+			index.put(tles[i].satelliteNumber, i,
+					tles[i].internationalDesignator, epochs);
+		}
+		return index;
+	}
+
+	/**
+	 * Power of two with room for capacity entries at a load factor of at
+	 * most one half.
+	 */
+	private static int tableSize(final int capacity) {
+		int slots = 16;
+		while (slots < capacity * 2) {
+			slots <<= 1;
+		}
+		return slots;
+	}
+
+	/**
+	 * Scrambles the bits so consecutive catalog numbers spread out
+	 * (murmur3 finalizer).
+	 */
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	/**
+	 * Same as String.hashCode, for any CharSequence.
+	 */
+	private static int hash(final CharSequence s) {
+		int h = 0;
+		for (int i = 0, len = s.length(); i < len; ++i) {
+			h = 31 * h + s.charAt(i);
+		}
+		return mix(h);
+	}
+
+	private static boolean contentEquals(final String key,
+			final CharSequence s) {
+		final int len = key.length();
+		if (len != s.length()) {
+			return false;
+		}
+		for (int i = 0; i < len; ++i) {
+			if (key.charAt(i) != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void put(final int number, final int position,
+			final String designator, final double[] epochs) {
+		if (number < 0) {
+			// would look like a free slot.
+			throw new IllegalArgumentException("Negative catalog number "
+					+ number + " at " + position);
+		}
+		final double epoch = epochs[position];
+		int slot = mix(number) & numberMask;
+		while (numbers[slot * 2] != EMPTY && numbers[slot * 2] != number) {
+			slot = (slot + 1) & numberMask;
+		}
+		if (numbers[slot * 2] == EMPTY) {
+			numbers[slot * 2] = number;
+			numbers[slot * 2 + 1] = position;
+			++size;
+		} else if (epoch >= epochs[numbers[slot * 2 + 1]]) {
+			numbers[slot * 2 + 1] = position;
+		}
+
+		if (designator == null || designator.isEmpty()) {
+			return;
+		}
+		slot = hash(designator) & designatorMask;
+		while (designators[slot] != null
+				&& !designators[slot].equals(designator)) {
+			slot = (slot + 1) & designatorMask;
+		}
+		if (designators[slot] == null) {
+			designators[slot] = designator;
+			designatorPositions[slot] = position;
+		} else if (epoch >= epochs[designatorPositions[slot]]) {
+			designatorPositions[slot] = position;
+		}
+	}
+
+	/**
+	 * @return the number of distinct catalog numbers indexed
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param satelliteNumber
+	 * @return the position of the element set for satelliteNumber, or -1
+	 */
+	public int indexOf(final int satelliteNumber) {
+		if (satelliteNumber < 0) {
+			return -1;
+		}
+		int slot = mix(satelliteNumber) & numberMask;
+		int key;
+		while ((key = numbers[slot * 2]) != EMPTY) {
+			if (key == satelliteNumber) {
+				return numbers[slot * 2 + 1];
+			}
+			slot = (slot + 1) & numberMask;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param satelliteNumber
+	 * @return true if satelliteNumber is in the index
+	 */
+	public boolean contains(final int satelliteNumber) {
+		return indexOf(satelliteNumber) >= 0;
+	}
+
+	/**
+	 * @param designator
+	 *            International designator as it appears in the TLE, e.g.
+	 *            "98067A"
+	 * @return the position of the element set, or -1
+	 */
+	public int indexOfDesignator(final CharSequence designator) {
+		int slot = hash(designator) & designatorMask;
+		String key;
+		while ((key = designators[slot]) != null) {
+			if (contentEquals(key, designator)) {
+				return designatorPositions[slot];
+			}
+			slot = (slot + 1) & designatorMask;
+		}
+		return -1;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLEIndex [size=");
+		builder.append(size);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,944 @@
+/*
+ * TLELineParser.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import com.smmsp.core.Classification;
+import com.smmsp.core.tle.TLEParseError.Reason;
+import com.smmsp.time.GregorianDate;
+import com.smmsp.time.JulianDate;
+
+/**
+ * A reusable, garbage free parser for the fixed column TLE lines.
+ *
+ * The fields are decoded straight out of a byte[], ByteBuffer or
+ * CharSequence without any substring/trim/valueOf round trips and
+ * written into a caller supplied {@link TLE}.  The values produced are
+ * bit-for-bit the same as {@link TLEProcessor#fromString(String[])}.
+ *
+ * Strings (name and designator) and the epoch are only allocated when
+ * they differ from what the target TLE (or the previous record) already
+ * holds, so refilling one TLE over a catalog allocates next to nothing.
+ * New names and designators come from a {@link TLEStringPool}, so the
+ * same text read again shares one String.
+ *
+ * The parseXxx methods throw a {@link TLEException} on bad input.  The
+ * tryParseXxx methods instead return false and leave the first failure
+ * in {@link #getErrorField()}/{@link #getErrorReason()}, which costs no
+ * exception at all.  Either way out is only written if the line is good.
+ *
+ * Instances are NOT thread safe - use one parser per thread.
+ *
+ * @author sean
+ */
+public final class TLELineParser {
+
+	/**
+	 * The minimum length of a data line (68 columns + checksum)
+	 */
+	public static final int LINE_LENGTH = 69;
+
+	/**
+	 * Powers of ten that are exactly representable as doubles.  Scaling
+	 * an integer mantissa by one of these is a single correctly rounded
+	 * operation, which is what makes us agree with Double.valueOf.
+	 */
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5,
+			1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	private static final int SRC_CHARS = 0;
+	private static final int SRC_BYTES = 1;
+	private static final int SRC_BUFFER = 2;
+
+	/*
+	 * The line currently being decoded.  Only one of the three sources
+	 * is live at a time, selected by 'kind'.
+	 */
+	private int kind;
+	private CharSequence chars;
+	private byte[] bytes;
+	private ByteBuffer buffer;
+	private int offset;
+	private int length;
+
+	/**
+	 * Set by the decoders when a field fails to parse.
+	 */
+	private TLEField errorField;
+	private Reason errorReason;
+
+	/**
+	 * The last epoch produced, GregorianDates are immutable so records
+	 * from the same day can share one.
+	 */
+	private int lastEpochYear = Integer.MIN_VALUE;
+	private int lastEpochDay = Integer.MIN_VALUE;
+	private GregorianDate lastEpoch;
+
+	/**
+	 * Where new names and designators come from, may be null.
+	 */
+	private final TLEStringPool pool;
+
+	/**
+	 * Constructor.  Names and designators are shared through
+	 * {@link TLEStringPool#getDefault()}.
+	 */
+	public TLELineParser() {
+		this(TLEStringPool.getDefault());
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool
+	 *            Pool for names and designators, or null to always create
+	 *            new Strings
+	 */
+	public TLELineParser(final TLEStringPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Parses a two line element set into out.  The satellite name is
+	 * left untouched.
+	 *
+	 * @param out
+	 * @param line1
+	 * @param line2
+	 * @throws TLEException
+	 */
+	public void parse(final TLE out, final CharSequence line1,
+			final CharSequence line2) throws TLEException {
+		parseFirstLine(out, line1);
+		parseSecondLine(out, line2);
+	}
+
+	/**
+	 * Parses a three line element set into out.
+	 *
+	 * @param out
+	 * @param name
+	 * @param line1
+	 * @param line2
+	 * @throws TLEException
+	 */
+	public void parse(final TLE out, final CharSequence name,
+			final CharSequence line1, final CharSequence line2)
+			throws TLEException {
+		parseName(out, name);
+		parseFirstLine(out, line1);
+		parseSecondLine(out, line2);
+	}
+
+	/**
+	 * Sets the (trimmed) satellite name on out from a name line.
+	 *
+	 * @param out
+	 * @param name
+	 */
+	public void parseName(final TLE out, final CharSequence name) {
+		wrap(name);
+		out.satelliteName = text(out.satelliteName, 0, length);
+	}
+
+	/**
+	 * Sets the (trimmed) satellite name on out from length bytes of buf
+	 * starting at off.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 */
+	public void parseName(final TLE out, final byte[] buf, final int off,
+			final int len) {
+		wrap(buf, off, len);
+		out.satelliteName = text(out.satelliteName, 0, length);
+	}
+
+	/**
+	 * Sets the (trimmed) satellite name on out from len bytes of buf
+	 * starting at the absolute position off.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 */
+	public void parseName(final TLE out, final ByteBuffer buf,
+			final int off, final int len) {
+		wrap(buf, off, len);
+		out.satelliteName = text(out.satelliteName, 0, length);
+	}
+
+	/**
+	 * Decodes line 1 of an element set into out.
+	 *
+	 * @param out
+	 * @param line
+	 * @throws TLEException
+	 */
+	public void parseFirstLine(final TLE out, final CharSequence line)
+			throws TLEException {
+		wrap(line);
+		check(firstLine(out));
+	}
+
+	/**
+	 * Decodes line 1 of an element set held in len bytes of buf starting
+	 * at off.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @throws TLEException
+	 */
+	public void parseFirstLine(final TLE out, final byte[] buf,
+			final int off, final int len) throws TLEException {
+		wrap(buf, off, len);
+		check(firstLine(out));
+	}
+
+	/**
+	 * Decodes line 1 of an element set held in len bytes of buf starting
+	 * at the absolute position off.  The buffer's position is not
+	 * changed.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @throws TLEException
+	 */
+	public void parseFirstLine(final TLE out, final ByteBuffer buf,
+			final int off, final int len) throws TLEException {
+		wrap(buf, off, len);
+		check(firstLine(out));
+	}
+
+	/**
+	 * Decodes line 2 of an element set into out.
+	 *
+	 * @param out
+	 * @param line
+	 * @throws TLEException
+	 */
+	public void parseSecondLine(final TLE out, final CharSequence line)
+			throws TLEException {
+		wrap(line);
+		check(secondLine(out));
+	}
+
+	/**
+	 * Decodes line 2 of an element set held in len bytes of buf starting
+	 * at off.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @throws TLEException
+	 */
+	public void parseSecondLine(final TLE out, final byte[] buf,
+			final int off, final int len) throws TLEException {
+		wrap(buf, off, len);
+		check(secondLine(out));
+	}
+
+	/**
+	 * Decodes line 2 of an element set held in len bytes of buf starting
+	 * at the absolute position off.  The buffer's position is not
+	 * changed.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @throws TLEException
+	 */
+	public void parseSecondLine(final TLE out, final ByteBuffer buf,
+			final int off, final int len) throws TLEException {
+		wrap(buf, off, len);
+		check(secondLine(out));
+	}
+
+	/**
+	 * Decodes line 1 of an element set into out without throwing.
+	 *
+	 * @param out
+	 * @param line
+	 * @return False if the line is bad, see {@link #getErrorField()}
+	 */
+	public boolean tryParseFirstLine(final TLE out, final CharSequence line) {
+		wrap(line);
+		return firstLine(out);
+	}
+
+	/**
+	 * Decodes line 1 of an element set held in len bytes of buf starting
+	 * at off without throwing.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @return False if the line is bad, see {@link #getErrorField()}
+	 */
+	public boolean tryParseFirstLine(final TLE out, final byte[] buf,
+			final int off, final int len) {
+		wrap(buf, off, len);
+		return firstLine(out);
+	}
+
+	/**
+	 * Decodes line 1 of an element set held in len bytes of buf starting
+	 * at the absolute position off without throwing.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @return False if the line is bad, see {@link #getErrorField()}
+	 */
+	public boolean tryParseFirstLine(final TLE out, final ByteBuffer buf,
+			final int off, final int len) {
+		wrap(buf, off, len);
+		return firstLine(out);
+	}
+
+	/**
+	 * Decodes line 2 of an element set into out without throwing.
+	 *
+	 * @param out
+	 * @param line
+	 * @return False if the line is bad, see {@link #getErrorField()}
+	 */
+	public boolean tryParseSecondLine(final TLE out, final CharSequence line) {
+		wrap(line);
+		return secondLine(out);
+	}
+
+	/**
+	 * Decodes line 2 of an element set held in len bytes of buf starting
+	 * at off without throwing.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @return False if the line is bad, see {@link #getErrorField()}
+	 */
+	public boolean tryParseSecondLine(final TLE out, final byte[] buf,
+			final int off, final int len) {
+		wrap(buf, off, len);
+		return secondLine(out);
+	}
+
+	/**
+	 * Decodes line 2 of an element set held in len bytes of buf starting
+	 * at the absolute position off without throwing.
+	 *
+	 * @param out
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @return False if the line is bad, see {@link #getErrorField()}
+	 */
+	public boolean tryParseSecondLine(final TLE out, final ByteBuffer buf,
+			final int off, final int len) {
+		wrap(buf, off, len);
+		return secondLine(out);
+	}
+
+	/**
+	 * The field that made the last tryParseXxx call fail.
+	 *
+	 * @return
+	 */
+	public TLEField getErrorField() {
+		return errorField;
+	}
+
+	/**
+	 * Why the last tryParseXxx call failed.
+	 *
+	 * @return
+	 */
+	public Reason getErrorReason() {
+		return errorReason;
+	}
+
+	/**
+	 * Returns the text of the line last handed to the parser (used to
+	 * report bad lines, so allocating here is fine).
+	 *
+	 * @return
+	 */
+	String lastLine() {
+		// bad lines stay out of the pool.
+		final char[] arr = new char[length];
+		for (int i = 0; i < length; ++i) {
+			arr[i] = (char) at(i);
+		}
+		return new String(arr);
+	}
+
+	/**
+	 * Builds the exception the parseXxx methods throw for the last
+	 * failure.
+	 *
+	 * @return
+	 */
+	TLEException error() {
+		if (errorReason == Reason.CHECKSUM) {
+			return new TLEException("Checksum doesn't match on line "
+					+ errorField.getLine());
+		}
+		return new TLEException("Error processing TLE: " + errorReason
+				+ " in " + errorField + " (line " + errorField.getLine()
+				+ ", columns " + errorField.getFrom() + "-"
+				+ errorField.getTo() + ")");
+	}
+
+	/*
+	 * Single field access, for views that decode lazily.  The line is
+	 * len bytes of buf at the absolute position off; a bad field throws.
+	 */
+
+	boolean checksumMatches(final ByteBuffer buf, final int off,
+			final int len, final TLEField line) {
+		wrap(buf, off, len);
+		errorField = null;
+		errorReason = null;
+		return checksum(line);
+	}
+
+	int decodeInt(final ByteBuffer buf, final int off, final int len,
+			final TLEField field) throws TLEException {
+		wrap(buf, off, len);
+		errorField = null;
+		errorReason = null;
+		final int value = field == TLEField.SATELLITE_NUMBER
+				? catalogNumber() : integer(field);
+		check(errorField == null);
+		return value;
+	}
+
+	double decodeDouble(final ByteBuffer buf, final int off, final int len,
+			final TLEField field) throws TLEException {
+		wrap(buf, off, len);
+		errorField = null;
+		errorReason = null;
+		final double value;
+		switch (field) {
+		case ECCENTRICITY:
+			value = decimal(field, true);
+			break;
+		case DOT_DOT_MEAN_MOTION:
+			value = impliedExponent(field, false);
+			break;
+		case BSTAR_DRAG_TERM:
+			value = impliedExponent(field, true);
+			break;
+		default:
+			value = decimal(field, false);
+			break;
+		}
+		check(errorField == null);
+		return value;
+	}
+
+	/**
+	 * The epoch of a first line as a julian date, checked the same way as
+	 * a full parse.
+	 */
+	double decodeEpochJulianDate(final ByteBuffer buf, final int off,
+			final int len) throws TLEException {
+		wrap(buf, off, len);
+		errorField = null;
+		errorReason = null;
+		final int year = fullYear(integer(TLEField.EPOCH_YEAR));
+		final double epochDay = decimal(TLEField.EPOCH_DAY, false);
+		if (errorField == null) {
+			final int day = (int) epochDay;
+			if (day < 1 || day > (GregorianDate.isLeapYear(year) ? 366 : 365)) {
+				fail(TLEField.EPOCH_DAY, Reason.BAD_DATE);
+			}
+		}
+		check(errorField == null);
+		return JulianDate.julianDateOf(year, epochDay);
+	}
+
+	Classification decodeClassification(final ByteBuffer buf, final int off,
+			final int len) {
+		wrap(buf, off, len);
+		return Classification.fromChar((char) at(TLEField.CLASSIFICATION
+				.getFrom()));
+	}
+
+	String decodeText(final String current, final ByteBuffer buf,
+			final int off, final int len, final int from, final int to) {
+		wrap(buf, off, len);
+		return text(current, from, to);
+	}
+
+	private void check(final boolean ok) throws TLEException {
+		if (!ok) {
+			throw error();
+		}
+	}
+
+	/*
+	 * Source handling
+	 */
+
+	private void wrap(final CharSequence seq) {
+		kind = SRC_CHARS;
+		chars = seq;
+		offset = 0;
+		length = seq.length();
+	}
+
+	private void wrap(final byte[] buf, final int off, final int len) {
+		kind = SRC_BYTES;
+		bytes = buf;
+		offset = off;
+		length = len;
+	}
+
+	private void wrap(final ByteBuffer buf, final int off, final int len) {
+		kind = SRC_BUFFER;
+		buffer = buf;
+		offset = off;
+		length = len;
+	}
+
+	/**
+	 * Returns the character in column col of the current line, or -1 if
+	 * the line is not that long.
+	 *
+	 * @param col
+	 * @return
+	 */
+	private int at(final int col) {
+		if (col >= length) {
+			return -1;
+		}
+		switch (kind) {
+		case SRC_BYTES:
+			return bytes[offset + col] & 0xFF;
+		case SRC_BUFFER:
+			return buffer.get(offset + col) & 0xFF;
+		default:
+			return chars.charAt(col);
+		}
+	}
+
+	/**
+	 * Same rule as {@link TLEProcessor#checksumMatches(String)}.
+	 *
+	 * @param line
+	 *            LINE1 or LINE2, for the error
+	 * @return
+	 */
+	private boolean checksum(final TLEField line) {
+		if (length < LINE_LENGTH) {
+			fail(line, Reason.SHORT_LINE);
+			return false;
+		}
+		int rolling = 0;
+		for (int i = 0; i < LINE_LENGTH - 1; ++i) {
+			final int c = at(i);
+			if (c >= '0' && c <= '9') {
+				rolling += c - '0';
+			} else if (c == '-') {
+				++rolling;
+			}
+		}
+		if (at(LINE_LENGTH - 1) - '0' != rolling % 10) {
+			fail(line, Reason.CHECKSUM);
+			return false;
+		}
+		return true;
+	}
+
+	/*
+	 * Line decoding
+	 */
+
+	private boolean firstLine(final TLE out) {
+		errorField = null;
+		errorReason = null;
+		if (!checksum(TLEField.LINE1)) {
+			return false;
+		}
+
+		final int satelliteNumber = catalogNumber();
+		final int classification = at(TLEField.CLASSIFICATION.getFrom());
+		final int epochYear = integer(TLEField.EPOCH_YEAR);
+		final double epochDay = decimal(TLEField.EPOCH_DAY, false);
+		final double dotMeanMotion = decimal(TLEField.DOT_MEAN_MOTION, false);
+		final double dotDotMeanMotion = impliedExponent(
+				TLEField.DOT_DOT_MEAN_MOTION, false);
+		final double bstarDragTerm = impliedExponent(
+				TLEField.BSTAR_DRAG_TERM, true);
+		final int elementSetNumber = integer(TLEField.ELEMENT_SET_NUMBER);
+		if (errorField != null) {
+			return false;
+		}
+
+		final int year = fullYear(epochYear);
+		final int day = (int) epochDay;
+		final int daysInYear = GregorianDate.isLeapYear(year) ? 366 : 365;
+		if (day < 1 || day > daysInYear) {
+			fail(TLEField.EPOCH_DAY, Reason.BAD_DATE);
+			return false;
+		}
+
+		out.satelliteNumber = satelliteNumber;
+		out.internationalDesignator = text(out.internationalDesignator,
+				TLEField.INTERNATIONAL_DESIGNATOR.getFrom(),
+				TLEField.INTERNATIONAL_DESIGNATOR.getTo());
+		out.dotMeanMotion = dotMeanMotion;
+		out.dotDotMeanMotion = dotDotMeanMotion;
+		out.bstarDragTerm = bstarDragTerm;
+		out.elementSetNumber = elementSetNumber;
+		out.epoch = epoch(year, day);
+		out.epochJulianDate = JulianDate.julianDateOf(year, epochDay);
+		out.classification = Classification.fromChar((char) classification);
+		return true;
+	}
+
+	private boolean secondLine(final TLE out) {
+		errorField = null;
+		errorReason = null;
+		if (!checksum(TLEField.LINE2)) {
+			return false;
+		}
+
+		final double inclinationDeg = decimal(TLEField.INCLINATION, false);
+		final double raanDeg = decimal(TLEField.RAAN, false);
+		final double eccentricity = decimal(TLEField.ECCENTRICITY, true);
+		final double argPerigeeDeg = decimal(TLEField.ARG_PERIGEE, false);
+		final double meanAnomalyDeg = decimal(TLEField.MEAN_ANOMALY, false);
+		final double meanMotionRPD = decimal(TLEField.MEAN_MOTION, false);
+		final int revNumberAtEpoch = integer(TLEField.REV_NUMBER);
+		if (errorField != null) {
+			return false;
+		}
+
+		out.inclinationDeg = inclinationDeg;
+		out.raanDeg = raanDeg;
+		out.eccentricity = eccentricity;
+		out.argPerigeeDeg = argPerigeeDeg;
+		out.meanAnomalyDeg = meanAnomalyDeg;
+		out.meanMotionRPD = meanMotionRPD;
+		out.revNumberAtEpoch = revNumberAtEpoch;
+		return true;
+	}
+
+	/**
+	 * Turns the two digit epoch year into a full year.
+	 */
+	static int fullYear(final int epochYear) {
+		if (epochYear < 57) {
+			// assume we didn't launch anything prior to 1957
+			return epochYear + 2000;
+		}
+		return epochYear + 1900;
+	}
+
+	/**
+	 * Returns the epoch date for the year and day, reusing the last one
+	 * if it's the same day.
+	 */
+	private GregorianDate epoch(final int year, final int day) {
+		if (year != lastEpochYear || day != lastEpochDay
+				|| lastEpoch == null) {
+			lastEpoch = GregorianDate.fromYearAndDay(year, day);
+			lastEpochYear = year;
+			lastEpochDay = day;
+		}
+		return lastEpoch;
+	}
+
+	/*
+	 * Field decoders.  Each one works on the columns of its field in the
+	 * current line, ignores leading and trailing blanks (like trim()) and
+	 * records the first failure instead of throwing.
+	 */
+
+	private int trimStart(int from, final int to) {
+		while (from < to && at(from) <= ' ') {
+			++from;
+		}
+		return from;
+	}
+
+	private int trimEnd(final int from, int to) {
+		while (to > from && at(to - 1) <= ' ') {
+			--to;
+		}
+		return to;
+	}
+
+	private void fail(final TLEField field, final Reason reason) {
+		if (errorField == null) {
+			errorField = field;
+			errorReason = reason;
+		}
+	}
+
+	/**
+	 * Decodes a (signed) integer field.
+	 */
+	private int integer(final TLEField field) {
+		final int from = field.getFrom();
+		final int to = field.getTo();
+		int i = trimStart(from, to);
+		final int end = trimEnd(i, Math.min(to, length));
+		boolean negative = false;
+		if (i < end && (at(i) == '-' || at(i) == '+')) {
+			negative = at(i) == '-';
+			++i;
+		}
+		if (i >= end) {
+			fail(field, Reason.MISSING_VALUE);
+			return 0;
+		}
+		int value = 0;
+		for (; i < end; ++i) {
+			final int c = at(i);
+			if (c < '0' || c > '9') {
+				fail(field, Reason.BAD_NUMBER);
+				return 0;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Decodes the catalog number, which may be in Alpha-5 form, see
+	 * {@link TLECatalogNumber}.  It is never negative, so a sign is
+	 * rejected the same as {@link TLECatalogNumber#parse(CharSequence)} does.
+	 */
+	private int catalogNumber() {
+		final TLEField field = TLEField.SATELLITE_NUMBER;
+		final int from = field.getFrom();
+		final int to = Math.min(field.getTo(), length);
+		int i = trimStart(from, to);
+		if (i < to && (at(i) == '-' || at(i) == '+')) {
+			fail(field, Reason.BAD_NUMBER);
+			return 0;
+		}
+		if (i >= to || at(i) < 'A') {
+			return integer(field);
+		}
+		// Alpha-5: a letter then four digits, no blanks.
+		int value = TLECatalogNumber.leadingValue(at(i));
+		if (value < 0 || i != from || trimEnd(i, to) != field.getTo()) {
+			fail(field, Reason.BAD_NUMBER);
+			return 0;
+		}
+		for (++i; i < to; ++i) {
+			final int c = at(i);
+			if (c < '0' || c > '9') {
+				fail(field, Reason.BAD_NUMBER);
+				return 0;
+			}
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+	/**
+	 * Decodes a fixed point decimal field.  If impliedPoint is set the
+	 * field carries no decimal point and is read as ".digits" (the
+	 * eccentricity).
+	 */
+	private double decimal(final TLEField field,
+			final boolean impliedPoint) {
+		final int from = field.getFrom();
+		final int to = field.getTo();
+		int i = trimStart(from, to);
+		final int end = trimEnd(i, Math.min(to, length));
+		boolean negative = false;
+		if (!impliedPoint && i < end && (at(i) == '-' || at(i) == '+')) {
+			negative = at(i) == '-';
+			++i;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fraction = impliedPoint ? 0 : -1;
+		for (; i < end; ++i) {
+			final int c = at(i);
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				++digits;
+				if (fraction >= 0) {
+					++fraction;
+				}
+			} else if (c == '.' && fraction < 0) {
+				fraction = 0;
+			} else {
+				fail(field, Reason.BAD_NUMBER);
+				return 0;
+			}
+		}
+		if (digits == 0) {
+			fail(field, Reason.MISSING_VALUE);
+			return 0;
+		}
+		final double value = scale(mantissa, fraction > 0 ? -fraction : 0);
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Decodes an implied exponent field such as " 10191-3" or "-11606-4",
+	 * read as mantissa * 10^exponent the same way TLEProcessor does.  The
+	 * exponent may only be '+' signed when allowPlus is set.
+	 */
+	private double impliedExponent(final TLEField field,
+			final boolean allowPlus) {
+		final int from = field.getFrom();
+		final int to = field.getTo();
+		int i = trimStart(from, to);
+		final int end = trimEnd(i, Math.min(to, length));
+		boolean negative = false;
+		if (i < end && at(i) == '-') {
+			negative = true;
+			++i;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int fraction = -1;
+		for (; i < end; ++i) {
+			final int c = at(i);
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				++digits;
+				if (fraction >= 0) {
+					++fraction;
+				}
+			} else if (c == '.' && fraction < 0) {
+				fraction = 0;
+			} else {
+				break;
+			}
+		}
+		if (digits == 0) {
+			fail(field, Reason.MISSING_VALUE);
+			return 0;
+		}
+		int exponent = 0;
+		if (i < end) {
+			final int sign = at(i);
+			if (sign != '-' && !(allowPlus && sign == '+')) {
+				fail(field, Reason.BAD_NUMBER);
+				return 0;
+			}
+			if (++i >= end) {
+				fail(field, Reason.MISSING_VALUE);
+				return 0;
+			}
+			for (; i < end; ++i) {
+				final int c = at(i);
+				if (c < '0' || c > '9') {
+					fail(field, Reason.BAD_NUMBER);
+					return 0;
+				}
+				exponent = exponent * 10 + (c - '0');
+			}
+			if (sign == '-') {
+				exponent = -exponent;
+			}
+		}
+		if (fraction > 0) {
+			exponent -= fraction;
+		}
+		final double value = scale(mantissa, exponent);
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Returns the double nearest to mantissa * 10^exponent.
+	 */
+	static double scale(final long mantissa, final int exponent) {
+		if (exponent == 0) {
+			return mantissa;
+		} else if (exponent > 0 && exponent < POW10.length) {
+			return mantissa * POW10[exponent];
+		} else if (exponent < 0 && -exponent < POW10.length) {
+			return mantissa / POW10[-exponent];
+		}
+		// outside the exact range - let the JDK do the rounding.
+		return Double.parseDouble(mantissa + "E" + exponent);
+	}
+
+	/**
+	 * Returns the trimmed text in columns [from, to), handing back
+	 * current instead of a new String if it already holds that text.
+	 */
+	private String text(final String current, final int from, final int to) {
+		final int start = trimStart(from, Math.min(to, length));
+		final int end = trimEnd(start, Math.min(to, length));
+		final int len = end - start;
+		if (current != null && current.length() == len) {
+			boolean same = true;
+			for (int i = 0; i < len && same; ++i) {
+				same = current.charAt(i) == at(start + i);
+			}
+			if (same) {
+				return current;
+			}
+		}
+		if (pool != null) {
+			switch (kind) {
+			case SRC_BYTES:
+				return pool.intern(bytes, offset + start, len);
+			case SRC_BUFFER:
+				return pool.intern(buffer, offset + start, len);
+			default:
+				return pool.intern(chars, start, end);
+			}
+		}
+		switch (kind) {
+		case SRC_BYTES:
+			return new String(bytes, offset + start, len,
+					StandardCharsets.ISO_8859_1);
+		case SRC_BUFFER:
+			final char[] arr = new char[len];
+			for (int i = 0; i < len; ++i) {
+				arr[i] = (char) at(start + i);
+			}
+			return new String(arr);
+		default:
+			return chars.subSequence(start, end).toString();
+		}
+	}
+}
@@ -0,0 +1,310 @@
+/*
+ * TLEMergedCatalog.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One catalog built from several overlapping groups (e.g. the Celestrak
+ * group files), holding each element set once.  Two element sets are the
+ * same if they share catalog number, element set number and epoch.
+ *
+ * The groups an element set came from are kept as a bitset per element
+ * set, packed into a single long[].
+ *
+ * @author sean
+ */
+public final class TLEMergedCatalog {
+
+	private final TLECatalog catalog;
+	private final List<String> groups;
+
+	/**
+	 * Membership bits, words longs per element set.
+	 */
+	private final long[] membership;
+	private final int words;
+
+	private TLEMergedCatalog(final TLECatalog catalog,
+			final List<String> groups, final long[] membership,
+			final int words) {
+		this.catalog = catalog;
+		this.groups = groups;
+		this.membership = membership;
+		this.words = words;
+	}
+
+	/**
+	 * @return the unique element sets
+	 */
+	public TLECatalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * @return the number of unique element sets
+	 */
+	public int size() {
+		return catalog.size();
+	}
+
+	/**
+	 * @return the group names, in the order they were added
+	 */
+	public List<String> getGroupNames() {
+		return groups;
+	}
+
+	/**
+	 * @param name
+	 * @return the group's number, or -1 if there is no such group
+	 */
+	public int groupIndex(final String name) {
+		return groups.indexOf(name);
+	}
+
+	/**
+	 * @param i
+	 *            Element set
+	 * @param group
+	 *            Group number
+	 * @return true if element set i was in the group
+	 */
+	public boolean isInGroup(final int i, final int group) {
+		if (group < 0 || group >= groups.size()) {
+			return false;
+		}
+		return (membership[i * words + (group >>> 6)] & (1L << group)) != 0;
+	}
+
+	/**
+	 * @param i
+	 *            Element set
+	 * @param name
+	 *            Group name
+	 * @return true if element set i was in the group
+	 */
+	public boolean isInGroup(final int i, final String name) {
+		return isInGroup(i, groupIndex(name));
+	}
+
+	/**
+	 * @param i
+	 *            Element set
+	 * @return the numbers of the groups element set i was in
+	 */
+	public BitSet getGroups(final int i) {
+		return BitSet.valueOf(Arrays.copyOfRange(membership, i * words,
+				(i + 1) * words));
+	}
+
+	/**
+	 * @param group
+	 * @return the element sets in the group, in catalog order
+	 */
+	public int[] getMembers(final int group) {
+		int count = 0;
+		final int[] ret = new int[catalog.size()];
+		for (int i = 0; i < ret.length; ++i) {
+			if (isInGroup(i, group)) {
+				ret[count++] = i;
+			}
+		}
+		return Arrays.copyOf(ret, count);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLEMergedCatalog [size=");
+		builder.append(catalog.size());
+		builder.append(", groups=");
+		builder.append(groups);
+		builder.append("]");
+		return builder.toString();
+	}
+
+	/**
+	 * Merges groups as they are added.  Each element set is looked up in
+	 * an open addressing table keyed on (catalog number, element set
+	 * number, epoch); only ones not seen before are copied into the
+	 * catalog, the rest just get another membership bit.
+	 *
+	 * @author sean
+	 */
+	public static final class Builder {
+
+		private static final int EMPTY = -1;
+
+		private final TLECatalog.Builder catalog = new TLECatalog.Builder();
+		private final List<String> groups = new ArrayList<>();
+
+		private int[] table = new int[1024];
+		private int mask = table.length - 1;
+
+		private int[] numbers = new int[512];
+		private int[] elementSets = new int[512];
+		private double[] epochs = new double[512];
+		private int size;
+
+		private long[] membership = new long[512];
+		private int words = 1;
+
+		/**
+		 * Constructor.
+		 */
+		public Builder() {
+			Arrays.fill(table, EMPTY);
+		}
+
+		/**
+		 * Starts a new group.  Element sets passed to the returned sink
+		 * are merged into the catalog and marked as members of it.
+		 *
+		 * @param name
+		 * @return
+		 */
+		public TLESink group(final String name) {
+			final int group = groups.size();
+			groups.add(name);
+			if (group >= words * 64) {
+				widen();
+			}
+			return new TLESink() {
+				@Override
+				public void accept(final TLE tle) {
+					add(group, tle);
+				}
+			};
+		}
+
+		/**
+		 * Adds a whole group at once.
+		 *
+		 * @param name
+		 * @param tles
+		 */
+		public void addGroup(final String name, final TLE[] tles) {
+			final TLESink sink = group(name);
+			for (TLE tle : tles) {
+				sink.accept(tle);
+			}
+		}
+
+		private static int hash(final int number, final int elementSet,
+				final double epoch) {
+			final long bits = Double.doubleToLongBits(epoch);
+			int h = number * 31 + elementSet;
+			h = h * 31 + (int) (bits ^ (bits >>> 32));
+			h ^= h >>> 16;
+			h *= 0x85EBCA6B;
+			h ^= h >>> 13;
+			return h;
+		}
+
+		private void add(final int group, final TLE tle) {
+			int slot = hash(tle.satelliteNumber, tle.elementSetNumber,
+					tle.epochJulianDate) & mask;
+			int i;
+			while ((i = table[slot]) != EMPTY) {
+				if (numbers[i] == tle.satelliteNumber
+						&& elementSets[i] == tle.elementSetNumber
+						&& epochs[i] == tle.epochJulianDate) {
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			if (i == EMPTY) {
+				i = size++;
+				if (i == numbers.length) {
+					grow();
+				}
+				numbers[i] = tle.satelliteNumber;
+				elementSets[i] = tle.elementSetNumber;
+				epochs[i] = tle.epochJulianDate;
+				table[slot] = i;
+				catalog.accept(tle);
+				if (size * 2 > table.length) {
+					rehash();
+				}
+			}
+			membership[i * words + (group >>> 6)] |= 1L << group;
+		}
+
+		private void grow() {
+			final int capacity = numbers.length * 2;
+			numbers = Arrays.copyOf(numbers, capacity);
+			elementSets = Arrays.copyOf(elementSets, capacity);
+			epochs = Arrays.copyOf(epochs, capacity);
+			membership = Arrays.copyOf(membership, capacity * words);
+		}
+
+		private void rehash() {
+			table = new int[table.length * 2];
+			mask = table.length - 1;
+			Arrays.fill(table, EMPTY);
+			for (int i = 0; i < size; ++i) {
+				int slot = hash(numbers[i], elementSets[i], epochs[i]) & mask;
+				while (table[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = i;
+			}
+		}
+
+		/**
+		 * Another 64 groups per element set.
+		 */
+		private void widen() {
+			final long[] wider = new long[numbers.length * (words + 1)];
+			for (int i = 0; i < size; ++i) {
+				System.arraycopy(membership, i * words, wider,
+						i * (words + 1), words);
+			}
+			membership = wider;
+			++words;
+		}
+
+		/**
+		 * @return the number of unique element sets so far
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @return the merged catalog of everything added so far
+		 */
+		public TLEMergedCatalog build() {
+			return new TLEMergedCatalog(catalog.build(),
+					Collections.unmodifiableList(new ArrayList<>(groups)),
+					Arrays.copyOf(membership, size * words), words);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * TLEParseError.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+/**
+ * Describes one rejected element set.  These are plain values, not
+ * exceptions, so recording one costs no stack trace.
+ *
+ * @author sean
+ */
+public final class TLEParseError {
+
+	/**
+	 * Why a record was rejected.
+	 */
+	public static enum Reason {
+		/**
+		 * The line's checksum digit doesn't add up.
+		 */
+		CHECKSUM,
+		/**
+		 * The line is shorter than 69 columns.
+		 */
+		SHORT_LINE,
+		/**
+		 * The stream ended in the middle of an element set.
+		 */
+		MISSING_LINE,
+		/**
+		 * A line isn't the kind expected at this point.
+		 */
+		UNEXPECTED_LINE,
+		/**
+		 * A numeric field is blank.
+		 */
+		MISSING_VALUE,
+		/**
+		 * A numeric field holds something other than a number.
+		 */
+		BAD_NUMBER,
+		/**
+		 * The epoch year/day is not a real date.
+		 */
+		BAD_DATE;
+	}
+
+	private final long lineNumber;
+	private final TLEField field;
+	private final Reason reason;
+	private final String line;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param lineNumber
+	 * @param field
+	 * @param reason
+	 * @param line
+	 */
+	public TLEParseError(final long lineNumber, final TLEField field,
+			final Reason reason, final String line) {
+		this.lineNumber = lineNumber;
+		this.field = field;
+		this.reason = reason;
+		this.line = line;
+	}
+
+	/**
+	 * The (1 based) number of the offending line.
+	 *
+	 * @return
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * The field that failed.
+	 *
+	 * @return
+	 */
+	public TLEField getField() {
+		return field;
+	}
+
+	/**
+	 * Why it failed.
+	 *
+	 * @return
+	 */
+	public Reason getReason() {
+		return reason;
+	}
+
+	/**
+	 * The raw text of the offending line, or null if there wasn't one.
+	 *
+	 * @return
+	 */
+	public String getLine() {
+		return line;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLEParseError [lineNumber=");
+		builder.append(lineNumber);
+		builder.append(", field=");
+		builder.append(field);
+		builder.append(", reason=");
+		builder.append(reason);
+		builder.append(", line=");
+		builder.append(line);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ * TLEParseReport.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.smmsp.core.tle.TLEParseError.Reason;
+
+/**
+ * Collects the outcome of a lenient parse: how many element sets were
+ * accepted, how many were rejected for which reason and field, and the
+ * first few rejected records themselves.
+ *
+ * Handing one of these to a {@link TLEReader} (or to the lenient
+ * TLEProcessor methods) makes the parse skip bad records instead of
+ * throwing.  Not thread safe - parallel parses keep one per worker and
+ * merge them.
+ *
+ * @author sean
+ */
+public class TLEParseReport {
+
+	/**
+	 * Default number of errors kept in detail.
+	 */
+	public static final int DEFAULT_MAX_ERRORS = 1000;
+
+	private final int maxErrors;
+
+	private long accepted;
+	private long rejected;
+	private final long[] byReason = new long[Reason.values().length];
+	private final long[] byField = new long[TLEField.values().length];
+	private final List<TLEParseError> errors = new ArrayList<>();
+
+	/**
+	 * Constructor, keeps the first {@link #DEFAULT_MAX_ERRORS} errors.
+	 */
+	public TLEParseReport() {
+		this(DEFAULT_MAX_ERRORS);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxErrors
+	 *            How many errors to keep in detail, the counters keep
+	 *            counting past this.
+	 */
+	public TLEParseReport(final int maxErrors) {
+		this.maxErrors = maxErrors;
+	}
+
+	/**
+	 * Counts an element set that parsed cleanly.
+	 */
+	public void accepted() {
+		++accepted;
+	}
+
+	/**
+	 * Counts a rejected element set.
+	 *
+	 * @param lineNumber
+	 * @param field
+	 * @param reason
+	 * @param line
+	 *            Raw text of the line, only kept if there's room
+	 */
+	public void rejected(final long lineNumber, final TLEField field,
+			final Reason reason, final CharSequence line) {
+		++rejected;
+		++byReason[reason.ordinal()];
+		++byField[field.ordinal()];
+		if (errors.size() < maxErrors) {
+			errors.add(new TLEParseError(lineNumber, field, reason,
+					line == null ? null : line.toString()));
+		}
+	}
+
+	/**
+	 * Adds the counts and errors of other to this report, shifting its
+	 * line numbers by lineOffset.
+	 *
+	 * @param other
+	 * @param lineOffset
+	 */
+	public void merge(final TLEParseReport other, final long lineOffset) {
+		accepted += other.accepted;
+		rejected += other.rejected;
+		for (int i = 0; i < byReason.length; ++i) {
+			byReason[i] += other.byReason[i];
+		}
+		for (int i = 0; i < byField.length; ++i) {
+			byField[i] += other.byField[i];
+		}
+		for (TLEParseError err : other.errors) {
+			if (errors.size() >= maxErrors) {
+				break;
+			}
+			errors.add(lineOffset == 0 ? err : new TLEParseError(
+					err.getLineNumber() + lineOffset, err.getField(),
+					err.getReason(), err.getLine()));
+		}
+	}
+
+	/**
+	 * @return true if another rejection would be kept in detail, so
+	 *         callers only build the line text when it will be used
+	 */
+	public boolean keepsErrors() {
+		return errors.size() < maxErrors;
+	}
+
+	/**
+	 * @return the number of element sets accepted
+	 */
+	public long getAccepted() {
+		return accepted;
+	}
+
+	/**
+	 * @return the number of element sets rejected
+	 */
+	public long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * @param reason
+	 * @return the number of element sets rejected for reason
+	 */
+	public long getRejected(final Reason reason) {
+		return byReason[reason.ordinal()];
+	}
+
+	/**
+	 * @param field
+	 * @return the number of element sets rejected because of field
+	 */
+	public long getRejected(final TLEField field) {
+		return byField[field.ordinal()];
+	}
+
+	/**
+	 * @return the first rejected records, in the order they were found
+	 */
+	public List<TLEParseError> getErrors() {
+		return Collections.unmodifiableList(errors);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLEParseReport [accepted=");
+		builder.append(accepted);
+		builder.append(", rejected=");
+		builder.append(rejected);
+		for (Reason reason : Reason.values()) {
+			if (byReason[reason.ordinal()] > 0) {
+				builder.append(", ");
+				builder.append(reason);
+				builder.append('=');
+				builder.append(byReason[reason.ordinal()]);
+			}
+		}
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -21,15 +21,15 @@
  */
 package com.smmsp.core.tle;
 
-import java.io.BufferedReader;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
 
 import com.smmsp.core.Classification;
+import com.smmsp.core.tle.TLEParseError.Reason;
 import com.smmsp.time.GregorianDate;
+import com.smmsp.time.JulianDate;
 
 /**
  * @author sean
@@ -41,38 +41,90 @@ public final class TLEProcessor {
 		// do nothing.
 	}
 
+	/**
+	 * Parses every element set in the stream, two and three line sets
+	 * may be mixed.  The stream is read record by record (see
+	 * {@link TLEReader}), only the parsed TLEs are held in memory.
+	 * 
+	 * @param is
+	 * @return
+	 * @throws TLEException
+	 */
 	public static TLE[] fromInputStream(final InputStream is) throws TLEException{
-		final BufferedReader read = new BufferedReader(new InputStreamReader(is));
-		
-		final LinkedList<String> strings = new LinkedList<String>();
+		final TLEReader reader = new TLEReader(is);
 		final ArrayList<TLE> ret = new ArrayList<TLE>();
 		
-		String line = "";
-		try {
-			while((line = read.readLine()) != null){
-				strings.add(line);
-			}
-		} catch (IOException e) {
-			throw new TLEException("Unable to get line", e);
+		while(reader.hasNext()){
+			ret.add(reader.next());
 		}
 		
-		if(strings.size() % 3 != 0){
-			throw new TLEException("Wrong number of lines!");
-		}
+		return ret.toArray(new TLE[ret.size()]);
+	}
+	
+	/**
+	 * Streams every (two or three line) element set in the stream to
+	 * sink as soon as it has been read, memory use does not grow with
+	 * the input.
+	 * 
+	 * @param is
+	 * @param sink Receives each TLE, the instance is reused between calls.
+	 * @return The number of element sets read
+	 * @throws TLEException
+	 */
+	public static int fromInputStream(final InputStream is, 
+			final TLESink sink) throws TLEException{
+		return new TLEReader(is).drainTo(sink);
+	}
+	
+	/**
+	 * Lenient version of {@link #fromInputStream(InputStream)}: bad
+	 * element sets are skipped and described in report instead of
+	 * aborting the whole stream.
+	 * 
+	 * @param is
+	 * @param report Receives the counts and the rejected records
+	 * @return The good element sets
+	 * @throws TLEException On a read error
+	 */
+	public static TLE[] fromInputStream(final InputStream is,
+			final TLEParseReport report) throws TLEException{
+		final TLEReader reader = new TLEReader(is);
+		reader.setReport(report);
+		final ArrayList<TLE> ret = new ArrayList<TLE>();
 		
-		while(!strings.isEmpty()){
-			final ArrayList<String> list = new ArrayList<String>();
-			list.add(strings.pollFirst());
-			list.add(strings.pollFirst());
-			list.add(strings.pollFirst());
-			String[] arr = list.toArray(new String[list.size()]);
-			ret.add(fromString(arr));
-			
+		while(reader.hasNext()){
+			ret.add(reader.next());
 		}
 		
 		return ret.toArray(new TLE[ret.size()]);
 	}
 	
+	/**
+	 * Parses a catalog file on disk (for instance a cached Celestrak
+	 * group file) by memory mapping it and parsing it in parallel.
+	 * 
+	 * @param file
+	 * @return The element sets, in file order
+	 * @throws TLEException
+	 * @see TLEFileParser
+	 */
+	public static TLE[] fromFile(final Path file) throws TLEException{
+		return TLEFileParser.parse(file);
+	}
+	
+	/**
+	 * Lenient version of {@link #fromFile(Path)}.
+	 * 
+	 * @param file
+	 * @param report Receives the counts and the rejected records
+	 * @return The good element sets, in file order
+	 * @throws TLEException If the file can't be read
+	 */
+	public static TLE[] fromFile(final Path file, 
+			final TLEParseReport report) throws TLEException{
+		return TLEFileParser.parse(file, ForkJoinPool.commonPool(), report);
+	}
+	
 	public static TLE fromString(String[] lines) throws TLEException {
 		final int numLines = lines.length;
 		if (numLines > 3) {
@@ -84,7 +136,8 @@ public final class TLEProcessor {
 		final TLE theTLE = new TLE();
 
 		if (numLines == 3) {
-			theTLE.satelliteName = lines[0].trim();
+			theTLE.satelliteName = TLEStringPool.getDefault().intern(
+					lines[0].trim());
 			processFirstLine(theTLE, lines[1]);
 			processSecondLine(theTLE, lines[2]);
 		} else if (numLines == 2) {
@@ -95,15 +148,56 @@ public final class TLEProcessor {
 		return theTLE;
 	}
 
+	/**
+	 * Lenient version of {@link #fromString(String[])}, returns null and
+	 * adds an entry to report instead of throwing.
+	 * 
+	 * @param lines
+	 * @param report
+	 * @return The element set, or null if it was rejected
+	 */
+	public static TLE fromString(final String[] lines, 
+			final TLEParseReport report) {
+		final int numLines = lines.length;
+		if (numLines < 2 || numLines > 3) {
+			// the first line that is missing, or the first extra one.
+			report.rejected(numLines < 2 ? numLines + 1 : 4, 
+					numLines < 2 ? TLEField.LINE2 : TLEField.NAME, 
+					numLines < 2 ? Reason.MISSING_LINE : Reason.UNEXPECTED_LINE, 
+					null);
+			return null;
+		}
+		
+		final TLELineParser parser = new TLELineParser();
+		final TLE theTLE = new TLE();
+		final int first = numLines - 2;
+		if (numLines == 3) {
+			parser.parseName(theTLE, lines[0]);
+		}
+		if (!parser.tryParseFirstLine(theTLE, lines[first])) {
+			report.rejected(first + 1, parser.getErrorField(), 
+					parser.getErrorReason(), lines[first]);
+			return null;
+		}
+		if (!parser.tryParseSecondLine(theTLE, lines[first + 1])) {
+			report.rejected(first + 2, parser.getErrorField(), 
+					parser.getErrorReason(), lines[first + 1]);
+			return null;
+		}
+		report.accepted();
+		return theTLE;
+	}
+
 	protected static void processFirstLine(final TLE out, final String line)
 			throws TLEException {
 		if(!checksumMatches(line)){
 			throw new TLEException("Checksum doesn't match on line 1");
 		}
 		try {
-			out.satelliteNumber = Integer.valueOf(line.substring(2, 7).trim());
+			out.satelliteNumber = TLECatalogNumber.parse(line.substring(2, 7));
 			final char classification = line.charAt(7);
-			out.internationalDesignator = line.substring(9, 17).trim();
+			out.internationalDesignator = TLEStringPool.getDefault().intern(
+					line.substring(9, 17).trim());
 			int epochYear = Integer.valueOf(line.substring(18, 20).trim());
 			if (epochYear < 57) {
 				// assume we didn't launch anything prior to 1957
@@ -133,6 +227,7 @@ public final class TLEProcessor {
 					.trim());
 
 			out.epoch = GregorianDate.fromYearAndDay(epochYear, (int) epochDay);
+			out.epochJulianDate = JulianDate.julianDateOf(epochYear, epochDay);
 			out.classification = Classification.fromChar(classification);
 		} catch (Exception e) {
 			throw new TLEException("Error processing TLE", e);
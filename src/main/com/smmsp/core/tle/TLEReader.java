@@ -0,0 +1,427 @@
+/*
+ * TLEReader.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.smmsp.core.tle.TLEParseError.Reason;
+
+/**
+ * Streams element sets out of an InputStream one record at a time.
+ *
+ * Lines are split inside a single byte buffer (see {@link ByteLineReader})
+ * and handed straight to a {@link TLELineParser}, so memory use is
+ * bounded by the longest line rather than the size of the input.  Use
+ * {@link #next(TLE)} to refill one TLE over the whole stream, or the
+ * Iterator methods to get a new TLE per record.
+ *
+ * By default a bad record throws a {@link TLEException}.  Once a
+ * {@link TLEParseReport} is set the reader is lenient: bad records are
+ * counted and described in the report and skipped, and the parse goes
+ * on with the next record.
+ *
+ * A reader can also walk a region of a ByteBuffer (typically a mapped
+ * file, see {@link TLEFileParser}) in place, without copying any bytes.
+ *
+ * Instances are NOT thread safe.
+ *
+ * @author sean
+ */
+public class TLEReader implements Iterator<TLE>, Closeable {
+
+	/**
+	 * Default size of the line buffer.
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/**
+	 * Name lines are at most this long, anything longer that starts with
+	 * a line number marker is taken as data.
+	 */
+	static final int MAX_NAME_LENGTH = 24;
+
+	/*
+	 * Line kinds, see classify()
+	 */
+	private static final int BLANK = 0;
+	private static final int NAME = 1;
+	private static final int LINE1 = 2;
+	private static final int LINE2 = 3;
+
+	private final ByteLineReader lines;
+
+	private final TLELineParser parser = new TLELineParser();
+
+	/**
+	 * The line most recently returned by nextLine(), if replay is set
+	 * the next call hands it back again.
+	 */
+	private int lineStart;
+	private int lineLength;
+	private boolean replay;
+
+	/**
+	 * Where bad records go in lenient mode, null for strict.
+	 */
+	private TLEParseReport report;
+
+	/**
+	 * Read ahead for the Iterator methods.
+	 */
+	private TLE pending;
+	private boolean done;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param is
+	 */
+	public TLEReader(final InputStream is) {
+		this(is, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param is
+	 * @param bufferSize
+	 *            Initial size of the line buffer, it grows if a line
+	 *            doesn't fit.
+	 */
+	public TLEReader(final InputStream is, final int bufferSize) {
+		this.lines = new ByteLineReader(is, bufferSize);
+	}
+
+	/**
+	 * Constructor, reads the bytes [start, end) of buffer in place.  Only
+	 * absolute gets are used so the buffer may be shared between readers.
+	 *
+	 * @param buffer
+	 * @param start
+	 * @param end
+	 */
+	public TLEReader(final ByteBuffer buffer, final int start, final int end) {
+		this.lines = new ByteLineReader(buffer, start, end);
+	}
+
+	/**
+	 * Makes this reader lenient, reporting bad records to report instead
+	 * of throwing.  Pass null to go back to strict.
+	 *
+	 * @param report
+	 */
+	public void setReport(final TLEParseReport report) {
+		this.report = report;
+	}
+
+	/**
+	 * @return the report bad records go to, or null if strict
+	 */
+	public TLEParseReport getReport() {
+		return report;
+	}
+
+	/**
+	 * Reads the next element set into out.  Two and three line sets may
+	 * be mixed freely: every line is classified by its leading "1 "/"2 "
+	 * marker and length, a line 1 with no name in front of it leaves
+	 * satelliteName null.  Blank lines are ignored.
+	 *
+	 * If the reader is lenient bad records are skipped, so the contents
+	 * of out are unspecified once this returns false.
+	 *
+	 * @param out
+	 *            The TLE to fill
+	 * @return False if the stream is exhausted
+	 * @throws TLEException
+	 *             On a malformed record (strict only) or read error
+	 */
+	public boolean next(final TLE out) throws TLEException {
+		boolean named = false;
+		while (nextLine()) {
+			final int kind = classify();
+			if (kind == BLANK) {
+				continue;
+			} else if (kind == NAME) {
+				if (named) {
+					// two names in a row, the first one has no data.
+					unexpected(TLEField.LINE1);
+				}
+				name(out);
+				named = true;
+				continue;
+			} else if (kind == LINE2) {
+				unexpected(TLEField.LINE1);
+				named = false;
+				continue;
+			}
+
+			if (!named) {
+				out.satelliteName = null;
+			}
+			named = false;
+			if (!firstLine(out)) {
+				// drop the matching line 2 to stay in step.
+				if (nextLine() && classify() != LINE2) {
+					replay = true;
+				}
+				continue;
+			}
+			if (!nextLine()) {
+				return missingLine(TLEField.LINE2);
+			}
+			if (classify() != LINE2) {
+				unexpected(TLEField.LINE2);
+				replay = true;
+				continue;
+			}
+			if (!secondLine(out)) {
+				continue;
+			}
+			if (report != null) {
+				report.accepted();
+			}
+			return true;
+		}
+		if (named) {
+			return missingLine(TLEField.LINE1);
+		}
+		return false;
+	}
+
+	/**
+	 * Feeds every remaining element set to sink, reusing one TLE.
+	 *
+	 * @param sink
+	 * @return The number of element sets read
+	 * @throws TLEException
+	 */
+	public int drainTo(final TLESink sink) throws TLEException {
+		final TLE tle = new TLE();
+		int count = 0;
+		while (next(tle)) {
+			sink.accept(tle);
+			++count;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of the last line read (1 based).
+	 *
+	 * @return
+	 */
+	public long getLineNumber() {
+		return lines.getLineNumber();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#hasNext()
+	 */
+	@Override
+	public boolean hasNext() throws TLEException {
+		if (pending == null && !done) {
+			final TLE tle = new TLE();
+			if (next(tle)) {
+				pending = tle;
+			} else {
+				done = true;
+			}
+		}
+		return pending != null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#next()
+	 */
+	@Override
+	public TLE next() throws TLEException {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final TLE tle = pending;
+		pending = null;
+		return tle;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#remove()
+	 */
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		lines.close();
+	}
+
+	private void name(final TLE out) {
+		if (lines.buffer() == null) {
+			parser.parseName(out, lines.array(), lineStart, lineLength);
+		} else {
+			parser.parseName(out, lines.buffer(), lineStart, lineLength);
+		}
+	}
+
+	private boolean firstLine(final TLE out) throws TLEException {
+		final boolean ok;
+		if (lines.buffer() == null) {
+			ok = parser.tryParseFirstLine(out, lines.array(), lineStart,
+					lineLength);
+		} else {
+			ok = parser.tryParseFirstLine(out, lines.buffer(), lineStart,
+					lineLength);
+		}
+		return ok || rejected();
+	}
+
+	private boolean secondLine(final TLE out) throws TLEException {
+		final boolean ok;
+		if (lines.buffer() == null) {
+			ok = parser.tryParseSecondLine(out, lines.array(), lineStart,
+					lineLength);
+		} else {
+			ok = parser.tryParseSecondLine(out, lines.buffer(), lineStart,
+					lineLength);
+		}
+		return ok || rejected();
+	}
+
+	/**
+	 * Throws the parser's error if strict, otherwise reports it.
+	 *
+	 * @return false
+	 * @throws TLEException
+	 */
+	private boolean rejected() throws TLEException {
+		if (report == null) {
+			throw parser.error();
+		}
+		report.rejected(lines.getLineNumber(), parser.getErrorField(),
+				parser.getErrorReason(),
+				report.keepsErrors() ? parser.lastLine() : null);
+		return false;
+	}
+
+	/**
+	 * A line turned up where another kind was expected.
+	 *
+	 * @param expected
+	 * @throws TLEException
+	 */
+	private void unexpected(final TLEField expected) throws TLEException {
+		if (report == null) {
+			throw new TLEException("Unexpected line " + lines.getLineNumber()
+					+ ", expected " + expected);
+		}
+		report.rejected(lines.getLineNumber(), expected,
+				Reason.UNEXPECTED_LINE, report.keepsErrors() ? lineText() : null);
+	}
+
+	/**
+	 * Works out what the current line is from its first two columns and
+	 * its length.
+	 *
+	 * @return
+	 */
+	private int classify() {
+		int len = lineLength;
+		while (len > 0 && (byteAt(lineStart + len - 1) & 0xFF) <= ' ') {
+			--len;
+		}
+		if (len == 0) {
+			return BLANK;
+		}
+		if (len > MAX_NAME_LENGTH && byteAt(lineStart + 1) == ' ') {
+			final byte marker = byteAt(lineStart);
+			if (marker == '1') {
+				return LINE1;
+			} else if (marker == '2') {
+				return LINE2;
+			}
+		}
+		return NAME;
+	}
+
+	/**
+	 * Returns the current line as a String (for error reports only).
+	 *
+	 * @return
+	 */
+	private String lineText() {
+		final char[] text = new char[lineLength];
+		for (int i = 0; i < lineLength; ++i) {
+			text[i] = (char) (byteAt(lineStart + i) & 0xFF);
+		}
+		return new String(text);
+	}
+
+	/**
+	 * The stream ended inside an element set.
+	 *
+	 * @param line
+	 * @return false
+	 * @throws TLEException
+	 */
+	private boolean missingLine(final TLEField line) throws TLEException {
+		if (report == null) {
+			throw new TLEException("Wrong number of lines!");
+		}
+		report.rejected(lines.getLineNumber(), line, Reason.MISSING_LINE,
+				null);
+		return false;
+	}
+
+	/**
+	 * Advances to the next line, setting lineStart and lineLength (without
+	 * the terminator).
+	 *
+	 * @return False at the end of the stream
+	 * @throws TLEException
+	 */
+	private boolean nextLine() throws TLEException {
+		if (replay) {
+			replay = false;
+			return true;
+		}
+		if (!lines.next()) {
+			return false;
+		}
+		lineStart = lines.getStart();
+		lineLength = lines.getLength();
+		return true;
+	}
+
+	private byte byteAt(final int idx) {
+		return lines.byteAt(idx);
+	}
+}
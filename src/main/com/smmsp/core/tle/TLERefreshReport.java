@@ -0,0 +1,170 @@
+/*
+ * TLERefreshReport.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a cache refresh: what happened to each file, how long
+ * it took, and how long the whole refresh took.
+ *
+ * @author sean
+ */
+public class TLERefreshReport {
+
+	/**
+	 * What happened to one file.
+	 */
+	public enum Status {
+		/**
+		 * Downloaded again.
+		 */
+		UPDATED,
+		/**
+		 * The cached copy was still good.
+		 */
+		FRESH,
+		/**
+		 * The refresh failed, see {@link FileResult#getError()}.
+		 */
+		FAILED
+	}
+
+	/**
+	 * The outcome for one file.
+	 */
+	public static final class FileResult {
+
+		private final TLESetLocation location;
+		private final Status status;
+		private final long millis;
+		private final Throwable error;
+
+		FileResult(final TLESetLocation location, final Status status,
+				final long millis, final Throwable error) {
+			this.location = location;
+			this.status = status;
+			this.millis = millis;
+			this.error = error;
+		}
+
+		public TLESetLocation getLocation() {
+			return location;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return how long the file took, including waiting for its host
+		 */
+		public long getMillis() {
+			return millis;
+		}
+
+		/**
+		 * @return why the file failed, null unless FAILED
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			StringBuilder builder = new StringBuilder();
+			builder.append("FileResult [name=");
+			builder.append(location.getName());
+			builder.append(", status=");
+			builder.append(status);
+			builder.append(", millis=");
+			builder.append(millis);
+			if (error != null) {
+				builder.append(", error=");
+				builder.append(error);
+			}
+			builder.append("]");
+			return builder.toString();
+		}
+	}
+
+	private final List<FileResult> results;
+	private final long wallMillis;
+
+	TLERefreshReport(final List<FileResult> results, final long wallMillis) {
+		this.results = Collections.unmodifiableList(new ArrayList<>(results));
+		this.wallMillis = wallMillis;
+	}
+
+	/**
+	 * @return the result for each file, in the order they were given
+	 */
+	public List<FileResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * @return how long the whole refresh took
+	 */
+	public long getWallMillis() {
+		return wallMillis;
+	}
+
+	/**
+	 * @param status
+	 * @return the number of files that ended up with status
+	 */
+	public int count(final Status status) {
+		int count = 0;
+		for (FileResult result : results) {
+			if (result.getStatus() == status) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLERefreshReport [files=");
+		builder.append(results.size());
+		for (Status status : Status.values()) {
+			builder.append(", ");
+			builder.append(status);
+			builder.append('=');
+			builder.append(count(status));
+		}
+		builder.append(", wallMillis=");
+		builder.append(wallMillis);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * TLESink.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+/**
+ * Receives element sets as they are parsed out of a stream.
+ *
+ * The TLE handed to {@link #accept(TLE)} is reused for the next record,
+ * so an implementation that wants to keep it must copy the fields it
+ * needs before returning.
+ *
+ * @author sean
+ */
+public interface TLESink {
+
+	/**
+	 * Called once for every element set, in stream order.
+	 *
+	 * @param tle
+	 *            The parsed element set (only valid during this call)
+	 */
+	void accept(TLE tle);
+}
@@ -0,0 +1,235 @@
+/*
+ * TLEStringPool.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded pool of satellite names and designators, so the same text
+ * read again (the next refresh, another group file, a history snapshot)
+ * comes back as the same String instance instead of another copy.
+ *
+ * Lookups hash the raw characters or bytes in place, a String is only
+ * created on a miss.  The table has a fixed number of slots and each
+ * text may live in one of a few neighbouring ones; when they are all
+ * taken a miss replaces one of them.  So the pool never grows, a lost
+ * entry just means a duplicate String, and races between threads are
+ * harmless - no locks are needed.
+ *
+ * Bytes are read as ISO-8859-1, the same as {@link TLELineParser}.
+ *
+ * @author sean
+ */
+public final class TLEStringPool {
+
+	/**
+	 * Sized from the strings the full public catalog brings: about 50k
+	 * names and as many designators.  That's 100k texts, so 2^17 slots
+	 * keeps the table a little over three quarters full, and with 4-way
+	 * sets few texts are pushed out by their neighbours.  The table is
+	 * 2^17 references, about 512KB with compressed pointers.
+	 */
+	public static final int DEFAULT_CAPACITY = 1 << 17;
+
+	/**
+	 * Number of slots a text may go in.
+	 */
+	private static final int WAYS = 4;
+
+	private static final TLEStringPool DEFAULT =
+			new TLEStringPool(DEFAULT_CAPACITY);
+
+	private static final int SRC_CHARS = 0;
+	private static final int SRC_BYTES = 1;
+	private static final int SRC_BUFFER = 2;
+
+	private final AtomicReferenceArray<String> table;
+	private final int mask;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            Number of slots, rounded up to a power of two
+	 */
+	public TLEStringPool(final int capacity) {
+		int slots = WAYS;
+		while (slots < capacity) {
+			slots <<= 1;
+		}
+		table = new AtomicReferenceArray<>(slots);
+		mask = slots - 1;
+	}
+
+	/**
+	 * The pool the parsers and catalogs share unless they're given one.
+	 *
+	 * @return
+	 */
+	public static TLEStringPool getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * @return the number of slots
+	 */
+	public int capacity() {
+		return table.length();
+	}
+
+	/**
+	 * @param s
+	 * @return the pooled String equal to s (s itself if it wasn't pooled)
+	 */
+	public String intern(final String s) {
+		if (s == null) {
+			return null;
+		}
+		final int h = s.hashCode();
+		final int home = spread(h);
+		for (int i = 0; i < WAYS; ++i) {
+			final String cur = table.get((home + i) & mask);
+			if (cur == null) {
+				break;
+			}
+			if (cur.hashCode() == h && cur.equals(s)) {
+				return cur;
+			}
+		}
+		store(home, h, s);
+		return s;
+	}
+
+	/**
+	 * @param s
+	 * @param from
+	 * @param to
+	 * @return the pooled String for s.subSequence(from, to)
+	 */
+	public String intern(final CharSequence s, final int from, final int to) {
+		return find(SRC_CHARS, s, from, to - from);
+	}
+
+	/**
+	 * @param buf
+	 * @param off
+	 * @param len
+	 * @return the pooled String for len bytes of buf at off
+	 */
+	public String intern(final byte[] buf, final int off, final int len) {
+		return find(SRC_BYTES, buf, off, len);
+	}
+
+	/**
+	 * @param buf
+	 * @param off
+	 *            Absolute position, the buffer's position isn't used or
+	 *            changed
+	 * @param len
+	 * @return the pooled String for len bytes of buf at off
+	 */
+	public String intern(final ByteBuffer buf, final int off, final int len) {
+		return find(SRC_BUFFER, buf, off, len);
+	}
+
+	private static int charAt(final int kind, final Object src,
+			final int idx) {
+		switch (kind) {
+		case SRC_BYTES:
+			return ((byte[]) src)[idx] & 0xFF;
+		case SRC_BUFFER:
+			return ((ByteBuffer) src).get(idx) & 0xFF;
+		default:
+			return ((CharSequence) src).charAt(idx);
+		}
+	}
+
+	private String find(final int kind, final Object src, final int off,
+			final int len) {
+		// same as String.hashCode, which Strings cache.
+		int h = 0;
+		for (int i = 0; i < len; ++i) {
+			h = 31 * h + charAt(kind, src, off + i);
+		}
+		final int home = spread(h);
+		for (int i = 0; i < WAYS; ++i) {
+			final String cur = table.get((home + i) & mask);
+			if (cur == null) {
+				break;
+			}
+			if (cur.hashCode() == h && cur.length() == len
+					&& same(cur, kind, src, off)) {
+				return cur;
+			}
+		}
+
+		final char[] chars = new char[len];
+		for (int i = 0; i < len; ++i) {
+			chars[i] = (char) charAt(kind, src, off + i);
+		}
+		final String s = new String(chars);
+		store(home, h, s);
+		return s;
+	}
+
+	private static boolean same(final String cur, final int kind,
+			final Object src, final int off) {
+		for (int i = 0, len = cur.length(); i < len; ++i) {
+			if (cur.charAt(i) != charAt(kind, src, off + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Puts s in the first free slot, or over one picked from the hash.
+	 */
+	private void store(final int home, final int h, final String s) {
+		for (int i = 0; i < WAYS; ++i) {
+			if (table.compareAndSet((home + i) & mask, null, s)) {
+				return;
+			}
+		}
+		table.set((home + ((h >>> 28) & (WAYS - 1))) & mask, s);
+	}
+
+	private int spread(int h) {
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return h & mask;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLEStringPool [capacity=");
+		builder.append(table.length());
+		builder.append("]");
+		return builder.toString();
+	}
+}
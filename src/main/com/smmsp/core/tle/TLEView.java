@@ -0,0 +1,409 @@
+/*
+ * TLEView.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.tle;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import com.smmsp.core.Classification;
+
+/**
+ * A cursor over the raw text of a catalog that decodes fields only when
+ * they are asked for.
+ *
+ * Building a view finds where each element set's lines start (and checks
+ * their checksums) but decodes nothing.  {@link #moveTo(int)} then points
+ * the view at one element set and each getter decodes its own columns
+ * straight out of the buffer, so a filter on two or three fields costs
+ * two or three field decodes per element set and no TLE objects:
+ *
+ * <pre>
+ * final TLEView view = TLEView.map(file);
+ * for (int i = 0; i &lt; view.size(); ++i) {
+ *     if (view.moveTo(i).getMeanMotionRPD() &gt; 11.25) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * Getters throw a {@link TLEException} if their field doesn't parse, and
+ * an IllegalStateException before the first {@link #moveTo(int)}.
+ * Views are NOT thread safe, but {@link #copy()} gives another cursor
+ * over the same buffer and index for another thread.
+ *
+ * @author sean
+ */
+public final class TLEView {
+
+	private static final int LINE = TLELineParser.LINE_LENGTH;
+
+	private final ByteBuffer buffer;
+	private final int size;
+
+	/**
+	 * Absolute offsets of the name line (-1 if there isn't one) and its
+	 * end, and of lines 1 and 2.
+	 */
+	private final int[] name;
+	private final int[] nameEnd;
+	private final int[] line1;
+	private final int[] line2;
+
+	private final TLELineParser parser = new TLELineParser();
+
+	private int current = -1;
+	private int l1;
+	private int l2;
+
+	private TLEView(final ByteBuffer buffer, final int size,
+			final int[] name, final int[] nameEnd, final int[] line1,
+			final int[] line2) {
+		this.buffer = buffer;
+		this.size = size;
+		this.name = name;
+		this.nameEnd = nameEnd;
+		this.line1 = line1;
+		this.line2 = line2;
+	}
+
+	/**
+	 * Memory maps a catalog file and indexes it.
+	 *
+	 * @param file
+	 * @return
+	 * @throws TLEException
+	 *             if the file can't be mapped or a line has a bad checksum
+	 */
+	public static TLEView map(final Path file) throws TLEException {
+		return of(TLEFileParser.map(file));
+	}
+
+	/**
+	 * Memory maps a catalog file and indexes it, leaving out element sets
+	 * with a bad checksum and reporting them to report.
+	 *
+	 * @param file
+	 * @param report
+	 * @return
+	 * @throws TLEException
+	 *             if the file can't be mapped
+	 */
+	public static TLEView map(final Path file, final TLEParseReport report)
+			throws TLEException {
+		return of(TLEFileParser.map(file), report);
+	}
+
+	/**
+	 * Indexes the element sets in buf between its position and limit.
+	 * Two and three line sets may be mixed, blank lines are skipped and
+	 * lines that aren't part of an element set are ignored.  An element
+	 * set is a line 1 followed by the line 2 for the same satellite, and
+	 * its name is the text line before line 1 if there is one.  Strict:
+	 * one bad checksum fails the whole view, see
+	 * {@link #of(ByteBuffer, TLEParseReport)} to skip bad sets instead.
+	 *
+	 * @param buf
+	 * @return
+	 * @throws TLEException
+	 *             if a line has a bad checksum
+	 */
+	public static TLEView of(final ByteBuffer buf) throws TLEException {
+		return of(buf, null);
+	}
+
+	/**
+	 * Indexes the element sets in buf like {@link #of(ByteBuffer)}, but
+	 * if report isn't null an element set with a bad checksum is left out
+	 * and reported rather than failing the view.
+	 *
+	 * @param buf
+	 * @param report
+	 *            Where bad element sets go, null to throw
+	 * @return
+	 * @throws TLEException
+	 *             if report is null and a line has a bad checksum
+	 */
+	public static TLEView of(final ByteBuffer buf,
+			final TLEParseReport report) throws TLEException {
+		final TLELineParser parser = new TLELineParser();
+		final int end = buf.limit();
+		int capacity = Math.max(16, (end - buf.position()) / (2 * LINE + 2));
+		int[] name = new int[capacity];
+		int[] nameEnd = new int[capacity];
+		int[] line1 = new int[capacity];
+		int[] line2 = new int[capacity];
+		int size = 0;
+
+		int prev = -1;
+		int prevEnd = -1;
+		int line = buf.position();
+		long lineNumber = 0;
+		while (line < end) {
+			final int next = TLEFileParser.nextLine(buf, line, end);
+			++lineNumber;
+			if (TLEFileParser.isDataLine(buf, line, next, '1') && next < end
+					&& TLEFileParser.isDataLine(buf, next,
+							TLEFileParser.nextLine(buf, next, end), '2')
+					&& TLEFileParser.sameSatellite(buf, line, next)) {
+				final boolean first = parser.checksumMatches(buf, line,
+						LINE, TLEField.LINE1);
+				if (!first || !parser.checksumMatches(buf, next, LINE,
+						TLEField.LINE2)) {
+					if (report == null) {
+						throw parser.error();
+					}
+					report.rejected(first ? lineNumber + 1 : lineNumber,
+							parser.getErrorField(), parser.getErrorReason(),
+							report.keepsErrors() ? parser.lastLine() : null);
+					prev = -1;
+					++lineNumber;
+					line = TLEFileParser.nextLine(buf, next, end);
+					continue;
+				}
+				if (report != null) {
+					report.accepted();
+				}
+				if (size == capacity) {
+					capacity *= 2;
+					name = Arrays.copyOf(name, capacity);
+					nameEnd = Arrays.copyOf(nameEnd, capacity);
+					line1 = Arrays.copyOf(line1, capacity);
+					line2 = Arrays.copyOf(line2, capacity);
+				}
+				name[size] = prev;
+				nameEnd[size] = prevEnd;
+				line1[size] = line;
+				line2[size] = next;
+				++size;
+				prev = -1;
+				++lineNumber;
+				line = TLEFileParser.nextLine(buf, next, end);
+				continue;
+			}
+			final int textEnd = TLEFileParser.trimEnd(buf, line, next);
+			if (textEnd > line) {
+				if (isData(buf, line, textEnd)) {
+					// an orphan or mismatched data line, not a name.
+					prev = -1;
+				} else {
+					prev = line;
+					prevEnd = textEnd;
+				}
+			}
+			line = next;
+		}
+		return new TLEView(buf, size, name, nameEnd, line1, line2);
+	}
+
+	/**
+	 * Does the text [start, end) look like a line 1 or 2?
+	 */
+	private static boolean isData(final ByteBuffer buf, final int start,
+			final int end) {
+		final byte marker = buf.get(start);
+		return end - start > TLEReader.MAX_NAME_LENGTH
+				&& (marker == '1' || marker == '2')
+				&& buf.get(start + 1) == ' ';
+	}
+
+	/**
+	 * @return another cursor over the same element sets
+	 */
+	public TLEView copy() {
+		return new TLEView(buffer, size, name, nameEnd, line1, line2);
+	}
+
+	/**
+	 * @return the number of element sets
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Points the view at element set i.
+	 *
+	 * @param i
+	 * @return this
+	 */
+	public TLEView moveTo(final int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: "
+					+ size);
+		}
+		current = i;
+		l1 = line1[i];
+		l2 = line2[i];
+		return this;
+	}
+
+	/**
+	 * @return the element set the view is on
+	 */
+	public int position() {
+		return current;
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             if {@link #moveTo(int)} hasn't been called yet
+	 */
+	private void selected() {
+		if (current < 0) {
+			throw new IllegalStateException(
+					"No element set selected, call moveTo first");
+		}
+	}
+
+	private int int1(final TLEField field) {
+		selected();
+		return parser.decodeInt(buffer, l1, LINE, field);
+	}
+
+	private double double1(final TLEField field) {
+		selected();
+		return parser.decodeDouble(buffer, l1, LINE, field);
+	}
+
+	private double double2(final TLEField field) {
+		selected();
+		return parser.decodeDouble(buffer, l2, LINE, field);
+	}
+
+	/**
+	 * @return the (trimmed) name, null for a two line element set
+	 */
+	public String getSatelliteName() {
+		selected();
+		final int start = name[current];
+		if (start < 0) {
+			return null;
+		}
+		final int len = nameEnd[current] - start;
+		return parser.decodeText(null, buffer, start, len, 0, len);
+	}
+
+	public int getSatelliteNumber() {
+		return int1(TLEField.SATELLITE_NUMBER);
+	}
+
+	public Classification getClassification() {
+		selected();
+		return parser.decodeClassification(buffer, l1, LINE);
+	}
+
+	public String getInternationalDesignator() {
+		selected();
+		return parser.decodeText(null, buffer, l1, LINE,
+				TLEField.INTERNATIONAL_DESIGNATOR.getFrom(),
+				TLEField.INTERNATIONAL_DESIGNATOR.getTo());
+	}
+
+	/**
+	 * @return the epoch as a julian date, see {@link TLE#epochJulianDate}
+	 */
+	public double getEpochJulianDate() {
+		selected();
+		return parser.decodeEpochJulianDate(buffer, l1, LINE);
+	}
+
+	public double getDotMeanMotion() {
+		return double1(TLEField.DOT_MEAN_MOTION);
+	}
+
+	public double getDotDotMeanMotion() {
+		return double1(TLEField.DOT_DOT_MEAN_MOTION);
+	}
+
+	public double getBstarDragTerm() {
+		return double1(TLEField.BSTAR_DRAG_TERM);
+	}
+
+	public int getElementSetNumber() {
+		return int1(TLEField.ELEMENT_SET_NUMBER);
+	}
+
+	public double getInclinationDeg() {
+		return double2(TLEField.INCLINATION);
+	}
+
+	public double getRaanDeg() {
+		return double2(TLEField.RAAN);
+	}
+
+	public double getEccentricity() {
+		return double2(TLEField.ECCENTRICITY);
+	}
+
+	public double getArgPerigeeDeg() {
+		return double2(TLEField.ARG_PERIGEE);
+	}
+
+	public double getMeanAnomalyDeg() {
+		return double2(TLEField.MEAN_ANOMALY);
+	}
+
+	public double getMeanMotionRPD() {
+		return double2(TLEField.MEAN_MOTION);
+	}
+
+	public int getRevNumberAtEpoch() {
+		selected();
+		return parser.decodeInt(buffer, l2, LINE, TLEField.REV_NUMBER);
+	}
+
+	/**
+	 * Fully decodes the current element set into out, for the ones that
+	 * pass the filter.
+	 *
+	 * @param out
+	 * @return out
+	 * @throws TLEException
+	 */
+	public TLE get(final TLE out) throws TLEException {
+		selected();
+		final int start = name[current];
+		if (start < 0) {
+			out.satelliteName = null;
+		} else {
+			parser.parseName(out, buffer, start, nameEnd[current] - start);
+		}
+		parser.parseFirstLine(out, buffer, l1, LINE);
+		parser.parseSecondLine(out, buffer, l2, LINE);
+		return out;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		builder.append("TLEView [size=");
+		builder.append(size);
+		builder.append(", position=");
+		builder.append(current);
+		builder.append("]");
+		return builder.toString();
+	}
+}
@@ -0,0 +1,79 @@
+/*
+ * FileUtils.java
+ * 
+ * Copyright (C) 2013 Sean P Madden
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.core.utils;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helpers for replacing files that other readers may have open or
+ * mapped: write a temporary file next to the target and move it over the
+ * target in one step, so readers see the old file or the new one, never
+ * a half written or truncated one.
+ * 
+ * @author sean
+ *
+ */
+public final class FileUtils {
+
+	/**
+	 * Empty constructor.
+	 */
+	private FileUtils(){
+		// do nothing.
+	}
+
+	/**
+	 * Creates an empty temporary file in target's directory, so it can be
+	 * moved over target without crossing file systems.
+	 * 
+	 * @param target
+	 * @return the temporary file
+	 * @throws IOException
+	 */
+	public static Path createSiblingTemp(final Path target) throws IOException{
+		final Path absolute = target.toAbsolutePath();
+		return Files.createTempFile(absolute.getParent(),
+				absolute.getFileName() + ".", ".tmp");
+	}
+
+	/**
+	 * Moves source over target, atomically where the file system allows.
+	 * Readers that already have target open keep the old file.
+	 * 
+	 * @param source
+	 * @param target
+	 * @throws IOException
+	 */
+	public static void replace(final Path source, final Path target)
+			throws IOException{
+		try {
+			Files.move(source, target, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
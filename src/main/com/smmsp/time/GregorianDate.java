@@ -139,6 +139,29 @@ public class GregorianDate implements Comparable<GregorianDate>, TimeInstant {
 		return new GregorianDate(year, monthIdx + 1, totalDays);
 	}
 
+	/**
+	 * Returns the date (the day, any time of day is dropped) that the
+	 * julian date falls on.
+	 * @param jd
+	 * @return
+	 */
+	public static GregorianDate fromJulianDate(final double jd){
+		// Meeus, Astronomical Algorithms ch. 7
+		final double shifted = jd + 0.5;
+		final long z = (long) Math.floor(shifted);
+		final long alpha = (long) Math.floor((z - 1867216.25) / 36524.25);
+		final long a = z + 1 + alpha - alpha / 4;
+		final long b = a + 1524;
+		final long c = (long) Math.floor((b - 122.1) / 365.25);
+		final long d = (long) Math.floor(365.25 * c);
+		final long e = (long) Math.floor((b - d) / 30.6001);
+		
+		final int day = (int) (b - d - (long) Math.floor(30.6001 * e));
+		final int month = (int) (e < 14 ? e - 1 : e - 13);
+		final int year = (int) (month > 2 ? c - 4716 : c - 4715);
+		return new GregorianDate(year, month, day);
+	}
+
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
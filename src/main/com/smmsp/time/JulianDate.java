@@ -65,6 +65,31 @@ public final class JulianDate implements Comparable<JulianDate>, TimeInstant {
 		return d;
 	}
 
+	/**
+	 * Creates and returns the julian date for a (fractional) day of the
+	 * year, as written in TLE epochs.
+	 * @param year
+	 * @param dayOfYear 1.0 is 0H Jan 1.
+	 * @return
+	 */
+	public static JulianDate fromYearAndDay(final int year,
+			final double dayOfYear) {
+		return getJulianDate(julianDateOf(year, dayOfYear));
+	}
+
+	/**
+	 * Returns the julian date for a (fractional) day of the year without
+	 * creating a JulianDate.  Valid for 1901 to 2099.
+	 * @param year
+	 * @param dayOfYear 1.0 is 0H Jan 1.
+	 * @return
+	 */
+	public static double julianDateOf(final int year, final double dayOfYear) {
+		// 0H Jan 0 (Dec 31 of the year before).
+		final double jan0 = 367.0 * year - (7 * year) / 4 + 30 + 1721013.5;
+		return jan0 + dayOfYear;
+	}
+
 	/**
 	 * Creates and returns a new modified julian date
 	 * @param mjd
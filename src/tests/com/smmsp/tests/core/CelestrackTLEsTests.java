@@ -0,0 +1,167 @@
+/*
+ * CelestrackTLEsTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.smmsp.core.net.CachePolicy;
+import com.smmsp.core.tle.CelestrackTLEs;
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLECachePolicies;
+import com.smmsp.core.tle.TLECatalog;
+import com.smmsp.core.tle.TLECatalogDiff;
+import com.smmsp.core.tle.TLEException;
+import com.smmsp.core.tle.TLESetLocation;
+import com.smmsp.core.utils.OSAPI;
+
+/**
+ * @author sean
+ *
+ */
+public class CelestrackTLEsTests {
+
+	private static final String MANIFEST = "# generated\n"
+			+ "[Weather]\n"
+			+ "NOAA\thttp://www.celestrak.com/NORAD/elements/noaa.txt\tNOAA Satellites\n"
+			+ "GOES\thttp://www.celestrak.com/NORAD/elements/goes.txt\t\n"
+			+ "\n"
+			+ "[Empty]\n"
+			+ "[Scientific]\n"
+			+ "Geodetic\thttp://www.celestrak.com/NORAD/elements/geodetic.txt\tGeodetic Satellites\n";
+
+	@Test
+	public void testReadManifest() throws IOException {
+		final LinkedHashMap<String, List<TLESetLocation>> groups = CelestrackTLEs
+				.readManifest(new StringReader(MANIFEST));
+		assertEquals(Arrays.asList("Weather", "Empty", "Scientific"),
+				Arrays.asList(groups.keySet().toArray()));
+
+		final List<TLESetLocation> weather = groups.get("Weather");
+		assertEquals(2, weather.size());
+		assertEquals("NOAA", weather.get(0).getName());
+		assertEquals("http://www.celestrak.com/NORAD/elements/noaa.txt",
+				weather.get(0).getHttpUrl());
+		assertEquals("NOAA Satellites", weather.get(0).getDescription());
+		assertEquals("", weather.get(1).getDescription());
+		assertTrue(groups.get("Empty").isEmpty());
+		assertEquals("Geodetic", groups.get("Scientific").get(0).getName());
+	}
+
+	@Test(expected = TLEException.class)
+	public void testLocationOutsideGroup() throws IOException {
+		CelestrackTLEs.readManifest(new StringReader(
+				"NOAA\thttp://www.celestrak.com/NORAD/elements/noaa.txt\tNOAA\n"));
+	}
+
+	@Test(expected = TLEException.class)
+	public void testShortLine() throws IOException {
+		CelestrackTLEs.readManifest(new StringReader("[Weather]\nNOAA\n"));
+	}
+
+	@Test
+	public void testAvailableLocations() {
+		final List<TLESetLocation> comms = CelestrackTLEs
+				.getAvailableLocations().get("Communications");
+		assertNotNull(comms);
+		assertEquals("Geostationary", comms.get(0).getName());
+		assertEquals("http://www.celestrak.com/NORAD/elements/geo.txt",
+				comms.get(0).getHttpUrl());
+	}
+
+	private static TLESetLocation cachedISS() throws IOException {
+		OSAPI.ensureCacheDirExists();
+		final TLESetLocation location = new TLESetLocation(
+				"CelestrackTLEsTests-" + System.nanoTime() + ".txt",
+				"http://localhost:1/unused.txt", "");
+		Files.write(OSAPI.getCacheDirectory().resolve(location.getName()),
+				("ISS (ZARYA)\n"
+				+ "1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+				+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537\n")
+				.getBytes(StandardCharsets.US_ASCII));
+		return location;
+	}
+
+	@Test
+	public void testGetTLEsCopies() throws IOException {
+		final TLESetLocation location = cachedISS();
+		final Path path = OSAPI.getCacheDirectory().resolve(
+				location.getName());
+		try {
+			final TLE[] first = CelestrackTLEs.getTLEs(location);
+			assertEquals(1, first.length);
+			first[0].inclinationDeg = 0;
+			assertEquals(51.6416,
+					CelestrackTLEs.getTLEs(location)[0].inclinationDeg, 0);
+
+			final TLECatalog catalog = CelestrackTLEs.getCatalog(location);
+			assertSame(catalog, CelestrackTLEs.getCatalog(location));
+			final TLECatalogDiff diff = CelestrackTLEs.refresh(location,
+					catalog);
+			assertTrue(diff.isEmpty());
+			assertSame(catalog, diff.getCurrent());
+		} finally {
+			CelestrackTLEs.PARSED_GROUPS.invalidate(path);
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test
+	public void testCachePolicyPerLocation() throws IOException {
+		final TLESetLocation location = cachedISS();
+		final Path path = OSAPI.getCacheDirectory().resolve(
+				location.getName());
+		final List<TLESetLocation> asked = new ArrayList<>();
+		CelestrackTLEs.setCachePolicies(new TLECachePolicies() {
+			@Override
+			public CachePolicy policyFor(final TLESetLocation l) {
+				asked.add(l);
+				return new CachePolicy(1, TimeUnit.HOURS, 1, TimeUnit.HOURS);
+			}
+		});
+		try {
+			assertEquals(1, CelestrackTLEs.getTLEs(location).length);
+			assertEquals(Arrays.asList(location), asked);
+		} finally {
+			CelestrackTLEs.setCachePolicies(TLECachePolicies.DEFAULT);
+			CelestrackTLEs.PARSED_GROUPS.invalidate(path);
+			Files.deleteIfExists(path);
+		}
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testAvailableLocationsAreReadOnly() {
+		CelestrackTLEs.getAvailableLocations().get("Communications").clear();
+	}
+}
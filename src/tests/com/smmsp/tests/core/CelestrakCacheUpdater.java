@@ -40,7 +40,7 @@ public class CelestrakCacheUpdater {
 	public static void main(String[] args) {
 		CelestrackTLEs.updateCache();
 		for(Map.Entry<String, List<TLESetLocation>> ent : 
-			CelestrackTLEs.AVAILABLE_TLE_LOCATIONS.entrySet()){
+			CelestrackTLEs.getAvailableLocations().entrySet()){
 			System.out.println(ent);
 		}
 	}
@@ -0,0 +1,241 @@
+/*
+ * OMMReaderTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.smmsp.core.Classification;
+import com.smmsp.core.tle.OMMCsvReader;
+import com.smmsp.core.tle.OMMKvnReader;
+import com.smmsp.core.tle.OMMReader;
+import com.smmsp.core.tle.OMMXmlReader;
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEException;
+import com.smmsp.core.tle.TLEProcessor;
+import com.smmsp.core.tle.TLESink;
+import com.smmsp.time.GregorianDate;
+
+/**
+ * @author sean
+ *
+ */
+public class OMMReaderTests {
+
+	private static final String[] ISS_TLE = {
+			"ISS (ZARYA)",
+			"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927",
+			"2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537" };
+
+	private static final String CSV =
+			"OBJECT_NAME,OBJECT_ID,EPOCH,MEAN_MOTION,ECCENTRICITY,INCLINATION,"
+			+ "RA_OF_ASC_NODE,ARG_OF_PERICENTER,MEAN_ANOMALY,EPHEMERIS_TYPE,"
+			+ "CLASSIFICATION_TYPE,NORAD_CAT_ID,ELEMENT_SET_NO,REV_AT_EPOCH,"
+			+ "BSTAR,MEAN_MOTION_DOT,MEAN_MOTION_DDOT\r\n"
+			+ "ISS (ZARYA),1998-067A,2008-09-20T12:25:40.104192,15.72125391,"
+			+ ".0006703,51.6416,247.4627,130.5360,325.0288,0,U,25544,292,56353,"
+			+ "-.11606E-4,-.00002182,0\r\n"
+			+ "\"STARLINK, \"\"TEST\"\"\",2019-074B,2020-001T00:00:00Z,15.5,"
+			+ ".0001,53,0,0,0,0,U,123456789,999,1,0,0,0\r\n";
+
+	private static final String XML =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<ndm xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">\n"
+			+ "<omm id=\"CCSDS_OMM_VERS\" version=\"2.0\">\n"
+			+ "<header><CREATION_DATE/><ORIGINATOR/></header>\n"
+			+ "<body><segment><metadata>\n"
+			+ "<OBJECT_NAME>ISS (ZARYA)</OBJECT_NAME>\n"
+			+ "<OBJECT_ID>1998-067A</OBJECT_ID>\n"
+			+ "<CENTER_NAME>EARTH</CENTER_NAME>\n"
+			+ "</metadata><data><meanElements>\n"
+			+ "<EPOCH>2008-09-20T12:25:40.104192</EPOCH>\n"
+			+ "<MEAN_MOTION>15.72125391</MEAN_MOTION>\n"
+			+ "<ECCENTRICITY>.0006703</ECCENTRICITY>\n"
+			+ "<INCLINATION>51.6416</INCLINATION>\n"
+			+ "<RA_OF_ASC_NODE>247.4627</RA_OF_ASC_NODE>\n"
+			+ "<ARG_OF_PERICENTER>130.5360</ARG_OF_PERICENTER>\n"
+			+ "<MEAN_ANOMALY>325.0288</MEAN_ANOMALY>\n"
+			+ "</meanElements><tleParameters>\n"
+			+ "<EPHEMERIS_TYPE>0</EPHEMERIS_TYPE>\n"
+			+ "<CLASSIFICATION_TYPE>U</CLASSIFICATION_TYPE>\n"
+			+ "<NORAD_CAT_ID>25544</NORAD_CAT_ID>\n"
+			+ "<ELEMENT_SET_NO>292</ELEMENT_SET_NO>\n"
+			+ "<REV_AT_EPOCH>56353</REV_AT_EPOCH>\n"
+			+ "<BSTAR>-.11606E-4</BSTAR>\n"
+			+ "<MEAN_MOTION_DOT>-.00002182</MEAN_MOTION_DOT>\n"
+			+ "<MEAN_MOTION_DDOT>0</MEAN_MOTION_DDOT>\n"
+			+ "</tleParameters></data></segment></body></omm>\n"
+			+ "</ndm>\n";
+
+	private static final String KVN =
+			"CCSDS_OMM_VERS = 2.0\n"
+			+ "COMMENT GENERATED VIA SPACE-TRACK.ORG API\n"
+			+ "OBJECT_NAME = ISS (ZARYA)\n"
+			+ "OBJECT_ID = 1998-067A\n"
+			+ "CENTER_NAME = EARTH\n"
+			+ "EPOCH = 2008-09-20T12:25:40.104192\n"
+			+ "MEAN_MOTION = 15.72125391 [rev/day]\n"
+			+ "ECCENTRICITY = .0006703\n"
+			+ "INCLINATION = 51.6416 [deg]\n"
+			+ "RA_OF_ASC_NODE = 247.4627 [deg]\n"
+			+ "ARG_OF_PERICENTER = 130.5360 [deg]\n"
+			+ "MEAN_ANOMALY = 325.0288 [deg]\n"
+			+ "EPHEMERIS_TYPE = 0\n"
+			+ "CLASSIFICATION_TYPE = U\n"
+			+ "NORAD_CAT_ID = 25544\n"
+			+ "ELEMENT_SET_NO = 292\n"
+			+ "REV_AT_EPOCH = 56353\n"
+			+ "BSTAR = -.11606E-4 [1/ER]\n"
+			+ "MEAN_MOTION_DOT = -.00002182 [rev/day**2]\n"
+			+ "MEAN_MOTION_DDOT = 0 [rev/day**3]\n"
+			+ "\n"
+			+ "CCSDS_OMM_VERS = 2.0\n"
+			+ "OBJECT_NAME = TEST\n"
+			+ "EPOCH = 2020-001T00:00:00\n"
+			+ "MEAN_MOTION = 15.5\n"
+			+ "NORAD_CAT_ID = 123456789\n";
+
+	private static InputStream stream(final String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Checks tle holds the same ISS element set as the TLE text.
+	 */
+	private static void assertIss(final TLE tle) {
+		final TLE expected = TLEProcessor.fromString(ISS_TLE);
+		assertEquals(expected.satelliteName, tle.satelliteName);
+		assertEquals(expected.satelliteNumber, tle.satelliteNumber);
+		assertEquals(expected.classification, tle.classification);
+		assertEquals(expected.internationalDesignator,
+				tle.internationalDesignator);
+		assertEquals(0, ((GregorianDate) expected.epoch)
+				.compareTo((GregorianDate) tle.epoch));
+		assertEquals(expected.epochJulianDate, tle.epochJulianDate, 1e-8);
+		assertEquals(expected.dotMeanMotion, tle.dotMeanMotion, 0);
+		assertEquals(expected.dotDotMeanMotion, tle.dotDotMeanMotion, 0);
+		assertEquals(expected.bstarDragTerm, tle.bstarDragTerm, 0);
+		assertEquals(expected.elementSetNumber, tle.elementSetNumber);
+		assertEquals(expected.inclinationDeg, tle.inclinationDeg, 0);
+		assertEquals(expected.raanDeg, tle.raanDeg, 0);
+		assertEquals(expected.eccentricity, tle.eccentricity, 0);
+		assertEquals(expected.argPerigeeDeg, tle.argPerigeeDeg, 0);
+		assertEquals(expected.meanAnomalyDeg, tle.meanAnomalyDeg, 0);
+		assertEquals(expected.meanMotionRPD, tle.meanMotionRPD, 0);
+		assertEquals(expected.revNumberAtEpoch, tle.revNumberAtEpoch);
+	}
+
+	@Test
+	public void testCsv() throws Exception {
+		// tiny buffer to force compaction and growth.
+		try (OMMCsvReader reader = new OMMCsvReader(stream(CSV), 7)) {
+			final TLE tle = new TLE();
+			assertTrue(reader.next(tle));
+			assertIss(tle);
+
+			assertTrue(reader.next(tle));
+			assertEquals("STARLINK, \"TEST\"", tle.satelliteName);
+			assertEquals("19074B", tle.internationalDesignator);
+			assertEquals(123456789, tle.satelliteNumber);
+			assertEquals(Classification.UNCLASSIFIED, tle.classification);
+			assertEquals(2458849.5, tle.epochJulianDate, 0);
+
+			assertFalse(reader.next(tle));
+			assertEquals(3, reader.getLineNumber());
+		}
+	}
+
+	@Test
+	public void testCsvColumnOrder() throws Exception {
+		final String csv = "NORAD_CAT_ID,EXTRA,MEAN_MOTION,EPOCH\n"
+				+ "25544,whatever,15.72125391,2008-264T12:25:40.104192\n";
+		final OMMReader reader = new OMMCsvReader(stream(csv));
+		final TLE tle = reader.next();
+		assertEquals(25544, tle.satelliteNumber);
+		assertEquals(15.72125391, tle.meanMotionRPD, 0);
+		assertEquals(TLEProcessor.fromString(ISS_TLE).epochJulianDate,
+				tle.epochJulianDate, 1e-8);
+		assertNull(tle.satelliteName);
+		assertFalse(reader.hasNext());
+	}
+
+	@Test(expected = TLEException.class)
+	public void testCsvMissingField() {
+		final String csv = "NORAD_CAT_ID,EPOCH\n25544,2008-264\n";
+		new OMMCsvReader(stream(csv)).next();
+	}
+
+	@Test(expected = TLEException.class)
+	public void testCsvBadValue() {
+		final String csv = "NORAD_CAT_ID,EPOCH,MEAN_MOTION\n"
+				+ "25544,2008-264,15.7x\n";
+		new OMMCsvReader(stream(csv)).next();
+	}
+
+	@Test
+	public void testXml() throws Exception {
+		final List<String> names = new ArrayList<>();
+		try (OMMReader reader = new OMMXmlReader(stream(XML))) {
+			assertEquals(1, reader.drainTo(new TLESink() {
+				@Override
+				public void accept(final TLE tle) {
+					assertIss(tle);
+					names.add(tle.satelliteName);
+				}
+			}));
+		}
+		assertEquals(1, names.size());
+	}
+
+	@Test
+	public void testKvn() throws Exception {
+		try (OMMReader reader = new OMMKvnReader(stream(KVN))) {
+			assertTrue(reader.hasNext());
+			assertIss(reader.next());
+
+			final TLE second = reader.next();
+			assertEquals("TEST", second.satelliteName);
+			assertEquals(123456789, second.satelliteNumber);
+			assertNull(second.internationalDesignator);
+			assertEquals(2458849.5, second.epochJulianDate, 0);
+			assertFalse(reader.hasNext());
+		}
+	}
+
+	@Test
+	public void testFormatsAgree() throws Exception {
+		final TLE csv = new OMMCsvReader(stream(CSV)).next();
+		final TLE xml = new OMMXmlReader(stream(XML)).next();
+		final TLE kvn = new OMMKvnReader(stream(KVN)).next();
+		assertEquals(csv.epochJulianDate, xml.epochJulianDate, 0);
+		assertEquals(csv.epochJulianDate, kvn.epochJulianDate, 0);
+		assertSame(csv.satelliteName, xml.satelliteName);
+		assertSame(csv.internationalDesignator, kvn.internationalDesignator);
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * TLEBinaryCatalogTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEBinaryCatalog;
+import com.smmsp.core.tle.TLECatalog;
+import com.smmsp.core.tle.TLEException;
+import com.smmsp.core.tle.TLEProcessor;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEBinaryCatalogTests {
+
+	private static final String[] NOAA = {
+		"NOAA 14                 ",
+		"1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621",
+		"2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495"
+	};
+
+	private static final String[] ISS = {
+		"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927",
+		"2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537"
+	};
+
+	@Test
+	public void testWriteAndMap() throws IOException {
+		final TLE noaa = TLEProcessor.fromString(NOAA);
+		final TLE iss = TLEProcessor.fromString(ISS);
+		final TLECatalog catalog = TLECatalog.of(noaa, iss, noaa);
+
+		final Path file = Files.createTempFile("tles", ".bin");
+		file.toFile().deleteOnExit();
+		TLEBinaryCatalog.write(file, catalog);
+		final TLEBinaryCatalog mapped = TLEBinaryCatalog.open(file);
+
+		assertEquals(3, mapped.size());
+		assertEquals("NOAA 14", mapped.getSatelliteName(2));
+		assertNull(mapped.getSatelliteName(1));
+		assertEquals("98067A", mapped.getInternationalDesignator(1));
+		assertEquals(25544, mapped.getSatelliteNumber(1));
+		assertEquals(iss.bstarDragTerm, mapped.getBstarDragTerm(1), 0);
+		assertEquals(iss.epochJulianDate, mapped.getEpochJulianDate(1), 0);
+
+		final TLE copy = mapped.get(0);
+		assertEquals(noaa.classification, copy.classification);
+		assertEquals(noaa.meanMotionRPD, copy.meanMotionRPD, 0);
+		assertEquals(noaa.revNumberAtEpoch, copy.revNumberAtEpoch);
+		assertEquals(noaa.elementSetNumber, copy.elementSetNumber);
+
+		assertEquals(3, mapped.toCatalog().size());
+	}
+
+	@Test
+	public void testRewriteLeavesOpenCatalogAlone() throws IOException {
+		final TLE noaa = TLEProcessor.fromString(NOAA);
+		final TLE iss = TLEProcessor.fromString(ISS);
+		final Path file = Files.createTempFile("tles", ".bin");
+		file.toFile().deleteOnExit();
+		TLEBinaryCatalog.write(file, TLECatalog.of(noaa, iss, noaa));
+		final TLEBinaryCatalog mapped = TLEBinaryCatalog.open(file);
+
+		// a smaller catalog over the mapped one.
+		TLEBinaryCatalog.write(file, TLECatalog.of(iss));
+		assertEquals(3, mapped.size());
+		assertEquals("NOAA 14", mapped.getSatelliteName(2));
+		assertEquals(1, TLEBinaryCatalog.open(file).size());
+		// no temporary files left behind.
+		for (String name : file.toAbsolutePath().getParent().toFile()
+				.list()) {
+			assertFalse(name, name.startsWith(file.getFileName() + ".")
+					&& name.endsWith(".tmp"));
+		}
+	}
+
+	@Test
+	public void testStringsStoredOnce() {
+		final TLE noaa = TLEProcessor.fromString(NOAA);
+		final int one = TLEBinaryCatalog.encode(TLECatalog.of(noaa)).limit();
+		final int two = TLEBinaryCatalog.encode(TLECatalog.of(noaa, noaa))
+				.limit();
+		assertEquals(one, two - 104);
+	}
+
+	@Test(expected = TLEException.class)
+	public void testNotACatalog() {
+		TLEBinaryCatalog.wrap(ByteBuffer.wrap(new byte[64]));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfRange() {
+		TLEBinaryCatalog.wrap(TLEBinaryCatalog.encode(TLECatalog.of()))
+				.getSatelliteNumber(0);
+	}
+}
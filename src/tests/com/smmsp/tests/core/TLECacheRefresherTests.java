@@ -0,0 +1,166 @@
+/*
+ * TLECacheRefresherTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLECacheRefresher;
+import com.smmsp.core.tle.TLERefreshReport;
+import com.smmsp.core.tle.TLESetLocation;
+
+/**
+ * @author sean
+ *
+ */
+public class TLECacheRefresherTests {
+
+	private static final long SLEEP_MILLIS = 200;
+
+	/**
+	 * Sleeps instead of downloading and keeps track of how many run at
+	 * once against each host.
+	 */
+	private static final class FakeRefresher extends TLECacheRefresher {
+
+		private final ConcurrentMap<String, AtomicInteger> inFlight =
+				new ConcurrentHashMap<>();
+		private final ConcurrentMap<String, AtomicInteger> most =
+				new ConcurrentHashMap<>();
+
+		FakeRefresher() {
+			super();
+		}
+
+		FakeRefresher(final int threads, final int perHostLimit) {
+			super(threads, perHostLimit);
+		}
+
+		@Override
+		protected boolean refresh(final TLESetLocation location) {
+			final String host = location.getHttpUrl().split("/")[2];
+			inFlight.putIfAbsent(host, new AtomicInteger());
+			most.putIfAbsent(host, new AtomicInteger());
+			final int now = inFlight.get(host).incrementAndGet();
+			final AtomicInteger max = most.get(host);
+			for (int m = max.get(); now > m && !max.compareAndSet(m, now); m = max
+					.get()) {
+				// retry.
+			}
+			try {
+				if (location.getName().startsWith("bad")) {
+					throw new IllegalStateException(location.getName());
+				}
+				Thread.sleep(SLEEP_MILLIS);
+				return !location.getName().startsWith("fresh");
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			} finally {
+				inFlight.get(host).decrementAndGet();
+			}
+		}
+	}
+
+	private static List<TLESetLocation> locations(final String host,
+			final int count, final String prefix) {
+		final List<TLESetLocation> ret = new ArrayList<>();
+		for (int i = 0; i < count; ++i) {
+			ret.add(new TLESetLocation(prefix + i, "http://" + host + "/" + i
+					+ ".txt", ""));
+		}
+		return ret;
+	}
+
+	@Test
+	public void testPerHostLimit() {
+		final FakeRefresher refresher = new FakeRefresher(16, 2);
+		final List<TLESetLocation> all = locations("a.example", 8, "a");
+		all.addAll(locations("b.example", 3, "b"));
+		final TLERefreshReport report = refresher.refresh(all);
+
+		assertEquals(11, report.count(TLERefreshReport.Status.UPDATED));
+		assertEquals(2, refresher.most.get("a.example").get());
+		assertEquals(2, refresher.most.get("b.example").get());
+		// a.example needs four rounds of two.
+		assertTrue(report.getWallMillis() >= 4 * SLEEP_MILLIS - 20);
+	}
+
+	@Test
+	public void testWallTimeIsSlowestNotSum() {
+		final FakeRefresher refresher = new FakeRefresher(8, 4);
+		final List<TLESetLocation> all = new ArrayList<>();
+		for (int i = 0; i < 8; ++i) {
+			all.addAll(locations("host" + i + ".example", 1, "f" + i));
+		}
+		final TLERefreshReport report = refresher.refresh(all);
+
+		assertEquals(8, report.getResults().size());
+		assertTrue(report.toString(),
+				report.getWallMillis() < 4 * SLEEP_MILLIS);
+		for (TLERefreshReport.FileResult result : report.getResults()) {
+			assertTrue(result.getMillis() >= SLEEP_MILLIS - 20);
+		}
+	}
+
+	@Test
+	public void testDefaults() {
+		final FakeRefresher refresher = new FakeRefresher();
+		final int perHost = TLECacheRefresher.DEFAULT_PER_HOST_LIMIT;
+		final List<TLESetLocation> all = locations("celestrak.example",
+				2 * perHost, "g");
+		all.addAll(locations("other.example", perHost, "o"));
+		final TLERefreshReport report = refresher.refresh(all);
+
+		assertEquals(3 * perHost, report.count(TLERefreshReport.Status.UPDATED));
+		// one host is still capped, the overall limit isn't in the way.
+		assertEquals(perHost, refresher.most.get("celestrak.example").get());
+		assertEquals(perHost, refresher.most.get("other.example").get());
+		assertTrue(report.toString(),
+				report.getWallMillis() < 4 * SLEEP_MILLIS);
+	}
+
+	@Test
+	public void testResultsPerFile() {
+		final FakeRefresher refresher = new FakeRefresher(4, 4);
+		final List<TLESetLocation> all = locations("c.example", 2, "new");
+		all.addAll(locations("c.example", 1, "fresh"));
+		all.addAll(locations("c.example", 1, "bad"));
+		final TLERefreshReport report = refresher.refresh(all);
+
+		assertEquals(2, report.count(TLERefreshReport.Status.UPDATED));
+		assertEquals(1, report.count(TLERefreshReport.Status.FRESH));
+		assertEquals(1, report.count(TLERefreshReport.Status.FAILED));
+
+		final TLERefreshReport.FileResult bad = report.getResults().get(3);
+		assertSame(all.get(3), bad.getLocation());
+		assertEquals(TLERefreshReport.Status.FAILED, bad.getStatus());
+		assertTrue(bad.getError() instanceof IllegalStateException);
+		assertNull(report.getResults().get(0).getError());
+	}
+}
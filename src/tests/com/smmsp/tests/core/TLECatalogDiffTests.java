@@ -0,0 +1,107 @@
+/*
+ * TLECatalogDiffTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLECatalog;
+import com.smmsp.core.tle.TLECatalogDiff;
+import com.smmsp.core.tle.TLEProcessor;
+
+/**
+ * @author sean
+ *
+ */
+public class TLECatalogDiffTests {
+
+	private static final String[] ISS = {
+			"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927",
+			"2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537" };
+
+	private static TLE tle(final int number, final int elset,
+			final double epoch) {
+		final TLE tle = TLEProcessor.fromString(ISS);
+		tle.satelliteNumber = number;
+		tle.elementSetNumber = elset;
+		tle.epochJulianDate = epoch;
+		return tle;
+	}
+
+	@Test
+	public void testDiff() {
+		final TLECatalog previous = TLECatalog.of(tle(1, 10, 100),
+				tle(2, 20, 100), tle(3, 30, 100), tle(4, 40, 100));
+		final TLECatalog current = TLECatalog.of(tle(5, 1, 101),
+				tle(4, 40, 100), tle(2, 21, 101), tle(1, 10, 100.5),
+				// an older copy of 4, ignored.
+				tle(4, 39, 99));
+
+		final TLECatalogDiff diff = TLECatalogDiff.of(previous, current);
+		assertArrayEquals(new int[] { 0 }, diff.getAdded());
+		assertArrayEquals(new int[] { 2, 3 }, diff.getChanged());
+		assertArrayEquals(new int[] { 1, 0 }, diff.getChangedFrom());
+		assertArrayEquals(new int[] { 2 }, diff.getRemoved());
+		assertEquals(4, diff.size());
+		assertFalse(diff.isEmpty());
+		assertSame(current, diff.getCurrent());
+
+		final List<String> events = new ArrayList<>();
+		diff.apply(new TLECatalogDiff.Listener() {
+			@Override
+			public void added(final TLECatalog cur, final int i) {
+				events.add("+" + cur.getSatelliteNumber(i));
+			}
+
+			@Override
+			public void changed(final TLECatalog prev, final int was,
+					final TLECatalog cur, final int i) {
+				assertEquals(prev.getSatelliteNumber(was),
+						cur.getSatelliteNumber(i));
+				events.add("~" + cur.getSatelliteNumber(i));
+			}
+
+			@Override
+			public void removed(final TLECatalog prev, final int was) {
+				events.add("-" + prev.getSatelliteNumber(was));
+			}
+		});
+		assertEquals("[-3, ~2, ~1, +5]", events.toString());
+	}
+
+	@Test
+	public void testFirstLoadAndNoChange() {
+		final TLECatalog catalog = TLECatalog.of(tle(1, 10, 100),
+				tle(2, 20, 100));
+		final TLECatalogDiff first = TLECatalogDiff.of(null, catalog);
+		assertArrayEquals(new int[] { 0, 1 }, first.getAdded());
+		assertEquals(0, first.getPrevious().size());
+
+		assertTrue(TLECatalogDiff.of(catalog, TLECatalog.of(tle(2, 20, 100),
+				tle(1, 10, 100))).isEmpty());
+	}
+}
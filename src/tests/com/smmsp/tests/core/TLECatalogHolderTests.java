@@ -0,0 +1,129 @@
+/*
+ * TLECatalogHolderTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLECatalog;
+import com.smmsp.core.tle.TLECatalogHolder;
+import com.smmsp.core.tle.TLECatalogSnapshot;
+import com.smmsp.core.tle.TLEProcessor;
+
+/**
+ * @author sean
+ *
+ */
+public class TLECatalogHolderTests {
+
+	private static final String[] ISS = {
+			"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927",
+			"2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537" };
+
+	/**
+	 * A catalog of size satellites all with element set number elset.
+	 */
+	private static TLECatalog catalog(final int size, final int elset) {
+		final TLE tle = TLEProcessor.fromString(ISS);
+		final TLECatalog.Builder builder = new TLECatalog.Builder(size);
+		for (int i = 0; i < size; ++i) {
+			tle.satelliteNumber = i + 1;
+			tle.elementSetNumber = elset;
+			builder.accept(tle);
+		}
+		return builder.build();
+	}
+
+	@Test
+	public void testPublish() {
+		final TLECatalogHolder holder = new TLECatalogHolder();
+		final TLECatalogSnapshot empty = holder.get();
+		assertEquals(0, empty.getVersion());
+		assertEquals(0, empty.size());
+		assertNull(empty.find(25544, new TLE()));
+
+		final TLECatalogSnapshot first = holder.publish(catalog(3, 7));
+		assertEquals(1, first.getVersion());
+		assertSame(first, holder.get());
+		assertEquals(7, first.find(2, new TLE()).elementSetNumber);
+
+		holder.publish(catalog(1, 8));
+		assertEquals(2, holder.get().getVersion());
+		// the old snapshot doesn't change.
+		assertEquals(3, first.size());
+		assertEquals(7, first.find(2, new TLE()).elementSetNumber);
+	}
+
+	@Test
+	public void testConditionalPublish() {
+		final TLECatalogHolder holder = new TLECatalogHolder();
+		final TLECatalogSnapshot start = holder.get();
+		assertNotNull(holder.publish(start, catalog(1, 1)));
+		// a second refresh worked out from the same start loses.
+		assertNull(holder.publish(start, catalog(1, 2)));
+		assertEquals(1, holder.get().getCatalog().getElementSetNumber(0));
+	}
+
+	@Test
+	public void testReadersSeeWholeSnapshots() throws InterruptedException {
+		final TLECatalogHolder holder = new TLECatalogHolder();
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<String> failure = new AtomicReference<>();
+
+		final Thread[] readers = new Thread[4];
+		for (int t = 0; t < readers.length; ++t) {
+			readers[t] = new Thread() {
+				@Override
+				public void run() {
+					long last = 0;
+					while (!done.get()) {
+						final TLECatalogSnapshot s = holder.get();
+						if (s.getVersion() < last) {
+							failure.set("version went back");
+						}
+						last = s.getVersion();
+						final TLECatalog c = s.getCatalog();
+						for (int i = 0; i < c.size(); ++i) {
+							if (c.getElementSetNumber(i) != s.getVersion()) {
+								failure.set("mixed snapshot " + s);
+							}
+						}
+					}
+				}
+			};
+			readers[t].start();
+		}
+		for (int v = 1; v <= 200; ++v) {
+			assertEquals(v, holder.publish(catalog(500, v)).getVersion());
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertNull(failure.get());
+	}
+}
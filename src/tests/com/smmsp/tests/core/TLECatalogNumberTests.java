@@ -0,0 +1,111 @@
+/*
+ * TLECatalogNumberTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLECatalogNumber;
+import com.smmsp.core.tle.TLEException;
+import com.smmsp.core.tle.TLEFormatter;
+import com.smmsp.core.tle.TLEProcessor;
+import com.smmsp.core.tle.TLEReader;
+import com.smmsp.core.tle.TLEView;
+
+/**
+ * @author sean
+ *
+ */
+public class TLECatalogNumberTests {
+
+	private static final String[] ISS = {
+			"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927",
+			"2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537" };
+
+	@Test
+	public void testParse() {
+		assertEquals(25544, TLECatalogNumber.parse("25544"));
+		assertEquals(5, TLECatalogNumber.parse("    5"));
+		assertEquals(100000, TLECatalogNumber.parse("A0000"));
+		assertEquals(148493, TLECatalogNumber.parse("E8493"));
+		assertEquals(182345, TLECatalogNumber.parse("J2345"));
+		assertEquals(234567, TLECatalogNumber.parse("P4567"));
+		assertEquals(TLECatalogNumber.MAX_ALPHA5,
+				TLECatalogNumber.parse("Z9999"));
+	}
+
+	@Test
+	public void testBadNumbers() {
+		for (String bad : new String[] { "", "I1234", "O1234", "A123",
+				"a1234", "A12X4", "123456" }) {
+			try {
+				TLECatalogNumber.parse(bad);
+				fail(bad);
+			} catch (TLEException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testEncodeRoundTrip() {
+		final byte[] text = new byte[5];
+		for (int n = 0; n <= TLECatalogNumber.MAX_ALPHA5; ++n) {
+			TLECatalogNumber.encode(n, text, 0);
+			final String s = new String(text, StandardCharsets.US_ASCII);
+			assertEquals(s, n, TLECatalogNumber.parse(s));
+		}
+		assertEquals("00005", TLECatalogNumber.toString(5));
+		assertEquals("E8493", TLECatalogNumber.toString(148493));
+	}
+
+	@Test(expected = TLEException.class)
+	public void testEncodeOutOfRange() {
+		TLECatalogNumber.toString(TLECatalogNumber.MAX_ALPHA5 + 1);
+	}
+
+	@Test
+	public void testAlpha5Lines() throws IOException {
+		final TLE tle = TLEProcessor.fromString(ISS);
+		tle.satelliteNumber = 148493;
+
+		final StringBuilder text = new StringBuilder();
+		new TLEFormatter().format(tle, text);
+		final String[] lines = text.toString().split("\n");
+		assertTrue(lines[0].startsWith("1 E8493U"));
+		assertTrue(lines[1].startsWith("2 E8493 "));
+
+		assertEquals(148493, TLEProcessor.fromString(lines).satelliteNumber);
+
+		final ByteBuffer buf = ByteBuffer.wrap(text.toString().getBytes(
+				StandardCharsets.US_ASCII));
+		assertEquals(148493, new TLEReader(buf, 0, buf.limit()).next()
+				.satelliteNumber);
+		assertEquals(148493, TLEView.of(buf).moveTo(0).getSatelliteNumber());
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * TLECatalogQueryTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLECatalog;
+import com.smmsp.core.tle.TLECatalogQuery;
+import com.smmsp.core.tle.TLEProcessor;
+
+/**
+ * @author sean
+ *
+ */
+public class TLECatalogQueryTests {
+
+	private static final String[] ISS = {
+			"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927",
+			"2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537" };
+
+	private static final String[] NAMES = { "STARLINK-1007",
+			"STARLINK-30001", "Starlink test", "STAR ONE C2", "ISS (ZARYA)",
+			"INTELSAT 901", null, "ONEWEB-0012" };
+
+	private static final String[] DESIGNATORS = { "19074A", "23104C",
+			"23001B", "08018A", "98067A", "01024A", "98067B", "A" };
+
+	private static TLECatalog catalog(final int size, final Random rand) {
+		final TLE tle = TLEProcessor.fromString(ISS);
+		final TLECatalog.Builder builder = new TLECatalog.Builder(size);
+		for (int i = 0; i < size; ++i) {
+			tle.satelliteNumber = i + 1;
+			tle.satelliteName = NAMES[i % NAMES.length];
+			tle.internationalDesignator = DESIGNATORS[(i / NAMES.length)
+					% DESIGNATORS.length];
+			tle.meanMotionRPD = rand.nextInt(8) == 0 ? 1.0027
+					: 0.5 + rand.nextDouble() * 16;
+			tle.eccentricity = rand.nextDouble() * rand.nextDouble();
+			tle.inclinationDeg = rand.nextDouble() * 180;
+			builder.accept(tle);
+		}
+		return builder.build();
+	}
+
+	private static BitSet scan(final TLECatalog catalog, final String prefix,
+			final int year, final double mmMin, final double mmMax) {
+		final BitSet ret = new BitSet();
+		for (int i = 0; i < catalog.size(); ++i) {
+			final String name = catalog.getSatelliteName(i);
+			final String des = catalog.getInternationalDesignator(i);
+			final double mm = catalog.getMeanMotionRPD(i);
+			if (name != null
+					&& name.toUpperCase().startsWith(prefix.toUpperCase())
+					&& des.length() >= 2 && des.startsWith(String.format(
+							"%02d", year % 100))
+					&& mm >= mmMin && mm <= mmMax) {
+				ret.set(i);
+			}
+		}
+		return ret;
+	}
+
+	@Test
+	public void testNamePrefix() {
+		final TLECatalog catalog = catalog(NAMES.length, new Random(1));
+		final TLECatalogQuery query = TLECatalogQuery.of(catalog);
+
+		assertEquals("{0, 1, 2}", query.namePrefix("starlink").toString());
+		assertEquals("{0, 1, 2, 3}", query.namePrefix("STAR").toString());
+		assertEquals("{0}", query.namePrefix("STARLINK-1007").toString());
+		assertTrue(query.namePrefix("STARLINK-10070").isEmpty());
+		assertTrue(query.namePrefix("GPS").isEmpty());
+		// the unnamed set never matches.
+		assertEquals(7, query.namePrefix("").cardinality());
+	}
+
+	@Test
+	public void testLaunch() {
+		final TLECatalog catalog = catalog(NAMES.length
+				* DESIGNATORS.length, new Random(1));
+		final TLECatalogQuery query = TLECatalogQuery.of(catalog);
+
+		final BitSet iss = query.launch(1998, 67);
+		assertEquals(2 * NAMES.length, iss.cardinality());
+		for (int i = iss.nextSetBit(0); i >= 0; i = iss.nextSetBit(i + 1)) {
+			assertTrue(catalog.getInternationalDesignator(i)
+					.startsWith("98067"));
+		}
+		assertEquals(2 * NAMES.length, query.launchYear(2023).cardinality());
+		assertEquals(5 * NAMES.length, query.launchYears(2001, 2023)
+				.cardinality());
+		assertTrue(query.launchYear(1957).isEmpty());
+	}
+
+	@Test
+	public void testCombinedMatchesScan() {
+		final TLECatalog catalog = catalog(5000, new Random(7));
+		final TLECatalogQuery query = TLECatalogQuery.of(catalog);
+
+		final BitSet geo = query.meanMotion(0.99, 1.01);
+		geo.and(query.namePrefix("STARLINK"));
+		geo.and(query.launchYear(2023));
+		assertFalse(geo.isEmpty());
+		assertEquals(scan(catalog, "STARLINK", 2023, 0.99, 1.01), geo);
+
+		final BitSet leo = query.meanMotion(11.25, 20);
+		leo.and(query.namePrefix("one"));
+		leo.and(query.launchYear(2019));
+		assertEquals(scan(catalog, "ONE", 2019, 11.25, 20), leo);
+	}
+
+	@Test
+	public void testRanges() {
+		final TLECatalog catalog = catalog(2000, new Random(3));
+		final TLECatalogQuery query = TLECatalogQuery.of(catalog);
+		final BitSet ecc = query.eccentricity(0.1, 0.2);
+		final BitSet inc = query.inclination(80, 100);
+		for (int i = 0; i < catalog.size(); ++i) {
+			final double e = catalog.getEccentricity(i);
+			final double in = catalog.getInclinationDeg(i);
+			assertEquals(e >= 0.1 && e <= 0.2, ecc.get(i));
+			assertEquals(in >= 80 && in <= 100, inc.get(i));
+		}
+		assertEquals(catalog.size(), query.all().cardinality());
+	}
+}
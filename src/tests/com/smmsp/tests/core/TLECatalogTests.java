@@ -0,0 +1,100 @@
+/*
+ * TLECatalogTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLECatalog;
+import com.smmsp.core.tle.TLEProcessor;
+import com.smmsp.time.GregorianDate;
+
+/**
+ * @author sean
+ *
+ */
+public class TLECatalogTests {
+
+	private static final String NOAA =
+			"NOAA 14                 \n"
+			+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\n"
+			+ "2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\n";
+
+	private static final String ISS =
+			"ISS (ZARYA)\n"
+			+ "1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+			+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537\n";
+
+	@Test
+	public void testBuildFromStream() {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1500; ++i) {
+			text.append(i % 2 == 0 ? NOAA : ISS);
+		}
+		final TLECatalog.Builder builder = new TLECatalog.Builder(16);
+		final int count = TLEProcessor.fromInputStream(
+				new ByteArrayInputStream(text.toString().getBytes(
+						StandardCharsets.US_ASCII)), builder);
+		final TLECatalog catalog = builder.build();
+
+		assertEquals(1500, count);
+		assertEquals(1500, catalog.size());
+		assertEquals(23455, catalog.getSatelliteNumber(0));
+		assertEquals(25544, catalog.getSatelliteNumber(1499));
+		assertEquals(51.6416, catalog.getInclinationDeg(1), 0);
+		assertEquals(15.72125391, catalog.getMeanMotionRPD(1), 0);
+		assertEquals(0.0008546, catalog.getEccentricity(0), 0);
+		assertEquals(2454730.01782528, catalog.getEpochJulianDate(1), 1e-8);
+	}
+
+	@Test
+	public void testRoundTrip() {
+		final TLE expected = TLEProcessor.fromString(NOAA.split("\n"));
+		final TLECatalog catalog = TLECatalog.of(expected);
+		final TLE actual = catalog.get(0);
+
+		assertEquals(expected.satelliteName, actual.satelliteName);
+		assertEquals(expected.classification, actual.classification);
+		assertEquals(expected.internationalDesignator,
+				actual.internationalDesignator);
+		assertEquals(expected.bstarDragTerm, actual.bstarDragTerm, 0);
+		assertEquals(expected.revNumberAtEpoch, actual.revNumberAtEpoch);
+		assertEquals(expected.epochJulianDate, actual.epochJulianDate, 0);
+		assertEquals(0, ((GregorianDate) expected.epoch)
+				.compareTo((GregorianDate) actual.epoch));
+	}
+
+	@Test
+	public void testBuilderKeepsGoing() {
+		final TLECatalog.Builder builder = new TLECatalog.Builder();
+		builder.accept(TLEProcessor.fromString(NOAA.split("\n")));
+		final TLECatalog first = builder.build();
+		builder.accept(TLEProcessor.fromString(ISS.split("\n")));
+		assertEquals(1, first.size());
+		assertEquals(2, builder.build().size());
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * TLEDerivedElementsTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLECatalog;
+import com.smmsp.core.tle.TLEDerivedElements;
+import com.smmsp.core.tle.TLEProcessor;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEDerivedElementsTests {
+
+	private static final String[] ISS = {
+			"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927",
+			"2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537" };
+
+	@Test
+	public void testIss() {
+		final TLE tle = TLEProcessor.fromString(ISS);
+		final TLEDerivedElements d = TLEDerivedElements.of(tle);
+		assertEquals(6730.963, d.getSemiMajorAxisKm(), 0.001);
+		assertEquals(91.596, d.getPeriodMinutes(), 0.001);
+		assertEquals(d.getSemiMajorAxisKm() * 1.0006703 - 6378.135,
+				d.getApogeeAltitudeKm(), 1e-9);
+		assertEquals(d.getSemiMajorAxisKm() * 0.9993297 - 6378.135,
+				d.getPerigeeAltitudeKm(), 1e-9);
+		assertTrue(d.getPerigeeAltitudeKm() > 330);
+		assertTrue(d.getApogeeAltitudeKm() < 360);
+		assertEquals(tle.epochJulianDate, d.getEpochJulianDate(), 0);
+	}
+
+	@Test
+	public void testGeosynchronous() {
+		// one sidereal day.
+		assertEquals(42164, TLEDerivedElements.semiMajorAxisKm(1.00273790935),
+				1);
+		assertEquals(1436.07, TLEDerivedElements.periodMinutes(1.00273790935),
+				0.01);
+	}
+
+	@Test
+	public void testCatalogColumns() {
+		final TLE iss = TLEProcessor.fromString(ISS);
+		final TLE geo = TLEProcessor.fromString(ISS);
+		geo.meanMotionRPD = 1.0027;
+		geo.eccentricity = 0.0002;
+		final TLECatalog catalog = TLECatalog.of(iss, geo);
+		for (int i = 0; i < catalog.size(); ++i) {
+			final TLEDerivedElements d = TLEDerivedElements.of(catalog.get(i));
+			assertEquals(d.getSemiMajorAxisKm(),
+					catalog.getSemiMajorAxisKm(i), 0);
+			assertEquals(d.getPeriodMinutes(), catalog.getPeriodMinutes(i), 0);
+			assertEquals(d.getApogeeAltitudeKm(),
+					catalog.getApogeeAltitudeKm(i), 0);
+			assertEquals(d.getPerigeeAltitudeKm(),
+					catalog.getPerigeeAltitudeKm(i), 0);
+		}
+		assertTrue(catalog.getPerigeeAltitudeKm(1) > 35700);
+	}
+}
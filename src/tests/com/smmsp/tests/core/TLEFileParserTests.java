@@ -0,0 +1,97 @@
+/*
+ * TLEFileParserTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEFileParser;
+import com.smmsp.core.tle.TLEProcessor;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEFileParserTests {
+
+	private static final String NOAA =
+			"NOAA 14                 \n"
+			+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\n"
+			+ "2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\n";
+
+	private static final String ISS =
+			"ISS (ZARYA)\n"
+			+ "1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+			+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537\n";
+
+	private static Path write(final String text) throws IOException {
+		final Path file = Files.createTempFile("tles", ".txt");
+		file.toFile().deleteOnExit();
+		Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+		return file;
+	}
+
+	@Test
+	public void testLargeFileKeepsOrder() throws IOException {
+		final StringBuilder text = new StringBuilder();
+		final int records = 5000;
+		for (int i = 0; i < records; ++i) {
+			text.append(i % 3 == 0 ? ISS : NOAA);
+		}
+		final Path file = write(text.toString());
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final TLE[] tles = TLEFileParser.parse(file, pool);
+			assertEquals(records, tles.length);
+			for (int i = 0; i < records; ++i) {
+				assertEquals(i % 3 == 0 ? 25544 : 23455,
+						tles[i].satelliteNumber);
+				assertEquals(i % 3 == 0 ? "ISS (ZARYA)" : "NOAA 14",
+						tles[i].satelliteName);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSmallFile() throws IOException {
+		final TLE[] tles = TLEProcessor.fromFile(write(NOAA + ISS));
+		assertEquals(2, tles.length);
+		assertEquals(23455, tles[0].satelliteNumber);
+		assertEquals(25544, tles[1].satelliteNumber);
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		assertEquals(0, TLEProcessor.fromFile(write("")).length);
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * TLEFormatterTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.smmsp.core.Classification;
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEException;
+import com.smmsp.core.tle.TLEFormatter;
+import com.smmsp.core.tle.TLEProcessor;
+import com.smmsp.time.JulianDate;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEFormatterTests {
+
+	private static final String[][] SETS = {
+		{
+			"NOAA 14                 ",
+			"1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621",
+			"2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495"
+		},
+		{
+			"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927",
+			"2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537"
+		}
+	};
+
+	@Test
+	public void testReproducesText() throws IOException {
+		final TLEFormatter formatter = new TLEFormatter();
+		for (String[] set : SETS) {
+			final StringBuilder expected = new StringBuilder();
+			for (String line : set) {
+				expected.append(line).append('\n');
+			}
+			final StringBuilder actual = new StringBuilder();
+			formatter.format(TLEProcessor.fromString(set), actual);
+			assertEquals(expected.toString(), actual.toString());
+
+			final ByteBuffer buffer = ByteBuffer.allocate(256);
+			formatter.format(TLEProcessor.fromString(set), buffer);
+			assertEquals(expected.toString(), new String(buffer.array(), 0,
+					buffer.position(), StandardCharsets.US_ASCII));
+		}
+	}
+
+	@Test
+	public void testRandomRoundTrip() throws IOException {
+		final Random rand = new Random(42);
+		final TLEFormatter formatter = new TLEFormatter();
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 5000; ++i) {
+			final TLE tle = random(rand);
+			text.setLength(0);
+			formatter.format(tle, text);
+			final TLE back = TLEProcessor.fromString(text.toString()
+					.split("\n"));
+			assertEquals(text.toString(), tle.satelliteNumber,
+					back.satelliteNumber);
+			assertEquals(tle.classification, back.classification);
+			assertEquals(tle.internationalDesignator,
+					back.internationalDesignator);
+			assertEquals(tle.elementSetNumber, back.elementSetNumber);
+			assertEquals(tle.revNumberAtEpoch, back.revNumberAtEpoch);
+			assertBits(text, tle.epochJulianDate, back.epochJulianDate);
+			assertBits(text, tle.dotMeanMotion, back.dotMeanMotion);
+			assertBits(text, tle.dotDotMeanMotion, back.dotDotMeanMotion);
+			assertBits(text, tle.bstarDragTerm, back.bstarDragTerm);
+			assertBits(text, tle.inclinationDeg, back.inclinationDeg);
+			assertBits(text, tle.raanDeg, back.raanDeg);
+			assertBits(text, tle.eccentricity, back.eccentricity);
+			assertBits(text, tle.argPerigeeDeg, back.argPerigeeDeg);
+			assertBits(text, tle.meanAnomalyDeg, back.meanAnomalyDeg);
+			assertBits(text, tle.meanMotionRPD, back.meanMotionRPD);
+		}
+	}
+
+	@Test(expected = TLEException.class)
+	public void testOutOfRange() {
+		final TLE tle = TLEProcessor.fromString(SETS[1]);
+		tle.eccentricity = 1.5;
+		new TLEFormatter().format(tle, ByteBuffer.allocate(256));
+	}
+
+	@Test
+	public void testNothingWrittenOnFailure() {
+		final TLE tle = TLEProcessor.fromString(SETS[0]);
+		final ByteBuffer buffer = ByteBuffer.allocate(100);
+		try {
+			new TLEFormatter().format(tle, buffer);
+			fail();
+		} catch (BufferOverflowException e) {
+			assertEquals(0, buffer.position());
+		}
+		tle.revNumberAtEpoch = 123456;
+		final ByteBuffer big = ByteBuffer.allocate(256);
+		try {
+			new TLEFormatter().format(tle, big);
+			fail();
+		} catch (TLEException e) {
+			assertEquals(0, big.position());
+		}
+	}
+
+	private static void assertBits(final CharSequence text,
+			final double expected, final double actual) {
+		assertEquals(text.toString(), Double.doubleToRawLongBits(expected),
+				Double.doubleToRawLongBits(actual));
+	}
+
+	/**
+	 * An element set with values that could have come from a file.
+	 */
+	private static TLE random(final Random rand) {
+		final TLE tle = new TLE();
+		tle.satelliteNumber = rand.nextInt(100000);
+		tle.classification = Classification.values()[rand.nextInt(3)];
+		tle.internationalDesignator = String.format(Locale.US, "%02d%03d%s",
+				rand.nextInt(100), rand.nextInt(1000), "ABC".substring(
+						rand.nextInt(3)));
+		final int year = 1957 + rand.nextInt(100);
+		final double day = decimal(rand, 1 + rand.nextInt(365), 8);
+		tle.epochJulianDate = JulianDate.julianDateOf(year, day);
+		tle.dotMeanMotion = decimal(rand, 0, 8) * (rand.nextBoolean() ? 1 : -1);
+		tle.dotDotMeanMotion = exponent(rand, false);
+		tle.bstarDragTerm = exponent(rand, true);
+		tle.elementSetNumber = rand.nextInt(10000);
+		tle.inclinationDeg = decimal(rand, rand.nextInt(180), 4);
+		tle.raanDeg = decimal(rand, rand.nextInt(360), 4);
+		tle.eccentricity = Double.valueOf("." + String.format("%07d",
+				rand.nextInt(10000000)));
+		tle.argPerigeeDeg = decimal(rand, rand.nextInt(360), 4);
+		tle.meanAnomalyDeg = decimal(rand, rand.nextInt(360), 4);
+		tle.meanMotionRPD = decimal(rand, rand.nextInt(17), 8);
+		tle.revNumberAtEpoch = rand.nextInt(100000);
+		return tle;
+	}
+
+	private static double decimal(final Random rand, final int whole,
+			final int decimals) {
+		final StringBuilder s = new StringBuilder().append(whole).append('.');
+		for (int i = 0; i < decimals; ++i) {
+			s.append((char) ('0' + rand.nextInt(10)));
+		}
+		return Double.valueOf(s.toString());
+	}
+
+	private static double exponent(final Random rand, final boolean plus) {
+		final int exp = plus ? rand.nextInt(19) - 9 : -rand.nextInt(10);
+		final double value = Double.valueOf(rand.nextInt(100000) + "E" + exp);
+		return rand.nextBoolean() ? value : -value;
+	}
+}
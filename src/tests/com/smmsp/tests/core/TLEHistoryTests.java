@@ -0,0 +1,130 @@
+/*
+ * TLEHistoryTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEHistory;
+import com.smmsp.core.tle.TLEProcessor;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEHistoryTests {
+
+	private static TLE tle(final int number, final int elementSet,
+			final double epoch) {
+		final TLE tle = new TLE();
+		tle.satelliteNumber = number;
+		tle.elementSetNumber = elementSet;
+		tle.epochJulianDate = epoch;
+		return tle;
+	}
+
+	@Test
+	public void testBestAt() {
+		final TLEHistory history = new TLEHistory();
+		history.addAll(new TLE[] { tle(5, 1, 100), tle(7, 1, 100),
+				tle(5, 2, 110), tle(5, 4, 130) });
+		// arrives late, goes in the middle.
+		history.accept(tle(5, 3, 120));
+
+		final TLE out = new TLE();
+		assertEquals(4, history.historySize(5));
+		assertEquals(1, history.get(history.bestAt(5, 50), out).elementSetNumber);
+		assertEquals(1, history.get(history.bestAt(5, 100), out).elementSetNumber);
+		assertEquals(2, history.get(history.bestAt(5, 119.9), out).elementSetNumber);
+		assertEquals(3, history.get(history.bestAt(5, 125), out).elementSetNumber);
+		assertEquals(4, history.get(history.bestAt(5, 500), out).elementSetNumber);
+		assertEquals(1, history.bestAt(7, 500));
+		assertEquals(-1, history.bestAt(6, 500));
+		assertEquals(2, history.satelliteCount());
+	}
+
+	@Test
+	public void testManySatellites() {
+		final TLEHistory history = new TLEHistory();
+		for (int day = 0; day < 20; ++day) {
+			for (int sat = 0; sat < 1000; ++sat) {
+				history.accept(tle(sat, day, 2450000 + day));
+			}
+		}
+		assertEquals(1000, history.satelliteCount());
+		assertEquals(20000, history.size());
+		for (int sat = 0; sat < 1000; ++sat) {
+			assertEquals(2450007, history.getEpochJulianDate(
+					history.bestAt(sat, 2450007.5)), 0);
+		}
+	}
+
+	@Test
+	public void testSameFileTwice() {
+		final String text = "ISS (ZARYA)\n"
+				+ "1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+				+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537\n"
+				+ "NOAA 14\n"
+				+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\n"
+				+ "2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\n";
+		final TLEHistory history = new TLEHistory();
+		for (int i = 0; i < 2; ++i) {
+			TLEProcessor.fromInputStream(new ByteArrayInputStream(
+					text.getBytes(StandardCharsets.US_ASCII)), history);
+		}
+		assertEquals(2, history.size());
+		assertEquals(2, history.getDuplicates());
+		assertEquals(1, history.historySize(25544));
+		assertEquals(1, history.historySize(23455));
+	}
+
+	@Test
+	public void testSameEpochOtherElementSet() {
+		final TLEHistory history = new TLEHistory();
+		history.addAll(new TLE[] { tle(5, 1, 100), tle(5, 2, 100),
+				tle(5, 1, 100), tle(5, 3, 110) });
+		history.addAll(new TLE[] { tle(5, 1, 100), tle(5, 3, 110) });
+		assertEquals(3, history.historySize(5));
+		assertEquals(3, history.getDuplicates());
+		// the later copy at an epoch still wins.
+		assertEquals(2, history.get(history.bestAt(5, 105), new TLE())
+				.elementSetNumber);
+	}
+
+	@Test
+	public void testFromStream() {
+		final String text = "ISS (ZARYA)\n"
+				+ "1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+				+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537\n";
+		final TLEHistory history = new TLEHistory();
+		TLEProcessor.fromInputStream(new ByteArrayInputStream(
+				text.getBytes(StandardCharsets.US_ASCII)), history);
+		final TLE tle = history.get(history.bestAt(25544, 2454731), new TLE());
+		assertEquals("ISS (ZARYA)", tle.satelliteName);
+		assertEquals(51.6416, tle.inclinationDeg, 0);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * TLEIndexTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLECatalog;
+import com.smmsp.core.tle.TLEIndex;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEIndexTests {
+
+	private static TLE tle(final int number, final String designator,
+			final double epoch) {
+		final TLE tle = new TLE();
+		tle.satelliteNumber = number;
+		tle.internationalDesignator = designator;
+		tle.epochJulianDate = epoch;
+		return tle;
+	}
+
+	@Test
+	public void testLookup() {
+		final TLE[] tles = new TLE[5000];
+		for (int i = 0; i < tles.length; ++i) {
+			tles[i] = tle(i * 7 + 1, String.format("%02d%03dA", i % 100, i),
+					2450000);
+		}
+		final TLEIndex index = TLEIndex.of(TLECatalog.of(tles));
+		assertEquals(5000, index.size());
+		for (int i = 0; i < tles.length; ++i) {
+			assertEquals(i, index.indexOf(i * 7 + 1));
+			assertEquals(i, index.indexOfDesignator(
+					new StringBuilder(tles[i].internationalDesignator)));
+		}
+		assertEquals(-1, index.indexOf(2));
+		assertEquals(-1, index.indexOf(-1));
+		assertEquals(-1, index.indexOf(Integer.MIN_VALUE));
+		assertFalse(index.contains(-1));
+		assertFalse(index.contains(0));
+		assertEquals(-1, index.indexOfDesignator("98067A"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeNumber() {
+		TLEIndex.of(new TLE[] { tle(25544, "98067A", 2454730.5),
+				tle(-1, "98067B", 2454730.5) });
+	}
+
+	@Test
+	public void testLatestEpochWins() {
+		final TLEIndex index = TLEIndex.of(new TLE[] {
+				tle(25544, "98067A", 2454730.5),
+				tle(25544, "98067A", 2454731.5),
+				tle(25544, "98067A", 2454729.5) });
+		assertEquals(1, index.size());
+		assertEquals(1, index.indexOf(25544));
+		assertEquals(1, index.indexOfDesignator("98067A"));
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * TLELineParserTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEException;
+import com.smmsp.core.tle.TLEField;
+import com.smmsp.core.tle.TLELineParser;
+import com.smmsp.core.tle.TLEParseError;
+import com.smmsp.core.tle.TLEProcessor;
+import com.smmsp.time.GregorianDate;
+
+/**
+ * @author sean
+ *
+ */
+public class TLELineParserTests {
+
+	private static final String[][] SETS = {
+		{
+			"NOAA 14                 ",
+			"1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621",
+			"2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495"
+		},
+		{
+			"ISS (ZARYA)",
+			"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927",
+			"2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537"
+		}
+	};
+
+	/**
+	 * Checks every field against the String based parser, bit for bit.
+	 */
+	private static void assertSameTLE(final TLE expected, final TLE actual) {
+		assertEquals(expected.satelliteName, actual.satelliteName);
+		assertEquals(expected.satelliteNumber, actual.satelliteNumber);
+		assertEquals(expected.classification, actual.classification);
+		assertEquals(expected.internationalDesignator,
+				actual.internationalDesignator);
+		assertEquals(0, ((GregorianDate) expected.epoch)
+				.compareTo((GregorianDate) actual.epoch));
+		assertBits(expected.epochJulianDate, actual.epochJulianDate);
+		assertBits(expected.dotMeanMotion, actual.dotMeanMotion);
+		assertBits(expected.dotDotMeanMotion, actual.dotDotMeanMotion);
+		assertBits(expected.bstarDragTerm, actual.bstarDragTerm);
+		assertEquals(expected.elementSetNumber, actual.elementSetNumber);
+		assertBits(expected.inclinationDeg, actual.inclinationDeg);
+		assertBits(expected.raanDeg, actual.raanDeg);
+		assertBits(expected.eccentricity, actual.eccentricity);
+		assertBits(expected.argPerigeeDeg, actual.argPerigeeDeg);
+		assertBits(expected.meanAnomalyDeg, actual.meanAnomalyDeg);
+		assertBits(expected.meanMotionRPD, actual.meanMotionRPD);
+		assertEquals(expected.revNumberAtEpoch, actual.revNumberAtEpoch);
+	}
+
+	private static void assertBits(final double expected, final double actual) {
+		assertEquals(Double.doubleToRawLongBits(expected),
+				Double.doubleToRawLongBits(actual));
+	}
+
+	@Test
+	public void testCharSequenceMatchesProcessor() {
+		final TLELineParser parser = new TLELineParser();
+		for (String[] set : SETS) {
+			final TLE expected = TLEProcessor.fromString(set);
+			final TLE actual = new TLE();
+			parser.parse(actual, set[0], set[1], set[2]);
+			assertSameTLE(expected, actual);
+		}
+	}
+
+	@Test
+	public void testBytesMatchProcessor() {
+		final TLELineParser parser = new TLELineParser();
+		for (String[] set : SETS) {
+			final TLE expected = TLEProcessor.fromString(set);
+			final TLE actual = new TLE();
+			final byte[] name = set[0].getBytes(StandardCharsets.US_ASCII);
+			final byte[] line1 = ("xx" + set[1]).getBytes(StandardCharsets.US_ASCII);
+			final byte[] line2 = set[2].getBytes(StandardCharsets.US_ASCII);
+			parser.parseName(actual, name, 0, name.length);
+			parser.parseFirstLine(actual, line1, 2, line1.length - 2);
+			parser.parseSecondLine(actual, ByteBuffer.wrap(line2), 0,
+					line2.length);
+			assertSameTLE(expected, actual);
+		}
+	}
+
+	@Test
+	public void testReusedTLEKeepsStrings() {
+		final TLELineParser parser = new TLELineParser();
+		final TLE tle = new TLE();
+		parser.parse(tle, SETS[0][0], SETS[0][1], SETS[0][2]);
+		final String name = tle.satelliteName;
+		final String designator = tle.internationalDesignator;
+
+		parser.parse(tle, SETS[0][0], SETS[0][1], SETS[0][2]);
+		assertSame(name, tle.satelliteName);
+		assertSame(designator, tle.internationalDesignator);
+
+		parser.parse(tle, SETS[1][0], SETS[1][1], SETS[1][2]);
+		assertEquals("ISS (ZARYA)", tle.satelliteName);
+		assertEquals("98067A", tle.internationalDesignator);
+	}
+
+	@Test(expected = TLEException.class)
+	public void testBadChecksum() {
+		new TLELineParser().parseFirstLine(new TLE(),
+				"1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2622");
+	}
+
+	@Test
+	public void testSignedCatalogNumber() {
+		// checksum adds up, but catalog numbers have no sign.
+		final String line = "1 -1234U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2623";
+		final TLELineParser parser = new TLELineParser();
+		assertFalse(parser.tryParseFirstLine(new TLE(), line));
+		assertEquals(TLEField.SATELLITE_NUMBER, parser.getErrorField());
+		assertEquals(TLEParseError.Reason.BAD_NUMBER, parser.getErrorReason());
+		try {
+			TLEProcessor.fromString(new String[] { line, SETS[0][2] });
+			fail();
+		} catch (TLEException e) {
+			// both decode paths agree.
+		}
+	}
+
+	@Test(expected = TLEException.class)
+	public void testShortLine() {
+		new TLELineParser().parseSecondLine(new TLE(), "2 23455  99.0090");
+	}
+
+	@Test(expected = TLEException.class)
+	public void testBadField() {
+		// 'X' in the inclination, checksum still adds up.
+		new TLELineParser().parseSecondLine(new TLE(),
+				"2 23455  99.X090 272.6745 0008546 223.1686 136.8816 14.11711747148495");
+	}
+}
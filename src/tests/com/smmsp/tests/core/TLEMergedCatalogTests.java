@@ -0,0 +1,88 @@
+/*
+ * TLEMergedCatalogTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEMergedCatalog;
+import com.smmsp.core.tle.TLESink;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEMergedCatalogTests {
+
+	private static TLE tle(final int number, final int elementSet,
+			final double epoch) {
+		final TLE tle = new TLE();
+		tle.satelliteNumber = number;
+		tle.elementSetNumber = elementSet;
+		tle.epochJulianDate = epoch;
+		return tle;
+	}
+
+	@Test
+	public void testDeduplicates() {
+		final TLEMergedCatalog.Builder builder = new TLEMergedCatalog.Builder();
+		builder.addGroup("Weather", new TLE[] { tle(1, 10, 2450000.5),
+				tle(2, 20, 2450000.5) });
+		builder.addGroup("Scientific", new TLE[] { tle(2, 20, 2450000.5),
+				tle(3, 30, 2450000.5) });
+		// newer element set for satellite 2 is a different object.
+		builder.addGroup("Misc", new TLE[] { tle(2, 21, 2450001.5) });
+		final TLEMergedCatalog merged = builder.build();
+
+		assertEquals(4, merged.size());
+		assertEquals(2, merged.getCatalog().getSatelliteNumber(1));
+		assertTrue(merged.isInGroup(1, "Weather"));
+		assertTrue(merged.isInGroup(1, "Scientific"));
+		assertFalse(merged.isInGroup(1, "Misc"));
+		assertFalse(merged.isInGroup(1, "Nope"));
+		assertEquals(2, merged.getGroups(1).cardinality());
+		assertArrayEquals(new int[] { 1, 2 }, merged.getMembers(1));
+		assertArrayEquals(new int[] { 3 }, merged.getMembers(
+				merged.groupIndex("Misc")));
+	}
+
+	@Test
+	public void testManyGroupsAndObjects() {
+		final TLEMergedCatalog.Builder builder = new TLEMergedCatalog.Builder();
+		for (int g = 0; g < 150; ++g) {
+			final TLESink sink = builder.group("g" + g);
+			for (int i = 0; i < 3000; i += g + 1) {
+				sink.accept(tle(i, 1, 2450000.5 + i));
+			}
+		}
+		final TLEMergedCatalog merged = builder.build();
+		assertEquals(3000, merged.size());
+		assertEquals(150, merged.getGroupNames().size());
+		// 0 is in every group, 2999 in the groups whose stride divides it.
+		assertEquals(150, merged.getGroups(0).cardinality());
+		for (int g = 0; g < 150; ++g) {
+			assertEquals(2999 % (g + 1) == 0, merged.isInGroup(2999, g));
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * TLEParseReportTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEField;
+import com.smmsp.core.tle.TLEFileParser;
+import com.smmsp.core.tle.TLEParseError;
+import com.smmsp.core.tle.TLEParseError.Reason;
+import com.smmsp.core.tle.TLEParseReport;
+import com.smmsp.core.tle.TLEProcessor;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEParseReportTests {
+
+	private static final String GOOD =
+			"NOAA 14                 \n"
+			+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\n"
+			+ "2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\n";
+
+	private static final String BAD_CHECKSUM =
+			"BROKEN 1\n"
+			+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2620\n"
+			+ "2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\n";
+
+	private static final String BAD_FIELD =
+			"BROKEN 2\n"
+			+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\n"
+			+ "2 23455  99.X090 272.6745 0008546 223.1686 136.8816 14.11711747148495\n";
+
+	private static final String TRUNCATED =
+			"BROKEN 3\n"
+			+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\n";
+
+	@Test
+	public void testLenientStream() {
+		final String text = GOOD + BAD_CHECKSUM + GOOD + BAD_FIELD + GOOD
+				+ TRUNCATED;
+		final TLEParseReport report = new TLEParseReport();
+		final TLE[] tles = TLEProcessor.fromInputStream(
+				new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII)),
+				report);
+
+		assertEquals(3, tles.length);
+		assertEquals(3, report.getAccepted());
+		assertEquals(3, report.getRejected());
+		assertEquals(1, report.getRejected(Reason.CHECKSUM));
+		assertEquals(1, report.getRejected(Reason.BAD_NUMBER));
+		assertEquals(1, report.getRejected(Reason.MISSING_LINE));
+		assertEquals(1, report.getRejected(TLEField.INCLINATION));
+
+		final TLEParseError checksum = report.getErrors().get(0);
+		assertEquals(5, checksum.getLineNumber());
+		assertEquals(TLEField.LINE1, checksum.getField());
+		assertTrue(checksum.getLine().endsWith("2620"));
+
+		final TLEParseError field = report.getErrors().get(1);
+		assertEquals(12, field.getLineNumber());
+		assertEquals(TLEField.INCLINATION, field.getField());
+
+		assertEquals(TLEField.LINE2, report.getErrors().get(2).getField());
+	}
+
+	@Test
+	public void testLenientFromString() {
+		final TLEParseReport report = new TLEParseReport();
+		assertNotNull(TLEProcessor.fromString(GOOD.split("\n"), report));
+		assertNull(TLEProcessor.fromString(BAD_FIELD.split("\n"), report));
+		assertNull(TLEProcessor.fromString(new String[] { "x" }, report));
+		assertEquals(1, report.getAccepted());
+		assertEquals(2, report.getRejected());
+		assertEquals(3, report.getErrors().get(0).getLineNumber());
+		// "x" alone: line 2 is the one missing.
+		assertEquals(2, report.getErrors().get(1).getLineNumber());
+	}
+
+	@Test
+	public void testLenientFileKeepsLineNumbers() throws IOException {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 4000; ++i) {
+			text.append(i == 3000 ? BAD_FIELD : GOOD);
+		}
+		final Path file = Files.createTempFile("tles", ".txt");
+		file.toFile().deleteOnExit();
+		Files.write(file, text.toString().getBytes(StandardCharsets.US_ASCII));
+
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			final TLEParseReport report = new TLEParseReport();
+			final TLE[] tles = TLEFileParser.parse(file, pool, report);
+			assertEquals(3999, tles.length);
+			assertEquals(1, report.getRejected());
+			assertEquals(3000 * 3 + 3,
+					report.getErrors().get(0).getLineNumber());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testMaxErrors() {
+		final TLEParseReport report = new TLEParseReport(1);
+		assertTrue(report.keepsErrors());
+		report.rejected(1, TLEField.LINE1, Reason.CHECKSUM, "a");
+		assertFalse(report.keepsErrors());
+		report.rejected(4, TLEField.LINE1, Reason.CHECKSUM, "b");
+		assertEquals(2, report.getRejected(Reason.CHECKSUM));
+		assertEquals(1, report.getErrors().size());
+	}
+}
@@ -0,0 +1,167 @@
+/*
+ * TLEReaderTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEException;
+import com.smmsp.core.tle.TLEParseError.Reason;
+import com.smmsp.core.tle.TLEParseReport;
+import com.smmsp.core.tle.TLEProcessor;
+import com.smmsp.core.tle.TLEReader;
+import com.smmsp.core.tle.TLESink;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEReaderTests {
+
+	private static final String CATALOG =
+			"NOAA 14                 \r\n"
+			+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\r\n"
+			+ "2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\r\n"
+			+ "ISS (ZARYA)\n"
+			+ "1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+			+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537";
+
+	private static InputStream stream(final String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	public void testIterator() {
+		// tiny buffer to force compaction and growth.
+		final TLEReader reader = new TLEReader(stream(CATALOG), 7);
+		assertTrue(reader.hasNext());
+		final TLE first = reader.next();
+		assertEquals("NOAA 14", first.satelliteName);
+		assertEquals(23455, first.satelliteNumber);
+		assertEquals(14.11711747, first.meanMotionRPD, 0);
+
+		final TLE second = reader.next();
+		assertEquals("ISS (ZARYA)", second.satelliteName);
+		assertEquals(25544, second.satelliteNumber);
+		assertEquals(-1.1606, second.bstarDragTerm, 0);
+		assertEquals(56353, second.revNumberAtEpoch);
+
+		assertFalse(reader.hasNext());
+		assertEquals(6, reader.getLineNumber());
+	}
+
+	@Test
+	public void testSinkReusesOneTLE() {
+		final List<TLE> seen = new ArrayList<>();
+		final List<Integer> numbers = new ArrayList<>();
+		final int count = TLEProcessor.fromInputStream(stream(CATALOG),
+				new TLESink() {
+					@Override
+					public void accept(final TLE tle) {
+						seen.add(tle);
+						numbers.add(tle.satelliteNumber);
+					}
+				});
+		assertEquals(2, count);
+		assertSame(seen.get(0), seen.get(1));
+		assertEquals(Integer.valueOf(23455), numbers.get(0));
+		assertEquals(Integer.valueOf(25544), numbers.get(1));
+	}
+
+	@Test
+	public void testFromInputStream() {
+		final TLE[] tles = TLEProcessor.fromInputStream(stream(CATALOG));
+		assertEquals(2, tles.length);
+		assertEquals("98067A", tles[1].internationalDesignator);
+	}
+
+	@Test(expected = TLEException.class)
+	public void testWrongNumberOfLines() {
+		TLEProcessor.fromInputStream(stream(CATALOG.substring(0,
+				CATALOG.lastIndexOf('\n'))));
+	}
+
+	@Test
+	public void testMixedTwoAndThreeLineSets() {
+		final String mixed =
+				"1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\n"
+				+ "2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\n"
+				+ "\n"
+				+ "ISS (ZARYA)\n"
+				+ "1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+				+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537\n"
+				+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\n"
+				+ "2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\n";
+		final TLEReader reader = new TLEReader(stream(mixed));
+		final TLE tle = new TLE();
+
+		assertTrue(reader.next(tle));
+		assertNull(tle.satelliteName);
+		assertEquals(23455, tle.satelliteNumber);
+
+		assertTrue(reader.next(tle));
+		assertEquals("ISS (ZARYA)", tle.satelliteName);
+		assertEquals(25544, tle.satelliteNumber);
+
+		assertTrue(reader.next(tle));
+		assertNull(tle.satelliteName);
+		assertEquals(23455, tle.satelliteNumber);
+
+		assertFalse(reader.next(tle));
+	}
+
+	@Test
+	public void testLenientResync() {
+		// line 2 missing after the first line 1, reader must pick up the
+		// ISS set that follows.
+		final String text =
+				"1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\n"
+				+ "ISS (ZARYA)\n"
+				+ "1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+				+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537\n";
+		final TLEReader reader = new TLEReader(stream(text));
+		final TLEParseReport report = new TLEParseReport();
+		reader.setReport(report);
+
+		final TLE tle = new TLE();
+		assertTrue(reader.next(tle));
+		assertEquals(25544, tle.satelliteNumber);
+		assertEquals("ISS (ZARYA)", tle.satelliteName);
+		assertFalse(reader.next(tle));
+		assertEquals(1, report.getRejected(Reason.UNEXPECTED_LINE));
+		assertEquals(2, report.getErrors().get(0).getLineNumber());
+	}
+
+	@Test(expected = TLEException.class)
+	public void testStrayLineTwo() {
+		TLEProcessor.fromInputStream(stream(
+				"2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\n"));
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * TLEStringPoolTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEProcessor;
+import com.smmsp.core.tle.TLEStringPool;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEStringPoolTests {
+
+	private static final String ISS =
+			"ISS (ZARYA)\n"
+			+ "1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+			+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537\n";
+
+	@Test
+	public void testSourcesShareOneString() {
+		final TLEStringPool pool = new TLEStringPool(64);
+		final byte[] bytes = "xxISS (ZARYA)".getBytes(StandardCharsets.US_ASCII);
+		final String s = pool.intern(bytes, 2, 11);
+		assertEquals("ISS (ZARYA)", s);
+		assertSame(s, pool.intern(ByteBuffer.wrap(bytes), 2, 11));
+		assertSame(s, pool.intern(new StringBuilder("[ISS (ZARYA)]"), 1, 12));
+		assertSame(s, pool.intern(new String("ISS (ZARYA)")));
+		assertNull(pool.intern(null));
+	}
+
+	@Test
+	public void testBounded() {
+		final TLEStringPool pool = new TLEStringPool(16);
+		for (int i = 0; i < 10000; ++i) {
+			assertEquals("sat " + i, pool.intern("sat " + i));
+		}
+		assertEquals(16, pool.capacity());
+	}
+
+	@Test
+	public void testRefreshesShareStrings() {
+		final TLE[] first = TLEProcessor.fromInputStream(new ByteArrayInputStream(
+				ISS.getBytes(StandardCharsets.US_ASCII)));
+		final TLE[] second = TLEProcessor.fromInputStream(new ByteArrayInputStream(
+				ISS.getBytes(StandardCharsets.US_ASCII)));
+		assertSame(first[0].satelliteName, second[0].satelliteName);
+		assertSame(first[0].internationalDesignator,
+				second[0].internationalDesignator);
+		assertSame(first[0].satelliteName,
+				TLEProcessor.fromString(ISS.split("\n")).satelliteName);
+	}
+}
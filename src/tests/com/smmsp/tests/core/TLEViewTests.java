@@ -0,0 +1,147 @@
+/*
+ * TLEViewTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.core;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.smmsp.core.tle.TLE;
+import com.smmsp.core.tle.TLEException;
+import com.smmsp.core.tle.TLEParseReport;
+import com.smmsp.core.tle.TLEProcessor;
+import com.smmsp.core.tle.TLEView;
+
+/**
+ * @author sean
+ *
+ */
+public class TLEViewTests {
+
+	private static final String NOAA =
+			"NOAA 14                 \r\n"
+			+ "1 23455U 94089A   97320.90946019  .00000140  00000-0  10191-3 0  2621\r\n"
+			+ "2 23455  99.0090 272.6745 0008546 223.1686 136.8816 14.11711747148495\r\n";
+
+	private static final String ISS =
+			"1 25544U 98067A   08264.51782528 -.00002182  00000-0 -11606-4 0  2927\n"
+			+ "2 25544  51.6416 247.4627 0006703 130.5360 325.0288 15.72125391563537\n";
+
+	private static ByteBuffer buffer(final String text) {
+		return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	@Test
+	public void testFieldsMatchProcessor() {
+		final TLEView view = TLEView.of(buffer(NOAA + "\n" + ISS + NOAA));
+		assertEquals(3, view.size());
+
+		final TLE noaa = TLEProcessor.fromString(NOAA.split("\r\n"));
+		view.moveTo(2);
+		assertEquals("NOAA 14", view.getSatelliteName());
+		assertEquals(noaa.satelliteNumber, view.getSatelliteNumber());
+		assertEquals(noaa.classification, view.getClassification());
+		assertEquals(noaa.internationalDesignator,
+				view.getInternationalDesignator());
+		assertEquals(noaa.epochJulianDate, view.getEpochJulianDate(), 0);
+		assertEquals(noaa.dotMeanMotion, view.getDotMeanMotion(), 0);
+		assertEquals(noaa.dotDotMeanMotion, view.getDotDotMeanMotion(), 0);
+		assertEquals(noaa.bstarDragTerm, view.getBstarDragTerm(), 0);
+		assertEquals(noaa.elementSetNumber, view.getElementSetNumber());
+		assertEquals(noaa.inclinationDeg, view.getInclinationDeg(), 0);
+		assertEquals(noaa.raanDeg, view.getRaanDeg(), 0);
+		assertEquals(noaa.eccentricity, view.getEccentricity(), 0);
+		assertEquals(noaa.argPerigeeDeg, view.getArgPerigeeDeg(), 0);
+		assertEquals(noaa.meanAnomalyDeg, view.getMeanAnomalyDeg(), 0);
+		assertEquals(noaa.meanMotionRPD, view.getMeanMotionRPD(), 0);
+		assertEquals(noaa.revNumberAtEpoch, view.getRevNumberAtEpoch());
+
+		view.moveTo(1);
+		assertNull(view.getSatelliteName());
+		assertEquals(25544, view.getSatelliteNumber());
+		assertEquals(-1.1606, view.getBstarDragTerm(), 0);
+		final TLE iss = view.get(new TLE());
+		assertEquals(51.6416, iss.inclinationDeg, 0);
+		assertNull(iss.satelliteName);
+	}
+
+	@Test
+	public void testFilter() {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; ++i) {
+			text.append(i % 4 == 0 ? ISS : NOAA);
+		}
+		final TLEView view = TLEView.of(buffer(text.toString()));
+		int fast = 0;
+		for (int i = 0; i < view.size(); ++i) {
+			if (view.moveTo(i).getMeanMotionRPD() > 15) {
+				++fast;
+			}
+		}
+		assertEquals(250, fast);
+		assertEquals(25544, view.copy().moveTo(996).getSatelliteNumber());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetterBeforeMoveTo() {
+		TLEView.of(buffer(ISS)).getSatelliteNumber();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testGetBeforeMoveTo() {
+		TLEView.of(buffer(ISS)).get(new TLE());
+	}
+
+	@Test(expected = TLEException.class)
+	public void testBadChecksum() {
+		TLEView.of(buffer(NOAA.replace("2621", "2622")));
+	}
+
+	@Test
+	public void testBadChecksumReported() {
+		final TLEParseReport report = new TLEParseReport();
+		final TLEView view = TLEView.of(buffer(NOAA.replace("2621", "2622")
+				+ ISS), report);
+		assertEquals(1, view.size());
+		assertEquals(25544, view.moveTo(0).getSatelliteNumber());
+		assertNull(view.getSatelliteName());
+		assertEquals(1, report.getAccepted());
+		assertEquals(1, report.getRejected());
+		assertEquals(2, report.getErrors().get(0).getLineNumber());
+	}
+
+	@Test
+	public void testJunkIsNotAName() {
+		final String[] noaa = NOAA.split("\r\n");
+		final String[] iss = ISS.split("\n");
+		// an orphan line 1, then a line 2 for another satellite.
+		final TLEView view = TLEView.of(buffer(noaa[1] + "\n" + ISS
+				+ "junk\n" + noaa[1] + "\n" + iss[1] + "\n" + ISS));
+		assertEquals(2, view.size());
+		assertNull(view.moveTo(0).getSatelliteName());
+		assertEquals(25544, view.getSatelliteNumber());
+		assertNull(view.moveTo(1).getSatelliteName());
+	}
+}
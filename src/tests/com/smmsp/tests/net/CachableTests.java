@@ -0,0 +1,309 @@
+/*
+ * CachableTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.net;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.smmsp.core.net.Cachable;
+import com.smmsp.core.net.CachePolicy;
+
+/**
+ * @author sean
+ *
+ */
+public class CachableTests {
+
+	private static final long HOUR = 3600 * 1000;
+
+	/**
+	 * "Downloads" by writing the file, optionally waiting to be let go.
+	 */
+	private static final class FakeCachable extends Cachable {
+
+		private final Path path;
+		private final AtomicInteger updates = new AtomicInteger();
+		private volatile CountDownLatch gate;
+		private volatile boolean fail;
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		FakeCachable(final Path path, final CachePolicy policy) {
+			super(policy);
+			this.path = path;
+		}
+
+		@Override
+		protected void downloadCache() throws CacheException {
+			started.countDown();
+			try {
+				if (gate != null) {
+					gate.await();
+				}
+				if (fail) {
+					throw new CacheException("download failed");
+				}
+				Files.write(path, new byte[] { 'x' });
+				updates.incrementAndGet();
+			} catch (IOException | InterruptedException e) {
+				throw new CacheException("update failed", e);
+			} finally {
+				done.countDown();
+			}
+		}
+
+		@Override
+		public Path getPathToCache() throws CacheException {
+			return path;
+		}
+	}
+
+	private Path path;
+
+	@Before
+	public void setUp() throws IOException {
+		path = Files.createTempFile("cachable", ".txt");
+		Files.delete(path);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(path);
+	}
+
+	private void age(final long millis) throws IOException {
+		Files.write(path, new byte[] { 'o' });
+		Files.setLastModifiedTime(path,
+				FileTime.fromMillis(System.currentTimeMillis() - millis));
+	}
+
+	@Test
+	public void testPolicy() {
+		final CachePolicy policy = new CachePolicy(1, TimeUnit.HOURS, 2,
+				TimeUnit.HOURS);
+		assertEquals(CachePolicy.Freshness.FRESH, policy.freshness(0));
+		assertEquals(CachePolicy.Freshness.FRESH, policy.freshness(HOUR));
+		assertEquals(CachePolicy.Freshness.STALE, policy.freshness(HOUR + 1));
+		assertEquals(CachePolicy.Freshness.STALE, policy.freshness(3 * HOUR));
+		assertEquals(CachePolicy.Freshness.EXPIRED,
+				policy.freshness(3 * HOUR + 1));
+		assertEquals(CachePolicy.Freshness.STALE,
+				CachePolicy.DEFAULT.freshness(Long.MAX_VALUE / 2));
+	}
+
+	@Test
+	public void testNeedsUpdate() throws IOException {
+		final FakeCachable cache = new FakeCachable(path, new CachePolicy(1,
+				TimeUnit.HOURS, 0, TimeUnit.HOURS));
+		assertTrue(cache.cacheNeedsUpdate());
+		age(0);
+		assertFalse(cache.cacheNeedsUpdate());
+		age(2 * HOUR);
+		assertTrue(cache.cacheNeedsUpdate());
+		assertEquals(CachePolicy.Freshness.EXPIRED, cache.getFreshness());
+	}
+
+	@Test
+	public void testDefaultWeek() throws IOException {
+		final FakeCachable cache = new FakeCachable(path, CachePolicy.DEFAULT);
+		age(6 * 24 * HOUR);
+		assertFalse(cache.cacheNeedsUpdate());
+		age(8 * 24 * HOUR);
+		assertTrue(cache.cacheNeedsUpdate());
+	}
+
+	@Test
+	public void testFetchMissingBlocks() {
+		final FakeCachable cache = new FakeCachable(path, CachePolicy.DEFAULT);
+		assertEquals(path, cache.fetch());
+		assertEquals(1, cache.updates.get());
+		assertTrue(Files.exists(path));
+	}
+
+	@Test
+	public void testFetchFresh() throws IOException {
+		final FakeCachable cache = new FakeCachable(path, CachePolicy.DEFAULT);
+		age(HOUR);
+		cache.fetch();
+		assertEquals(0, cache.updates.get());
+	}
+
+	@Test
+	public void testFetchStaleRefreshesInBackground() throws IOException,
+			InterruptedException {
+		final FakeCachable cache = new FakeCachable(path, new CachePolicy(1,
+				TimeUnit.HOURS, 1, TimeUnit.DAYS));
+		age(2 * HOUR);
+		cache.gate = new CountDownLatch(1);
+
+		// returns the stale copy while the refresh is held up.
+		assertEquals(path, cache.fetch());
+		assertEquals("o", new String(Files.readAllBytes(path), "US-ASCII"));
+		assertEquals(0, cache.updates.get());
+
+		cache.gate.countDown();
+		assertTrue(cache.done.await(5, TimeUnit.SECONDS));
+		assertEquals(1, cache.updates.get());
+		assertFalse(cache.cacheNeedsUpdate());
+	}
+
+	@Test
+	public void testStaleFetchesQueueOneRefresh() throws IOException,
+			InterruptedException {
+		final FakeCachable cache = new FakeCachable(path, new CachePolicy(1,
+				TimeUnit.HOURS, 1, TimeUnit.DAYS));
+		age(2 * HOUR);
+		cache.gate = new CountDownLatch(1);
+		for (int i = 0; i < 5; ++i) {
+			cache.fetch();
+		}
+		assertTrue(cache.started.await(5, TimeUnit.SECONDS));
+		// still held up, so this one is dropped too.
+		cache.fetch();
+
+		cache.gate.countDown();
+		assertTrue(cache.done.await(5, TimeUnit.SECONDS));
+		Thread.sleep(200);
+		assertEquals(1, cache.updates.get());
+		assertFalse(cache.cacheNeedsUpdate());
+	}
+
+	@Test
+	public void testFailedRefreshBacksOff() throws IOException,
+			InterruptedException {
+		final CachePolicy policy = new CachePolicy(1, TimeUnit.HOURS, 1,
+				TimeUnit.DAYS);
+		final FakeCachable failing = new FakeCachable(path, policy);
+		failing.fail = true;
+		age(2 * HOUR);
+		failing.fetch();
+		assertTrue(failing.done.await(5, TimeUnit.SECONDS));
+		Thread.sleep(200);
+
+		// another cachable of the same file waits out the back off.
+		final FakeCachable again = new FakeCachable(path, policy);
+		assertEquals(path, again.fetch());
+		Thread.sleep(200);
+		assertEquals(1, again.started.getCount());
+
+		// a blocking update isn't held back.
+		again.updateCache();
+		assertEquals(1, again.updates.get());
+	}
+
+	@Test
+	public void testFetchExpiredBlocks() throws IOException {
+		final FakeCachable cache = new FakeCachable(path, new CachePolicy(1,
+				TimeUnit.HOURS, 1, TimeUnit.HOURS));
+		age(3 * HOUR);
+		cache.fetch();
+		assertEquals(1, cache.updates.get());
+	}
+
+	private static List<Thread> updateAll(final List<FakeCachable> caches,
+			final AtomicInteger failures) {
+		final List<Thread> threads = new ArrayList<>();
+		for (final FakeCachable cache : caches) {
+			final Thread t = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						cache.updateCache();
+					} catch (Cachable.CacheException e) {
+						failures.incrementAndGet();
+					}
+				}
+			});
+			t.start();
+			threads.add(t);
+		}
+		return threads;
+	}
+
+	private List<FakeCachable> sharingOneDownload(final boolean fail,
+			final AtomicInteger failures) throws InterruptedException {
+		final FakeCachable leader = new FakeCachable(path, CachePolicy.DEFAULT);
+		leader.gate = new CountDownLatch(1);
+		leader.fail = fail;
+		final Thread first = updateAll(Collections.singletonList(leader),
+				failures).get(0);
+		assertTrue(leader.started.await(5, TimeUnit.SECONDS));
+
+		final List<FakeCachable> followers = new ArrayList<>();
+		for (int i = 0; i < 7; ++i) {
+			followers.add(new FakeCachable(path, CachePolicy.DEFAULT));
+		}
+		final List<Thread> threads = updateAll(followers, failures);
+		// let them all find the download in progress.
+		Thread.sleep(200);
+		leader.gate.countDown();
+		first.join(5000);
+		for (Thread t : threads) {
+			t.join(5000);
+		}
+		followers.add(0, leader);
+		return followers;
+	}
+
+	@Test
+	public void testConcurrentUpdatesShareOneDownload()
+			throws InterruptedException {
+		final AtomicInteger failures = new AtomicInteger();
+		int downloads = 0;
+		for (FakeCachable cache : sharingOneDownload(false, failures)) {
+			downloads += cache.updates.get();
+		}
+		assertEquals(1, downloads);
+		assertEquals(0, failures.get());
+		assertTrue(Files.exists(path));
+	}
+
+	@Test
+	public void testFailureReachesEveryCaller() throws InterruptedException {
+		final AtomicInteger failures = new AtomicInteger();
+		int started = 0;
+		for (FakeCachable cache : sharingOneDownload(true, failures)) {
+			started += cache.started.getCount() == 0 ? 1 : 0;
+		}
+		assertEquals(1, started);
+		assertEquals(8, failures.get());
+
+		// the next update runs again rather than reusing the failure.
+		final FakeCachable again = new FakeCachable(path, CachePolicy.DEFAULT);
+		again.updateCache();
+		assertEquals(1, again.updates.get());
+	}
+}
@@ -0,0 +1,271 @@
+/*
+ * HTTPCachedFileTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.net;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.smmsp.core.net.CachePolicy;
+import com.smmsp.core.net.HTTPCachedFile;
+import com.smmsp.core.utils.OSAPI;
+
+/**
+ * Runs HTTPCachedFile against a little server on localhost that answers
+ * conditional requests.
+ *
+ * @author sean
+ *
+ */
+public class HTTPCachedFileTests {
+
+	private static final String BODY = "ISS (ZARYA)\n";
+	private static final String ETAG = "\"v1\"";
+	private static final String MODIFIED = "Tue, 15 Nov 2022 08:12:31 GMT";
+
+	private ServerSocket server;
+	private Thread serverThread;
+	private final List<Map<String, String>> requests = new ArrayList<>();
+	private volatile String etag = ETAG;
+	private volatile int errorCode;
+	private volatile boolean truncate;
+	private volatile byte[] body = BODY.getBytes(StandardCharsets.US_ASCII);
+	private volatile boolean chunked;
+	private volatile boolean noLength;
+
+	private HTTPCachedFile file;
+
+	@Before
+	public void setUp() throws IOException {
+		OSAPI.ensureCacheDirExists();
+		server = new ServerSocket(0);
+		serverThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (!server.isClosed()) {
+					try (Socket sock = server.accept()) {
+						serve(sock);
+					} catch (IOException e) {
+						// closed.
+					}
+				}
+			}
+		});
+		serverThread.setDaemon(true);
+		serverThread.start();
+		file = new HTTPCachedFile("HTTPCachedFileTests-" + System.nanoTime()
+				+ ".txt", "http://localhost:" + server.getLocalPort()
+				+ "/tle.txt");
+	}
+
+	@After
+	public void tearDown() throws IOException, InterruptedException {
+		server.close();
+		serverThread.join(1000);
+		Files.deleteIfExists(file.getPathToCache());
+		Files.deleteIfExists(file.getPathToValidators());
+	}
+
+	private void serve(final Socket sock) throws IOException {
+		final BufferedReader in = new BufferedReader(new InputStreamReader(
+				sock.getInputStream(), StandardCharsets.US_ASCII));
+		final Map<String, String> headers = new HashMap<>();
+		String line = in.readLine();
+		while ((line = in.readLine()) != null && !line.isEmpty()) {
+			final String[] parts = line.split(": ", 2);
+			headers.put(parts[0], parts[1]);
+		}
+		synchronized (requests) {
+			requests.add(headers);
+		}
+
+		final StringBuilder response = new StringBuilder();
+		if (errorCode != 0) {
+			response.append("HTTP/1.1 ").append(errorCode)
+					.append(" Oops\r\nContent-Length: 0\r\n\r\n");
+		} else if (etag.equals(headers.get("If-None-Match"))) {
+			response.append("HTTP/1.1 304 Not Modified\r\n");
+			response.append("ETag: ").append(etag).append("\r\n\r\n");
+		} else {
+			response.append("HTTP/1.1 200 OK\r\n");
+			response.append("ETag: ").append(etag).append("\r\n");
+			response.append("Last-Modified: ").append(MODIFIED).append("\r\n");
+			if (chunked) {
+				response.append("Transfer-Encoding: chunked\r\n");
+			} else if (!noLength) {
+				response.append("Content-Length: ").append(body.length)
+						.append("\r\n");
+			}
+			response.append("\r\n");
+		}
+		final OutputStream out = sock.getOutputStream();
+		out.write(response.toString().getBytes(StandardCharsets.US_ASCII));
+		if (errorCode == 0 && response.charAt(9) == '2') {
+			if (chunked) {
+				// two chunks, then the last.
+				final int half = body.length / 2;
+				out.write((Integer.toHexString(half) + "\r\n")
+						.getBytes(StandardCharsets.US_ASCII));
+				out.write(body, 0, half);
+				out.write(("\r\n" + Integer.toHexString(body.length - half)
+						+ "\r\n").getBytes(StandardCharsets.US_ASCII));
+				out.write(body, half, body.length - half);
+				out.write("\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+			} else {
+				// the connection drops half way through the body.
+				out.write(body, 0, truncate ? 4 : body.length);
+			}
+		}
+		out.flush();
+	}
+
+	private String cached() throws IOException {
+		return new String(Files.readAllBytes(file.getPathToCache()),
+				StandardCharsets.US_ASCII);
+	}
+
+	@Test
+	public void testRevalidation() throws IOException {
+		file.updateCache();
+		assertEquals(200, file.getLastResponseCode());
+		assertEquals(BODY, cached());
+		assertTrue(Files.exists(file.getPathToValidators()));
+		assertNull(requests.get(0).get("If-None-Match"));
+
+		final FileTime old = FileTime.fromMillis(System.currentTimeMillis()
+				- 8L * 24 * 3600 * 1000);
+		Files.setLastModifiedTime(file.getPathToCache(), old);
+
+		file.updateCache();
+		assertEquals(304, file.getLastResponseCode());
+		assertEquals(ETAG, requests.get(1).get("If-None-Match"));
+		assertEquals(MODIFIED, requests.get(1).get("If-Modified-Since"));
+		assertEquals(BODY, cached());
+		// a 304 counts as a fresh download, but leaves the file alone.
+		assertEquals(old, Files.getLastModifiedTime(file.getPathToCache()));
+		assertEquals(CachePolicy.Freshness.FRESH, file.getFreshness());
+
+		etag = "\"v2\"";
+		file.updateCache();
+		assertEquals(200, file.getLastResponseCode());
+		assertEquals(ETAG, requests.get(2).get("If-None-Match"));
+	}
+
+	@Test
+	public void testAgeWithoutValidators() throws IOException {
+		file.updateCache();
+		Files.delete(file.getPathToValidators());
+		Files.setLastModifiedTime(file.getPathToCache(), FileTime
+				.fromMillis(System.currentTimeMillis() - 8L * 24 * 3600 * 1000));
+		assertEquals(CachePolicy.Freshness.STALE, file.getFreshness());
+	}
+
+	@Test
+	public void testNoValidatorsWithoutCacheFile() throws IOException {
+		file.updateCache();
+		Files.delete(file.getPathToCache());
+
+		file.updateCache();
+		assertEquals(200, file.getLastResponseCode());
+		assertNull(requests.get(1).get("If-None-Match"));
+		assertEquals(BODY, cached());
+	}
+
+	@Test
+	public void testFailedDownloadKeepsCache() throws IOException {
+		file.updateCache();
+		final FileTime written = FileTime.fromMillis(System
+				.currentTimeMillis() - 3600 * 1000);
+		Files.setLastModifiedTime(file.getPathToCache(), written);
+
+		etag = "\"v2\"";
+		truncate = true;
+		file.updateCache();
+		assertEquals(-1, file.getLastResponseCode());
+		assertEquals(BODY, cached());
+		assertEquals(written, Files.getLastModifiedTime(file.getPathToCache()));
+		try (DirectoryStream<Path> temps = Files.newDirectoryStream(file
+				.getPathToCache().getParent(), file.getPathToCache()
+				.getFileName() + ".*.tmp")) {
+			assertFalse(temps.iterator().hasNext());
+		}
+	}
+
+	@Test
+	public void testBodyIsBytes() throws IOException {
+		body = "M\u00fcnchen \u2713\n".getBytes(StandardCharsets.UTF_8);
+		file.updateCache();
+		assertEquals(200, file.getLastResponseCode());
+		assertTrue(Arrays.equals(body,
+				Files.readAllBytes(file.getPathToCache())));
+	}
+
+	@Test
+	public void testChunkedBody() throws IOException {
+		chunked = true;
+		file.updateCache();
+		assertEquals(200, file.getLastResponseCode());
+		assertEquals(BODY, cached());
+	}
+
+	@Test
+	public void testBodyWithoutLength() throws IOException {
+		noLength = true;
+		file.updateCache();
+		assertEquals(BODY, cached());
+
+		// nothing at all comes back, keep what there is.
+		body = new byte[0];
+		etag = "\"v2\"";
+		file.updateCache();
+		assertEquals(-1, file.getLastResponseCode());
+		assertEquals(BODY, cached());
+	}
+
+	@Test
+	public void testErrorKeepsCache() throws IOException {
+		file.updateCache();
+		errorCode = 500;
+		file.updateCache();
+		assertEquals(500, file.getLastResponseCode());
+		assertEquals(BODY, cached());
+	}
+}
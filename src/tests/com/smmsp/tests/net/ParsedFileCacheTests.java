@@ -0,0 +1,160 @@
+/*
+ * ParsedFileCacheTests.java
+ *
+ * Copyright (C) 2013 Sean P Madden
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ * If you would like to license this code under the GNU LGPL, please
+ * see http://www.seanmadden.net/licensing for details.
+ */
+package com.smmsp.tests.net;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.smmsp.core.net.ParsedFileCache;
+
+/**
+ * @author sean
+ *
+ */
+public class ParsedFileCacheTests {
+
+	/**
+	 * Weighs a string by its length.
+	 */
+	private static final ParsedFileCache.Weigher<String> LENGTH =
+			new ParsedFileCache.Weigher<String>() {
+				@Override
+				public long weigh(final String value) {
+					return value.length();
+				}
+			};
+
+	/**
+	 * Reads the file, counting how often it is asked to.
+	 */
+	private final AtomicInteger loads = new AtomicInteger();
+	private final ParsedFileCache.Loader<String> reader =
+			new ParsedFileCache.Loader<String>() {
+				@Override
+				public String load(final Path path) throws IOException {
+					loads.incrementAndGet();
+					return new String(Files.readAllBytes(path),
+							StandardCharsets.US_ASCII);
+				}
+			};
+
+	private Path dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("parsed");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		for (String name : dir.toFile().list()) {
+			Files.delete(dir.resolve(name));
+		}
+		Files.delete(dir);
+	}
+
+	private Path write(final String name, final String text,
+			final long modified) throws IOException {
+		final Path path = dir.resolve(name);
+		Files.write(path, text.getBytes(StandardCharsets.US_ASCII));
+		Files.setLastModifiedTime(path, FileTime.fromMillis(modified));
+		return path;
+	}
+
+	@Test
+	public void testParsedOncePerVersion() throws IOException {
+		final ParsedFileCache<String> cache = new ParsedFileCache<>(100,
+				LENGTH);
+		final Path a = write("a", "first", 1000000);
+
+		assertEquals("first", cache.get(a, reader));
+		assertEquals("first", cache.get(a, reader));
+		assertEquals(1, loads.get());
+		assertEquals(1, cache.getHits());
+
+		// a refresh rewrites the file.
+		write("a", "second", 2000000);
+		assertEquals("second", cache.get(a, reader));
+		assertEquals("second", cache.get(dir.resolve("./a"), reader));
+		assertEquals(2, loads.get());
+		assertEquals(1, cache.size());
+		assertEquals(6, cache.getWeight());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws IOException {
+		final ParsedFileCache<String> cache = new ParsedFileCache<>(10,
+				LENGTH);
+		final Path a = write("a", "aaaa", 1000000);
+		final Path b = write("b", "bbbb", 1000000);
+		final Path c = write("c", "cccc", 1000000);
+
+		cache.get(a, reader);
+		cache.get(b, reader);
+		cache.get(a, reader);
+		// over 10, b was used least recently.
+		cache.get(c, reader);
+		assertEquals(2, cache.size());
+		assertEquals(8, cache.getWeight());
+		assertEquals(1, cache.getEvictions());
+
+		loads.set(0);
+		cache.get(a, reader);
+		cache.get(c, reader);
+		assertEquals(0, loads.get());
+		cache.get(b, reader);
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testTooHeavyIsNotKept() throws IOException {
+		final ParsedFileCache<String> cache = new ParsedFileCache<>(3, LENGTH);
+		final Path a = write("a", "aaaa", 1000000);
+		assertEquals("aaaa", cache.get(a, reader));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+	@Test
+	public void testInvalidate() throws IOException {
+		final ParsedFileCache<String> cache = new ParsedFileCache<>(100,
+				LENGTH);
+		final Path a = write("a", "aaaa", 1000000);
+		cache.get(a, reader);
+		cache.invalidate(a);
+		assertEquals(0, cache.getWeight());
+		cache.get(a, reader);
+		assertEquals(2, loads.get());
+		cache.clear();
+		assertEquals(0, cache.size());
+	}
+}